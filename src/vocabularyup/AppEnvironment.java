@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Location of application files and logging setup.<br/>
+ * Class doesn't depend on UI, so it may be used by command line tools
+ * without loading Swing.
+ * @author dooman
+ */
+public final class AppEnvironment {
+    private static final Logger log = Logger.getLogger(AppEnvironment.class.getName());
+
+    public static final String APP_HOME_DIR = System.getProperty("user.home") + "/.vocabularyup";
+    public static final String VOCABULARY_FILE_EXTENSION = ".xml";
+    /** Extension of packed vocabularies, they are memory-mapped instead of loading to heap. */
+    public static final String PACKED_VOCABULARY_FILE_EXTENSION = ".vpk";
+
+    private static final String LOG_CONFIG_PROPERTY = "java.util.logging.config.file";
+    private static final String DEFAULT_LOG_CONFIG = "conf/logger.properties";
+
+    private AppEnvironment() {
+    }
+
+    /**
+     * Create application directory if it doesn't exist, e.g. on the first start after installation.
+     * @throws IOException if directory can't be created.
+     */
+    public static void createHomeDir() throws IOException {
+        File dir = new File(APP_HOME_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cann't create application directory " + dir);
+        }
+    }
+
+    /**
+     * Return file of vocabulary in application directory.
+     * If both XML and packed files exist, the latest modified is returned.
+     * @param vocabularyName name of vocabulary.
+     * @return existing file or XML file if vocabulary doesn't exist.
+     */
+    public static File getVocabularyFile(String vocabularyName) {
+        File xml = getVocabularyFile(vocabularyName, false);
+        File packed = getVocabularyFile(vocabularyName, true);
+        if (packed.exists() && (!xml.exists() || packed.lastModified() > xml.lastModified())) {
+            return packed;
+        }
+        return xml;
+    }
+
+    /**
+     * Return file of vocabulary in specified format.
+     * @param vocabularyName name of vocabulary.
+     * @param packed packed or XML file.
+     * @return file, it may not exist.
+     */
+    public static File getVocabularyFile(String vocabularyName, boolean packed) {
+        return new File(APP_HOME_DIR, vocabularyName
+                + (packed ? PACKED_VOCABULARY_FILE_EXTENSION : VOCABULARY_FILE_EXTENSION));
+    }
+
+    /**
+     * @param file file from application directory.
+     * @return {@code true} if file is XML or packed vocabulary.
+     */
+    public static boolean isVocabularyFile(File file) {
+        String fileName = file.getName();
+        return file.isFile() && (fileName.endsWith(VOCABULARY_FILE_EXTENSION)
+                || fileName.endsWith(PACKED_VOCABULARY_FILE_EXTENSION));
+    }
+
+    /**
+     * Return name of vocabulary by its file.
+     * @param file vocabulary file.
+     * @return file name without extension.
+     */
+    public static String getVocabularyName(File file) {
+        String fileName = file.getName();
+        for (String extension : new String[] {VOCABULARY_FILE_EXTENSION, PACKED_VOCABULARY_FILE_EXTENSION}) {
+            if (fileName.endsWith(extension)) {
+                return fileName.substring(0, fileName.length() - extension.length());
+            }
+        }
+        return fileName;
+    }
+
+    /**
+     * Read logging configuration from {@code conf/logger.properties}
+     * if other file isn't set by system property.
+     * @param printConfiguration print configured loggers to standard output
+     *   and warn if configuration file isn't found.
+     */
+    public static void configureLog(boolean printConfiguration) {
+        String logConfigFile = System.getProperty(LOG_CONFIG_PROPERTY);
+        if (logConfigFile == null) {
+            File defaultLogConfigFile = new File(DEFAULT_LOG_CONFIG);
+            if (defaultLogConfigFile.exists()) {
+                System.setProperty(LOG_CONFIG_PROPERTY, DEFAULT_LOG_CONFIG);
+            } else if (printConfiguration) {
+                log.warning("Load default logging configuration");
+            }
+        }
+        try {
+            LogManager logManager = LogManager.getLogManager();
+            logManager.readConfiguration();
+            if (!printConfiguration) {
+                return;
+            }
+            System.out.println("Logging configuration:");
+            Enumeration<String> loggers = logManager.getLoggerNames();
+            while (loggers.hasMoreElements()) {
+                String loggerName = loggers.nextElement();
+                Logger logger = logManager.getLogger(loggerName);
+                System.out.println("\t [" + loggerName + "]");
+                System.out.println("\t\tHandlers:");
+                for (Handler h : logger.getHandlers()) {
+                    System.out.println("\t\t\tClass: " + h.getClass().getName());
+                    System.out.println("\t\t\tLevel: " + h.getLevel());
+                    System.out.println("\t\t\tFormatter: " + h.getFormatter().getClass().getName());
+                }
+                System.out.println("\t\tLevel: " + logger.getLevel());
+            }
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Error loading logging configuration", e);
+        }
+    }
+}
@@ -17,80 +17,185 @@
 
 package vocabularyup;
 
+import java.awt.Frame;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Handler;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
-import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import vocabularyup.cli.Launcher;
 import vocabularyup.exception.ArticleAlreadyExistException;
 import vocabularyup.exception.VocabularyAlreadyExistException;
 import vocabularyup.exception.VocabularyModelException;
 import vocabularyup.exception.VocabularyNotFoundException;
+import vocabularyup.ipc.InstanceClient;
+import vocabularyup.ipc.InstanceListener;
 import vocabularyup.model.xml.Article;
 import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.model.xml.VocabularyTransaction;
+import vocabularyup.server.LoadTestClient;
+import vocabularyup.server.VocabularyServer;
+import vocabularyup.test.TestSessionEngine;
 import vocabularyup.ui.EditArticleDialog;
 import vocabularyup.ui.MainFrame;
 
 /**
  * Main class of application.
- * Creating as singleton. {@code VocabularyApp} is a main controller of application.
+ * Creating as singleton. {@code VocabularyApp} is a main controller of application.<br/>
+ * Registry of vocabularies and listeners may be used from any thread.
+ * State of current view(current vocabulary, filter, search result) is changed
+ * by synchronized methods, listeners are notified in the calling thread.
  * @author 111
  */
 public class VocabularyApp {
     private static final Logger log = Logger.getLogger(VocabularyApp.class.getName());
 
-    public static final String APP_HOME_DIR=System.getProperty("user.home") + "/.vocabularyup";
+    /** Alias of {@link AppEnvironment#APP_HOME_DIR}. */
+    public static final String APP_HOME_DIR = AppEnvironment.APP_HOME_DIR;
 
     public static final String ADD_ARTICLE_APP_OPTION = "--addArticle";
+    /** Run HTTP service without UI: {@code --serve [port [threads]]}. */
+    public static final String SERVE_APP_OPTION = "--serve";
+    /** Run load test of HTTP service: {@code --loadTest [url [threads [requests]]]}. */
+    public static final String LOAD_TEST_APP_OPTION = "--loadTest";
 
-    private static VocabularyApp instance = null;
+    /**
+     * Lazy holder of application instance, JVM guarantees that it'll be
+     * initialized only once.
+     */
+    private static class InstanceHolder {
+        private static final VocabularyApp INSTANCE = createInstance();
+
+        private static VocabularyApp createInstance() {
+            VocabularyApp app = new VocabularyApp();
+            app.init();
+            return app;
+        }
+    }
 
     private MainFrame mainFrame;
-    private Map<String, Vocabulary> vocabularies = new HashMap<String, Vocabulary>();
-    private Vocabulary currentVocabulary;
-    private Article selectedArticle;
+    private final VocabularyCache vocabularies = new VocabularyCache(new VocabularyCache.PinPolicy() {
+        @Override
+        public boolean isPinned(Vocabulary vocabulary) {
+            return vocabulary == currentVocabulary || testEngine.isUsed(vocabulary);
+        }
+    });
+    private volatile Vocabulary currentVocabulary;
+    private volatile Article selectedArticle;
     private String  currentFilter = "";
+    private List<Article> currentArticles = new ArrayList<Article>();
+
+    private final List<VocabularyAppListener> listeners = new CopyOnWriteArrayList<VocabularyAppListener>();
+    private final TestSessionEngine testEngine = new TestSessionEngine();
 
-    private List<VocabularyAppListener> listeners = new ArrayList<VocabularyAppListener>();
+    /** Guards names of not loaded vocabularies and actions waiting for them. */
+    private final Object loadingLock = new Object();
+    private final Set<String> pendingVocabularies = new HashSet<String>();
+    private final Map<String, List<Runnable>> waitingActions = new HashMap<String, List<Runnable>>();
 
     private VocabularyApp() {}
 
+    /**
+     * Return all loaded vocabularies, vocabularies dropped from memory are loaded again.
+     * Use {@link #getVocabularyNames()} when vocabularies themselves aren't needed.
+     * @return vocabularies, except ones that can't be loaded.
+     */
     public List<Vocabulary> getVocabularies() {
-        return new ArrayList(vocabularies.values());
+        List<Vocabulary> result = new ArrayList<Vocabulary>();
+        for (String name : vocabularies.getNames()) {
+            try {
+                result.add(vocabularies.get(name));
+            } catch (VocabularyNotFoundException e) {
+                log.log(Level.SEVERE, e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return names of loaded vocabularies, including ones dropped from memory.
+     */
+    public List<String> getVocabularyNames() {
+        return vocabularies.getNames();
+    }
+
+    /**
+     * Return loaded vocabulary by name, vocabulary dropped from memory is loaded again.
+     * Don't keep returned vocabulary, it may be dropped from memory later.
+     * @param vocabularyName name of vocabulary.
+     * @return vocabulary.
+     * @throws VocabularyNotFoundException if vocabulary doesn't exist, isn't loaded
+     *   yet or can't be loaded again.
+     */
+    public Vocabulary getVocabulary(String vocabularyName) throws VocabularyNotFoundException {
+        return vocabularies.get(vocabularyName);
+    }
+
+    /**
+     * Return cache of vocabularies, e.g. for its metrics.
+     * @return cache.
+     */
+    public VocabularyCache getVocabularyCache() {
+        return vocabularies;
     }
 
     public void createVocabulary(String vocabularyName) throws VocabularyAlreadyExistException, VocabularyModelException {
-            File vocFile = new File(APP_HOME_DIR + "/" + vocabularyName + ".xml");
+            File vocFile = AppEnvironment.getVocabularyFile(vocabularyName);
             if (vocFile.exists()) {
                 throw new VocabularyAlreadyExistException(vocabularyName);
             }
 
             Vocabulary voc = Vocabulary.newVocabulary(vocabularyName);
+            if (!vocabularies.add(voc)) {
+                throw new VocabularyAlreadyExistException(vocabularyName);
+            }
             voc.save();
-            vocabularies.put(voc.getName(), voc);
             fireAddVocabulary(voc);
     }
 
     /**
      * Set current vocabulary.
+     * If vocabulary is still loading, it'll be set as current when loaded.
      * @param vocabularyName name of vocabulary that setting as current.
      * @throws vocabularyup.exception.VocabularyNotFoundException if vocabulary 
      *   with {@code vocabularyName} does not exists.
      */
-    public void setCurrentVocabulary(String vocabularyName) throws VocabularyNotFoundException {
-        Vocabulary voc = vocabularies.get(vocabularyName);
-        if (voc == null) {
+    public synchronized void setCurrentVocabulary(final String vocabularyName) throws VocabularyNotFoundException {
+        if (!vocabularies.contains(vocabularyName)) {
+            if (isLoading(vocabularyName)) {
+                log.info("Vocabulary [" + vocabularyName + "] isn't loaded yet, it'll be current after loading");
+                whenLoaded(vocabularyName, new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            setCurrentVocabulary(vocabularyName);
+                        } catch (VocabularyNotFoundException e) {
+                            log.log(Level.SEVERE, e.getMessage(), e);
+                        }
+                    }
+                });
+                return;
+            }
             throw new VocabularyNotFoundException(vocabularyName);
         }
+        Vocabulary voc = vocabularies.get(vocabularyName);
         currentVocabulary = voc;
         fireCurrentVocabularyChange(voc);
         search(currentFilter);
@@ -103,7 +208,7 @@ public class VocabularyApp {
      * @throws vocabularyup.exception.VocabularyNotFoundException if vocabulary does not exists.
      * @throws IllegalArgumentException if {@code vocabulary == null}
      */
-    public void setCurrentVocabulary(Vocabulary vocabulary) throws VocabularyNotFoundException, IllegalArgumentException {
+    public synchronized void setCurrentVocabulary(Vocabulary vocabulary) throws VocabularyNotFoundException, IllegalArgumentException {
         if (vocabulary == null) {
             throw new IllegalArgumentException("vocabulary must not be [null]");
         }
@@ -116,68 +221,194 @@ public class VocabularyApp {
 
     /**
      * Add new article to current vocabulary.
+     * If article matches current filter, it will be inserted in current search result.
      * @param source source word for article.
      * @param translates translates for article.
      * @param examples examples for article.
      * @throws vocabularyup.exception.VocabularyModelException error while saving vocabulary.
-     * @throws VocabularyNotFoundException when setting vocabulary as current.
      * @throws ArticleAlreadyExistException if article with the specified source already exists
      */
-    public void addArticle(String source, List<String> translates, List<String> examples)
-            throws VocabularyModelException, VocabularyNotFoundException, ArticleAlreadyExistException {
+    public synchronized void addArticle(String source, List<String> translates, List<String> examples)
+            throws VocabularyModelException, ArticleAlreadyExistException {
         if (currentVocabulary != null) {
-            currentVocabulary.addArticle(source, translates, examples);
-            currentVocabulary.save();
-            setCurrentVocabulary(currentVocabulary);
+            addArticle(currentVocabulary, source, translates, examples);
         } else {
             throw new IllegalStateException("Current vocabulary is [null]");
         }
     }
 
+    /**
+     * Add new article to vocabulary. Only new article is written to vocabulary's
+     * journal, see {@link Vocabulary#saveAddedArticles(java.util.Collection)}.
+     * If vocabulary is current, article is inserted in current search result.
+     * @param vocabulary vocabulary for new article.
+     * @param source source word for article.
+     * @param translates translates for article.
+     * @param examples examples for article.
+     * @return new article.
+     * @throws VocabularyModelException error while saving vocabulary.
+     * @throws ArticleAlreadyExistException if article with the specified source already exists
+     */
+    public synchronized Article addArticle(Vocabulary vocabulary, String source, List<String> translates, List<String> examples)
+            throws VocabularyModelException, ArticleAlreadyExistException {
+        Article article = vocabulary.addArticle(source, translates, examples);
+        vocabulary.saveAddedArticles(Collections.singletonList(article));
+        if (vocabulary != currentVocabulary) {
+            fireVocabulariesChange(Collections.singletonList(vocabulary));
+        } else if (matches(article, currentFilter)) {
+            int index = -(indexOfSource(article.getSource()) + 1);
+            currentArticles.add(index, article);
+            fireCurrentArticlesInserted(index, Arrays.asList(article));
+        }
+        return article;
+    }
+
     /**
      * Change exists article.
+     * Renamed article moves to the new position in current search result
+     * or will be removed from it if doesn't match current filter.
      * @param old article that must be modified.
      * @param source new source for the article.
      * @param translates new translates for the article.
      * @param examples new examples for the article.
      * @throws VocabularyModelException error while saving vocabulary.
+     * @throws ArticleAlreadyExistException if other article with the {@code source} already exists
      */
-    public void changeArticle(Article old, String source, List<String> translates, List<String> examples) throws VocabularyModelException {
+    public synchronized void changeArticle(Article old, String source, List<String> translates, List<String> examples)
+            throws VocabularyModelException, ArticleAlreadyExistException {
         if (currentVocabulary != null) {
-            old.setSource(source);
+            int oldIndex = indexOfSource(old.getSource());
+            if (oldIndex >= 0 && !currentArticles.get(oldIndex).equals(old)) {
+                oldIndex = -1;
+            }
+            currentVocabulary.renameArticle(old, source);
             old.setTranslates(translates);
             old.setExamples(examples);
             currentVocabulary.save();
+
+            //result is changed step by step, each event describes the result right after the step
+            if (oldIndex >= 0) {
+                currentArticles.remove(oldIndex);
+            }
+            int newIndex = matches(old, currentFilter) ? -(indexOfSource(old.getSource()) + 1) : -1;
+            if (oldIndex >= 0 && oldIndex == newIndex) {
+                currentArticles.add(newIndex, old);
+                fireCurrentArticlesUpdated(oldIndex, Arrays.asList(old));
+            } else {
+                if (oldIndex >= 0) {
+                    fireCurrentArticlesRemoved(oldIndex, Arrays.asList(old));
+                }
+                if (newIndex >= 0) {
+                    currentArticles.add(newIndex, old);
+                    fireCurrentArticlesInserted(newIndex, Arrays.asList(old));
+                }
+            }
             fireSelectedArticleChange(old);
         }
     }
 
+    /**
+     * Execute several changes as one transaction.<br/>
+     * Changes made through {@link VocabularyTransaction} aren't saved and don't send
+     * events one by one. After {@code batch} each changed vocabulary is saved once
+     * and single {@code VOCABULARIES_CHANGED} event is sent, current search result
+     * is refreshed if current vocabulary was changed. If {@code batch} throws exception
+     * or saving fails, vocabularies are returned to the state before batch.
+     * @param batch changes that should be done.
+     * @throws VocabularyModelException batch or saving error, changes are rolled back.
+     */
+    public void batch(VocabularyBatch batch) throws VocabularyModelException {
+        VocabularyTransaction tx = new VocabularyTransaction();
+        try {
+            batch.execute(tx);
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Batch failed, rollback", e);
+            tx.rollback();
+            refreshIfChanged(tx.getVocabularies());
+            throw new VocabularyModelException("Batch failed: " + e.getMessage(), e);
+        }
+        try {
+            tx.commit();
+        } finally {
+            refreshIfChanged(tx.getVocabularies());
+        }
+        fireVocabulariesChange(tx.getVocabularies());
+    }
+
+    private synchronized void refreshIfChanged(List<Vocabulary> changed) {
+        if (currentVocabulary != null && changed.contains(currentVocabulary)) {
+            search(currentFilter);
+        }
+    }
+
     /**
      * Search articles in current vocabulary.
-     * This method send {@link ArticlesChangeEvent}.
+     * This method send {@code CURRENT_ARTICLES_CHANGED} event.
      * @param filter article must matches th filter to be in result.
-     * @return list of found articles or empty list.
+     * @return list of found articles sorted by source or empty list.
      */
-    public List<Article> search(String filter) {
+    public synchronized List<Article> search(String filter) {
         currentFilter = filter;
 
         log.info("Search in [" + currentVocabulary.getName() + "]. Filter: [" + filter +"]");
         List<Article> result = new ArrayList<Article>();
         if (currentVocabulary != null) {
-            List<Article> articles = currentVocabulary.getArticles();
-            for (Article a : articles) {
-                if (a.getSource().startsWith(filter)) {
-                    log.info("Add [" + a.getSource() + "] to current search result");
-                    result.add(a);
-                }
-            }
+            result = currentVocabulary.findArticles(filter);
+            log.info("Found [" + result.size() + "] articles");
         }
 
+        currentArticles = result;
         fireCurrentArticlesChange(result);
 
         return result;
     }
 
+    /**
+     * Return current search result. List is updated in place by
+     * {@code addArticle} and {@code changeArticle} before delta events are sent,
+     * new list is created by {@code search}.
+     * @return read-only view of current search result sorted by source.
+     */
+    public synchronized List<Article> getCurrentArticles() {
+        return Collections.unmodifiableList(currentArticles);
+    }
+
+    private static boolean matches(Article article, String filter) {
+        return article.getSource().startsWith(filter);
+    }
+
+    /**
+     * Return position of article in current search result.
+     * @param article article to find.
+     * @return index of article or {@code -1} if it isn't in current result.
+     */
+    public synchronized int indexOfCurrentArticle(Article article) {
+        int index = indexOfSource(article.getSource());
+        return index >= 0 && currentArticles.get(index).equals(article) ? index : -1;
+    }
+
+    /**
+     * Binary search of article in current search result, that sorted by source.
+     * @param source source of article.
+     * @return index of article, if it is in result; otherwise {@code (-(insertion point) - 1)}.
+     */
+    private int indexOfSource(String source) {
+        int low = 0;
+        int high = currentArticles.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = currentArticles.get(mid).getSource().compareTo(source);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
     public Article getSelectedArticle() {
         return selectedArticle;
     }
@@ -219,6 +450,23 @@ public class VocabularyApp {
         }
     }
 
+    protected void fireVocabulariesChange(List<Vocabulary> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        VocabularyAppEvent e = VocabularyAppEvent.vocabulariesChange(changed);
+        for (VocabularyAppListener l : listeners) {
+            l.changedVocabularies(e);
+        }
+    }
+
+    protected void fireLoadingProgress(Vocabulary vocabulary, int loaded, int total) {
+        VocabularyAppEvent e = VocabularyAppEvent.loadingProgress(vocabulary, loaded, total);
+        for (VocabularyAppListener l : listeners) {
+            l.loadingProgress(e);
+        }
+    }
+
     protected void fireCurrentArticlesChange(List<Article> articles) {
         VocabularyAppEvent e = VocabularyAppEvent.currentArticlesChange(articles);
         for (VocabularyAppListener l : listeners) {
@@ -226,6 +474,24 @@ public class VocabularyApp {
         }
     }
 
+    protected void fireCurrentArticlesInserted(int firstIndex, List<Article> inserted) {
+        fireCurrentArticlesDelta(VocabularyAppEvent.currentArticlesInsert(inserted, firstIndex));
+    }
+
+    protected void fireCurrentArticlesUpdated(int firstIndex, List<Article> updated) {
+        fireCurrentArticlesDelta(VocabularyAppEvent.currentArticlesUpdate(updated, firstIndex));
+    }
+
+    protected void fireCurrentArticlesRemoved(int firstIndex, List<Article> removed) {
+        fireCurrentArticlesDelta(VocabularyAppEvent.currentArticlesRemove(removed, firstIndex));
+    }
+
+    private void fireCurrentArticlesDelta(VocabularyAppEvent e) {
+        for (VocabularyAppListener l : listeners) {
+            l.currentArticlesChanges(e);
+        }
+    }
+
     protected void fireCurrentVocabularyChange(Vocabulary vocabulary) {
         VocabularyAppEvent e = VocabularyAppEvent.currentVocabularyChange(vocabulary);
         for (VocabularyAppListener l : listeners) {
@@ -241,40 +507,181 @@ public class VocabularyApp {
         }
     }
 
+    /**
+     * Is vocabulary found on disk, but not loaded yet.
+     * @param vocabularyName name of vocabulary.
+     * @return {@code true} if vocabulary is waiting for loading.
+     */
+    public boolean isLoading(String vocabularyName) {
+        synchronized (loadingLock) {
+            return pendingVocabularies.contains(vocabularyName);
+        }
+    }
+
+    /**
+     * Return names of vocabularies that are not loaded yet.
+     * @return names of vocabularies waiting for loading.
+     */
+    public List<String> getLoadingVocabularies() {
+        synchronized (loadingLock) {
+            return new ArrayList<String>(pendingVocabularies);
+        }
+    }
+
+    /**
+     * Execute action when vocabulary is loaded. If vocabulary is already loaded,
+     * action is executed immediately, otherwise it's queued and executed after
+     * loading in thread that delivers application events.
+     * @param vocabularyName name of vocabulary.
+     * @param action action that needs the vocabulary.
+     * @throws VocabularyNotFoundException if vocabulary neither loaded nor loading.
+     */
+    public void whenLoaded(String vocabularyName, Runnable action) throws VocabularyNotFoundException {
+        synchronized (loadingLock) {
+            if (pendingVocabularies.contains(vocabularyName)) {
+                List<Runnable> actions = waitingActions.get(vocabularyName);
+                if (actions == null) {
+                    actions = new ArrayList<Runnable>();
+                    waitingActions.put(vocabularyName, actions);
+                }
+                actions.add(action);
+                return;
+            }
+        }
+        if (!vocabularies.contains(vocabularyName)) {
+            throw new VocabularyNotFoundException(vocabularyName);
+        }
+        action.run();
+    }
+
+    /**
+     * Load all vocabularies in current thread.
+     */
+    public void loadVocabularies() {
+        loadVocabularies(prepareLoading());
+    }
+
+    private void loadVocabularies(List<File> files) {
+        new VocabularyLoader(this, files, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }).run();
+    }
+
+    /**
+     * Find vocabularies files and mark them as loading.
+     * @return files of not loaded vocabularies, the smallest files go first.
+     */
+    private List<File> prepareLoading() {
+        File[] files = new File(APP_HOME_DIR).listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return AppEnvironment.isVocabularyFile(f);
+            }
+        });
+        List<File> result = files == null ? new ArrayList<File>() : new ArrayList<File>(Arrays.asList(files));
+        //small vocabularies appear quickly
+        Collections.sort(result, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                long l1 = f1.length();
+                long l2 = f2.length();
+                return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+            }
+        });
+        synchronized (loadingLock) {
+            Iterator<File> it = result.iterator();
+            while (it.hasNext()) {
+                File file = it.next();
+                String name = getVocabularyName(file);
+                //vocabulary may have XML and packed files while its format is changed
+                if (!file.equals(AppEnvironment.getVocabularyFile(name))
+                        || vocabularies.contains(name) || pendingVocabularies.contains(name)) {
+                    it.remove();
+                } else {
+                    pendingVocabularies.add(name);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Called by loader for each vocabulary.
+     * @param fileName name of vocabulary file without extension.
+     * @param vocabulary loaded vocabulary or {@code null} if it can't be loaded.
+     * @param loaded number of processed vocabularies.
+     * @param total number of vocabularies for loading.
+     */
+    void vocabularyLoaded(String fileName, Vocabulary vocabulary, int loaded, int total) {
+        List<Runnable> actions;
+        if (vocabulary != null) {
+            vocabularies.add(vocabulary);
+        }
+        synchronized (loadingLock) {
+            pendingVocabularies.remove(fileName);
+            actions = waitingActions.remove(fileName);
+        }
+        if (vocabulary != null) {
+            fireAddVocabulary(vocabulary);
+        }
+        fireLoadingProgress(vocabulary, loaded, total);
+        if (actions != null) {
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    static String getVocabularyName(File file) {
+        return AppEnvironment.getVocabularyName(file);
+    }
+
     /**
      * Init application<br/>
-     * Create service catalogs, load vocabularies.
+     * Create service catalogs. Vocabularies are loaded by {@link #loadVocabularies()}
+     * or in background when application starts.
      */
     private void init() {
         File appDir = new File(APP_HOME_DIR);
         if (!appDir.isDirectory()) {
             appDir.mkdirs();
         }
-        try {
-            for (File f : appDir.listFiles()) {
-                Vocabulary voc = Vocabulary.loadVocabulary(f);
-                vocabularies.put(voc.getName(), voc);
-            }
-        } catch (VocabularyModelException me) {
-            log.log(Level.SEVERE, "Error while loading...", me);
-        } catch (VocabularyNotFoundException ne) {
-            log.log(Level.SEVERE, "Cann't find vocabulary...", ne);
-        }
     }
 
     public static VocabularyApp getInstance() {
-        if (instance == null) {
-            instance = new VocabularyApp();
-            instance.init();
-        }
+        return InstanceHolder.INSTANCE;
+    }
 
-        return instance;
+    /**
+     * Return engine that runs tests of all clients.
+     * @return test engine.
+     */
+    public TestSessionEngine getTestEngine() {
+        return testEngine;
     }
 
     public void start(String[] args) {
-        if (args.length == 1 &&
+        if (args.length > 1 && args[0].equals(ADD_ARTICLE_APP_OPTION)) {
+            //article from command line, Swing isn't needed
+            Launcher.main(args);
+        } else if (args.length > 0 && args[0].equals(SERVE_APP_OPTION)) {
+            serve(args);
+        } else if (args.length > 0 && args[0].equals(LOAD_TEST_APP_OPTION)) {
+            try {
+                LoadTestClient.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Load test error", e);
+            }
+        } else if (args.length == 1 &&
                 args[0].equals(ADD_ARTICLE_APP_OPTION)) {
             //add words only
+            if (forwardToRunningInstance(InstanceListener.SHOW_ADD_DIALOG_COMMAND)) {
+                return;
+            }
+            loadVocabularies();
             EditArticleDialog dialog = new EditArticleDialog(null);
             dialog.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
             dialog.addWindowListener(new WindowAdapter() {
@@ -286,47 +693,192 @@ public class VocabularyApp {
             dialog.pack();
             dialog.setVisible(true);
         } else {
-            mainFrame = new MainFrame();
-            mainFrame.setLocationByPlatform(true);
-            mainFrame.pack();
-            mainFrame.setVisible(true);
+            if (forwardToRunningInstance(InstanceListener.ACTIVATE_COMMAND)) {
+                return;
+            }
+            //frame is created in event thread before any loading event, so it doesn't miss them
+            List<File> files = prepareLoading();
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    mainFrame = new MainFrame();
+                    mainFrame.setLocationByPlatform(true);
+                    mainFrame.pack();
+                    mainFrame.setVisible(true);
+                }
+            });
+            Thread loader = new Thread(new VocabularyLoader(this, files, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    SwingUtilities.invokeLater(command);
+                }
+            }), "vocabulary-loader");
+            loader.setDaemon(true);
+            loader.start();
+            listenOtherInstances(true);
         }
     }
 
-    public static void configureLog() {
-        String LOG_CONFIG_PROPERTY = "java.util.logging.config.file";
-        String DEFAULT_LOG_CONFIG = "conf/logger.properties";
-        String logConfigFile = System.getProperty(LOG_CONFIG_PROPERTY);
-        if (logConfigFile == null) {
-            File defaultLogConfigFile = new File(DEFAULT_LOG_CONFIG);
-            if (defaultLogConfigFile.exists()) {
-                System.setProperty(LOG_CONFIG_PROPERTY, DEFAULT_LOG_CONFIG);
-            } else {
-                log.warning("Load default logging configuration");
+    /**
+     * Send command to already running application.
+     * @return {@code true} if command is executed by running application.
+     */
+    private boolean forwardToRunningInstance(String command) {
+        try {
+            if (InstanceClient.send(command, Collections.<String>emptyList())) {
+                log.info("Command [" + command + "] is sent to running application");
+                return true;
             }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Running application failed to execute [" + command + "]", e);
         }
+        return false;
+    }
+
+    /**
+     * Execute commands of later started processes in this application.
+     * @param inEventThread execute commands in event thread, otherwise only
+     *   commands that don't need UI are executed in listener's thread.
+     */
+    private void listenOtherInstances(final boolean inEventThread) {
         try {
-            LogManager logManager = LogManager.getLogManager();
-            logManager.readConfiguration();
-            System.out.println("Logging configuration:");
-            Enumeration<String> loggers = logManager.getLoggerNames();
-            while (loggers.hasMoreElements()) {
-                String loggerName = loggers.nextElement();
-                Logger logger = logManager.getLogger(loggerName);
-                System.out.println("\t [" + loggerName + "]");
-                System.out.println("\t\tHandlers:");
-                for (Handler h : logger.getHandlers()) {
-                    System.out.println("\t\t\tClass: " + h.getClass().getName());
-                    System.out.println("\t\t\tLevel: " + h.getLevel());
-                    System.out.println("\t\t\tFormatter: " + h.getFormatter().getClass().getName());
+            final InstanceListener listener = InstanceListener.start(new InstanceListener.Handler() {
+                @Override
+                public void handle(final String command, final List<String> args) throws Exception {
+                    if (!inEventThread) {
+                        executeForwardedHeadless(command, args);
+                        return;
+                    }
+                    final Exception[] error = new Exception[1];
+                    SwingUtilities.invokeAndWait(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                executeForwarded(command, args);
+                            } catch (Exception e) {
+                                error[0] = e;
+                            }
+                        }
+                    });
+                    if (error[0] != null) {
+                        throw error[0];
+                    }
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread("instance-listener-shutdown") {
+                @Override
+                public void run() {
+                    listener.close();
+                }
+            });
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Cann't listen for other instances, they will work standalone", e);
+        }
+    }
+
+    /**
+     * Execute command of other process in event thread.
+     */
+    private void executeForwarded(String command, List<String> args) throws Exception {
+        if (command.equals(InstanceListener.ADD_ARTICLE_COMMAND)) {
+            if (args.size() < 3) {
+                throw new IllegalArgumentException("Vocabulary, source and translates are required");
+            }
+            addArticle(getVocabulary(args.get(0)), args.get(1), splitLines(args.get(2)),
+                    args.size() > 3 ? splitLines(args.get(3)) : Collections.<String>emptyList());
+        } else if (command.equals(InstanceListener.SHOW_ADD_DIALOG_COMMAND)) {
+            //modal dialog is shown later, so the other process doesn't wait for it
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    EditArticleDialog dialog = new EditArticleDialog(null);
+                    dialog.pack();
+                    dialog.setLocationRelativeTo(mainFrame);
+                    dialog.setVisible(true);
+                }
+            });
+        } else if (command.equals(InstanceListener.ACTIVATE_COMMAND)) {
+            if (mainFrame != null) {
+                mainFrame.setState(Frame.NORMAL);
+                mainFrame.toFront();
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown command [" + command + "]");
+        }
+    }
+
+    /**
+     * Execute command of other process without UI. Article for vocabulary
+     * that is still loading is added after loading, other process waits for it.
+     */
+    private void executeForwardedHeadless(String command, final List<String> args) throws Exception {
+        if (!command.equals(InstanceListener.ADD_ARTICLE_COMMAND)) {
+            throw new IllegalArgumentException("Command [" + command + "] isn't supported without UI");
+        }
+        if (args.size() < 3) {
+            throw new IllegalArgumentException("Vocabulary, source and translates are required");
+        }
+        final CountDownLatch done = new CountDownLatch(1);
+        final Exception[] error = new Exception[1];
+        whenLoaded(args.get(0), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    addArticle(getVocabulary(args.get(0)), args.get(1), splitLines(args.get(2)),
+                            args.size() > 3 ? splitLines(args.get(3)) : Collections.<String>emptyList());
+                } catch (Exception e) {
+                    error[0] = e;
+                } finally {
+                    done.countDown();
                 }
-                System.out.println("\t\tLevel: " + logger.getLevel());
             }
+        });
+        done.await();
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+
+    private static List<String> splitLines(String value) {
+        List<String> result = new ArrayList<String>();
+        for (String line : value.split("\n")) {
+            if (line.trim().length() > 0) {
+                result.add(line.trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load all vocabularies and serve them over HTTP until JVM is stopped.
+     * Articles added from command line are forwarded to this process, so they
+     * don't go to journals of loaded vocabularies.
+     */
+    private void serve(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : VocabularyServer.DEFAULT_PORT;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : VocabularyServer.DEFAULT_THREADS;
+        List<File> files = prepareLoading();
+        listenOtherInstances(false);
+        loadVocabularies(files);
+        try {
+            final VocabularyServer server = new VocabularyServer(this, port, threads);
+            Runtime.getRuntime().addShutdownHook(new Thread("server-shutdown") {
+                @Override
+                public void run() {
+                    server.stop(1);
+                }
+            });
+            server.start();
         } catch (IOException e) {
-            log.log(Level.SEVERE, "Error loading logging configuration", e);
+            log.log(Level.SEVERE, "Cann't start server on port [" + port + "]", e);
+            System.exit(1);
         }
     }
 
+    public static void configureLog() {
+        AppEnvironment.configureLog(true);
+    }
+
     /**
      * @param args the command line arguments
      */
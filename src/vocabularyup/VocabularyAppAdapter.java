@@ -26,12 +26,18 @@ public class VocabularyAppAdapter implements VocabularyAppListener {
     @Override
     public void addedVocabulary(VocabularyAppEvent event) {}
 
+    @Override
+    public void changedVocabularies(VocabularyAppEvent event) {}
+
     @Override
     public void currentArticlesChanges(VocabularyAppEvent event) {}
 
     @Override
     public void currentVocabularyChanged(VocabularyAppEvent event) {}
 
+    @Override
+    public void loadingProgress(VocabularyAppEvent event) {}
+
     @Override
     public void selectedArticleChange(VocabularyAppEvent event) {}
 }
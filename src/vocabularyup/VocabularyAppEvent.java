@@ -27,22 +27,33 @@ import vocabularyup.model.xml.Vocabulary;
  * Constructs events with static methods.<br/>
  * Available Change Events:<br/>
  * -adding new vocabulary
+ * -progress of vocabularies loading<br/>
+ * -vocabularies changed by batch<br/>
  * -current vocabulary changed<br/>
  * -current search result changed<br/>
+ * -rows inserted, updated or removed in current search result<br/>
  * -current selected article change<br/>
+ * Delta events ({@link #isDelta()}) carry only the affected articles and the
+ * range {@code [firstIndex, lastIndex]} they occupy in the current search result.
  * @author dooman
  */
 public class VocabularyAppEvent {
     public static enum EventType {
-        VOCABULARY_ADDED,
+        VOCABULARY_ADDED, VOCABULARIES_CHANGED, VOCABULARY_LOADING,
         CURRENT_VOCABULARY_CHANGED, CURRENT_ARTICLES_CHANGED, 
+        CURRENT_ARTICLES_INSERTED, CURRENT_ARTICLES_UPDATED, CURRENT_ARTICLES_REMOVED,
         CURRENT_SELECTED_ARTICLE_CHANGE, 
         UNDEFINED
     }
 
     private EventType type = EventType.UNDEFINED;
     private Vocabulary vocabulary;
+    private List<Vocabulary> vocabularies;
     private List<Article> articles;
+    private int firstIndex = -1;
+    private int lastIndex = -1;
+    private int loaded;
+    private int total;
 
     public VocabularyAppEvent(EventType type, Vocabulary vocabulary, List<Article> articles) {
         this.type = type;
@@ -50,6 +61,12 @@ public class VocabularyAppEvent {
         this.articles = articles;
     }
 
+    private VocabularyAppEvent(EventType type, List<Article> articles, int firstIndex) {
+        this(type, null, articles);
+        this.firstIndex = firstIndex;
+        this.lastIndex = firstIndex + articles.size() - 1;
+    }
+
     public static VocabularyAppEvent currentVocabularyChange(Vocabulary vocabulary) {
         return new VocabularyAppEvent(EventType.CURRENT_VOCABULARY_CHANGED, vocabulary, null);
     }
@@ -58,10 +75,65 @@ public class VocabularyAppEvent {
         return new VocabularyAppEvent(EventType.CURRENT_ARTICLES_CHANGED, null, articles);
     }
 
+    /**
+     * Articles were inserted into current search result.
+     * @param inserted inserted articles in result order.
+     * @param firstIndex index of the first inserted article in the new result.
+     * @return delta event.
+     */
+    public static VocabularyAppEvent currentArticlesInsert(List<Article> inserted, int firstIndex) {
+        return new VocabularyAppEvent(EventType.CURRENT_ARTICLES_INSERTED, inserted, firstIndex);
+    }
+
+    /**
+     * Articles of current search result were changed, but stay at the same positions.
+     * @param updated changed articles in result order.
+     * @param firstIndex index of the first changed article.
+     * @return delta event.
+     */
+    public static VocabularyAppEvent currentArticlesUpdate(List<Article> updated, int firstIndex) {
+        return new VocabularyAppEvent(EventType.CURRENT_ARTICLES_UPDATED, updated, firstIndex);
+    }
+
+    /**
+     * Articles were removed from current search result.
+     * @param removed removed articles in result order.
+     * @param firstIndex index of the first removed article in the old result.
+     * @return delta event.
+     */
+    public static VocabularyAppEvent currentArticlesRemove(List<Article> removed, int firstIndex) {
+        return new VocabularyAppEvent(EventType.CURRENT_ARTICLES_REMOVED, removed, firstIndex);
+    }
+
     public static VocabularyAppEvent vocabularyAdd(Vocabulary vocabulary) {
         return new VocabularyAppEvent(EventType.VOCABULARY_ADDED, vocabulary, null);
     }
 
+    /**
+     * Several vocabularies were changed at once, e.g. by batch.
+     * @param vocabularies changed vocabularies.
+     * @return event.
+     */
+    public static VocabularyAppEvent vocabulariesChange(List<Vocabulary> vocabularies) {
+        VocabularyAppEvent e = new VocabularyAppEvent(EventType.VOCABULARIES_CHANGED, null, null);
+        e.vocabularies = vocabularies;
+        return e;
+    }
+
+    /**
+     * Next vocabulary was processed by loader.
+     * @param vocabulary loaded vocabulary or {@code null} if it can't be loaded.
+     * @param loaded number of processed vocabularies.
+     * @param total number of vocabularies for loading.
+     * @return event.
+     */
+    public static VocabularyAppEvent loadingProgress(Vocabulary vocabulary, int loaded, int total) {
+        VocabularyAppEvent e = new VocabularyAppEvent(EventType.VOCABULARY_LOADING, vocabulary, null);
+        e.loaded = loaded;
+        e.total = total;
+        return e;
+    }
+
     public static VocabularyAppEvent selectedArticleChange(Article a) {
         return new VocabularyAppEvent(EventType.CURRENT_SELECTED_ARTICLE_CHANGE, null, Arrays.asList(a));
     }
@@ -74,6 +146,48 @@ public class VocabularyAppEvent {
         return articles;
     }
 
+    /**
+     * Index of the first affected article for delta events.
+     * @return index in current search result or {@code -1} if event isn't delta.
+     */
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    /**
+     * Index of the last affected article for delta events(inclusive).
+     * @return index in current search result or {@code -1} if event isn't delta.
+     */
+    public int getLastIndex() {
+        return lastIndex;
+    }
+
+    /**
+     * Number of processed vocabularies for {@code VOCABULARY_LOADING} event.
+     * @return number of vocabularies loaded so far.
+     */
+    public int getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Number of vocabularies for loading for {@code VOCABULARY_LOADING} event.
+     * @return total number of vocabularies.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Is event describes only part of current search result.
+     * @return {@code true} for inserted, updated and removed events.
+     */
+    public boolean isDelta() {
+        return type == EventType.CURRENT_ARTICLES_INSERTED
+                || type == EventType.CURRENT_ARTICLES_UPDATED
+                || type == EventType.CURRENT_ARTICLES_REMOVED;
+    }
+
     public EventType getType() {
         return type;
     }
@@ -81,4 +195,12 @@ public class VocabularyAppEvent {
     public Vocabulary getVocabulary() {
         return vocabulary;
     }
+
+    /**
+     * Return changed vocabularies for {@code VOCABULARIES_CHANGED} event.
+     * @return list of vocabularies or {@code null} for other events.
+     */
+    public List<Vocabulary> getVocabularies() {
+        return vocabularies;
+    }
 }
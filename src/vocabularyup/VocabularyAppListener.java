@@ -30,7 +30,9 @@ public interface VocabularyAppListener {
     void currentVocabularyChanged(VocabularyAppEvent event);
 
     /**
-     * Will be invoce when result of search change
+     * Will be invoce when result of search change.
+     * Event is either full result({@code CURRENT_ARTICLES_CHANGED})
+     * or delta for part of the result(see {@link VocabularyAppEvent#isDelta()}).
      * @param event event.
      */    
     void currentArticlesChanges(VocabularyAppEvent event);
@@ -41,6 +43,18 @@ public interface VocabularyAppListener {
      */
     void addedVocabulary(VocabularyAppEvent event);
 
+    /**
+     * Will be invoce when several vocabularies were changed at once(after batch).
+     * @param event event
+     */
+    void changedVocabularies(VocabularyAppEvent event);
+
+    /**
+     * Will be invoce when next vocabulary is loaded(or failed) at startup.
+     * @param event event
+     */
+    void loadingProgress(VocabularyAppEvent event);
+
     /**
      * Will be invoce when selected article change.
      * @param event event
@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup;
+
+import vocabularyup.model.xml.VocabularyTransaction;
+
+/**
+ * Changes that executed by {@link VocabularyApp#batch(VocabularyBatch)} as one transaction.
+ * @author dooman
+ */
+public interface VocabularyBatch {
+    /**
+     * Make changes. All changes must be done through {@code transaction}
+     * or after {@link VocabularyTransaction#touch(vocabularyup.model.xml.Vocabulary)}.
+     * @param transaction current transaction.
+     * @throws Exception any error, all changes will be rolled back.
+     */
+    void execute(VocabularyTransaction transaction) throws Exception;
+}
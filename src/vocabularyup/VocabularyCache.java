@@ -0,0 +1,400 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import vocabularyup.exception.VocabularyModelException;
+import vocabularyup.exception.VocabularyNotFoundException;
+import vocabularyup.model.xml.Vocabulary;
+
+/**
+ * Registry of known vocabularies that keeps only recently used of them in memory.<br/>
+ * Size of loaded vocabulary is estimated by {@link Vocabulary#estimateHeapSize()},
+ * estimates are refreshed by each check because vocabularies grow while they
+ * are used. When estimated size of all loaded vocabularies exceeds budget, the least recently used
+ * vocabularies are dropped: changed ratings are flushed and changed vocabulary
+ * is saved before. Dropped vocabulary is loaded again by the next {@link #get(String)}.<br/>
+ * Pinned vocabularies (e.g. current vocabulary of UI) and the most recently used
+ * vocabulary are never dropped, so the budget may be exceeded by them.
+ * Callers shouldn't keep vocabulary after operation, they should get it by name again:
+ * dropped vocabulary is detached (see {@link Vocabulary#detach()}), so changing or
+ * saving it fails instead of overwriting file of vocabulary loaded again.<br/>
+ * All methods are thread-safe.
+ * @author dooman
+ */
+public class VocabularyCache {
+    private static final Logger log = Logger.getLogger(VocabularyCache.class.getName());
+
+    /** System property with budget in megabytes. */
+    public static final String BUDGET_PROPERTY = "vocabularyup.cache.budget";
+    /** Estimated size of vocabulary without articles. */
+    private static final long MIN_VOCABULARY_SIZE = 16 * 1024;
+
+    /**
+     * Decides which loaded vocabularies can't be dropped now.
+     */
+    public interface PinPolicy {
+        boolean isPinned(Vocabulary vocabulary);
+    }
+
+    private static class Entry {
+        Vocabulary vocabulary;
+        FutureTask<Vocabulary> loading;
+        long size;
+        /** Incremented on each access, so eviction sees if vocabulary was used while flushing. */
+        long accesses;
+        boolean evicting;
+    }
+
+    private final long budget;
+    private final PinPolicy pinPolicy;
+    /** All known vocabularies in access order, the least recently used first. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    /** The same entries, lookup in this map doesn't change access order. */
+    private final Map<String, Entry> index = new HashMap<String, Entry>();
+    private long residentSize;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long flushes;
+
+    /**
+     * Create cache with budget from {@link #BUDGET_PROPERTY} or a half of maximum heap.
+     * @param pinPolicy pinned vocabularies.
+     */
+    public VocabularyCache(PinPolicy pinPolicy) {
+        this(getConfiguredBudget(), pinPolicy);
+    }
+
+    /**
+     * @param budget maximum estimated size of loaded vocabularies in bytes.
+     * @param pinPolicy pinned vocabularies.
+     */
+    public VocabularyCache(long budget, PinPolicy pinPolicy) {
+        this.budget = budget;
+        this.pinPolicy = pinPolicy;
+    }
+
+    static long getConfiguredBudget() {
+        String value = System.getProperty(BUDGET_PROPERTY);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim()) * 1024 * 1024;
+            } catch (NumberFormatException e) {
+                log.warning("Wrong value of " + BUDGET_PROPERTY + " [" + value + "], default budget is used");
+            }
+        }
+        return Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    /**
+     * Add loaded vocabulary, e.g. new or loaded at start.
+     * Vocabularies over budget are dropped.
+     * @param vocabulary loaded vocabulary.
+     * @return {@code false} if vocabulary with the same name is already known,
+     *   in this case cache isn't changed.
+     */
+    public boolean add(Vocabulary vocabulary) {
+        synchronized (this) {
+            if (index.containsKey(vocabulary.getName())) {
+                return false;
+            }
+            Entry entry = new Entry();
+            entries.put(vocabulary.getName(), entry);
+            index.put(vocabulary.getName(), entry);
+            setLoaded(entry, vocabulary);
+        }
+        evictOverBudget();
+        return true;
+    }
+
+    /**
+     * Is vocabulary known, loaded or not.
+     * @param vocabularyName name of vocabulary.
+     * @return {@code true} if vocabulary was added to cache.
+     */
+    public synchronized boolean contains(String vocabularyName) {
+        return index.containsKey(vocabularyName);
+    }
+
+    /**
+     * @return names of all known vocabularies, the least recently used first.
+     */
+    public synchronized List<String> getNames() {
+        return new ArrayList<String>(entries.keySet());
+    }
+
+    /**
+     * Return vocabulary if it's in memory, access order isn't changed.
+     * @param vocabularyName name of vocabulary.
+     * @return loaded vocabulary or {@code null} if vocabulary is unknown or dropped.
+     */
+    public synchronized Vocabulary getLoaded(String vocabularyName) {
+        Entry entry = index.get(vocabularyName);
+        return entry == null ? null : entry.vocabulary;
+    }
+
+    /**
+     * Return vocabulary, dropped vocabulary is loaded from file.
+     * Concurrent calls for the same vocabulary load it once.
+     * @param vocabularyName name of vocabulary.
+     * @return loaded vocabulary.
+     * @throws VocabularyNotFoundException if vocabulary is unknown or can't be loaded.
+     */
+    public Vocabulary get(final String vocabularyName) throws VocabularyNotFoundException {
+        Entry entry;
+        FutureTask<Vocabulary> task;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(vocabularyName);
+            if (entry == null) {
+                throw new VocabularyNotFoundException(vocabularyName);
+            }
+            entry.accesses++;
+            if (entry.vocabulary != null) {
+                hits++;
+                return entry.vocabulary;
+            }
+            misses++;
+            if (entry.loading == null) {
+                entry.loading = new FutureTask<Vocabulary>(new Callable<Vocabulary>() {
+                    @Override
+                    public Vocabulary call() throws Exception {
+                        return Vocabulary.loadVocabulary(AppEnvironment.getVocabularyFile(vocabularyName));
+                    }
+                });
+                owner = true;
+            }
+            task = entry.loading;
+        }
+        if (owner) {
+            long start = System.currentTimeMillis();
+            task.run();
+            log.info("Vocabulary [" + vocabularyName + "] is loaded again in ["
+                    + (System.currentTimeMillis() - start) + "] ms");
+        }
+        Vocabulary vocabulary;
+        try {
+            vocabulary = task.get();
+        } catch (ExecutionException e) {
+            synchronized (this) {
+                if (entry.loading == task) {
+                    entry.loading = null;
+                }
+            }
+            throw new VocabularyNotFoundException(vocabularyName, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VocabularyNotFoundException(vocabularyName, e);
+        }
+        if (owner) {
+            synchronized (this) {
+                entry.loading = null;
+                setLoaded(entry, vocabulary);
+            }
+            evictOverBudget();
+        }
+        return vocabulary;
+    }
+
+    /**
+     * Drop the least recently used vocabularies until estimated size fits budget.
+     * @return number of dropped vocabularies.
+     */
+    public int evictOverBudget() {
+        int evicted = 0;
+        while (true) {
+            String name = null;
+            Entry victim = null;
+            long accesses;
+            synchronized (this) {
+                refreshSizes();
+                if (residentSize <= budget) {
+                    break;
+                }
+                Entry newest = null;
+                for (Entry e : entries.values()) {
+                    if (e.vocabulary != null) {
+                        newest = e;
+                    }
+                }
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    Entry candidate = e.getValue();
+                    if (candidate.vocabulary != null && candidate != newest && !candidate.evicting
+                            && !pinPolicy.isPinned(candidate.vocabulary)) {
+                        name = e.getKey();
+                        victim = candidate;
+                        break;
+                    }
+                }
+                if (victim == null) {
+                    break;
+                }
+                victim.evicting = true;
+                accesses = victim.accesses;
+            }
+            Vocabulary vocabulary = victim.vocabulary;
+            boolean flushed = false;
+            try {
+                //ratings are written to articles, so they are checked by isDirty() and saved
+                vocabulary.flushRatings();
+                if (vocabulary.isDirty()) {
+                    vocabulary.save();
+                    flushed = true;
+                }
+            } catch (VocabularyModelException e) {
+                log.log(Level.SEVERE, "Vocabulary [" + name + "] isn't dropped, it can't be saved", e);
+                synchronized (this) {
+                    victim.evicting = false;
+                }
+                break;
+            }
+            synchronized (this) {
+                victim.evicting = false;
+                if (flushed) {
+                    flushes++;
+                }
+                //vocabulary that was used or changed while saving stays in memory till the next check
+                if (victim.vocabulary != vocabulary || victim.accesses != accesses || !vocabulary.detach()) {
+                    break;
+                }
+                victim.vocabulary = null;
+                residentSize -= victim.size;
+                evictions++;
+                evicted++;
+                log.info("Vocabulary [" + name + "] is dropped from memory, " + this);
+            }
+        }
+        return evicted;
+    }
+
+    private void setLoaded(Entry entry, Vocabulary vocabulary) {
+        entry.vocabulary = vocabulary;
+        entry.size = MIN_VOCABULARY_SIZE + vocabulary.estimateHeapSize();
+        residentSize += entry.size;
+    }
+
+    private void refreshSizes() {
+        for (Entry e : entries.values()) {
+            if (e.vocabulary != null) {
+                long size = MIN_VOCABULARY_SIZE + e.vocabulary.estimateHeapSize();
+                residentSize += size - e.size;
+                e.size = size;
+            }
+        }
+    }
+
+    /**
+     * @return maximum estimated size of loaded vocabularies in bytes.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return estimated size of loaded vocabularies in bytes.
+     */
+    public synchronized long getResidentSize() {
+        return residentSize;
+    }
+
+    /**
+     * @return number of shared translates and examples in loaded vocabularies.
+     */
+    public synchronized long getSharedStrings() {
+        long shared = 0;
+        for (Entry e : entries.values()) {
+            if (e.vocabulary != null) {
+                shared += e.vocabulary.getSharedStrings();
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * @return bytes of text saved by sharing equal strings in loaded vocabularies.
+     */
+    public synchronized long getSharedBytes() {
+        long saved = 0;
+        for (Entry e : entries.values()) {
+            if (e.vocabulary != null) {
+                saved += e.vocabulary.getSharedBytes();
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * @return number of vocabularies in memory.
+     */
+    public synchronized int getResidentCount() {
+        int count = 0;
+        for (Entry e : entries.values()) {
+            if (e.vocabulary != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of requests that found vocabulary in memory.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of requests that loaded dropped vocabulary.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of dropped vocabularies.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of vocabularies saved before dropping.
+     */
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "cache: [" + getResidentCount() + "/" + entries.size() + "] vocabularies, ["
+                + residentSize / 1024 + "/" + budget / 1024 + "] KB, hits [" + hits + "], misses ["
+                + misses + "], evictions [" + evictions + "], flushes [" + flushes + "]";
+    }
+}
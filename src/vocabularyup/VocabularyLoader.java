@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.util.text.StringPool;
+
+/**
+ * Loads vocabularies one by one and passes each loaded vocabulary to application.
+ * Application is notified through {@code callbackExecutor}, e.g. in event dispatch thread.
+ * @author dooman
+ */
+class VocabularyLoader implements Runnable {
+    private static final Logger log = Logger.getLogger(VocabularyLoader.class.getName());
+
+    private final VocabularyApp app;
+    private final List<File> files;
+    private final Executor callbackExecutor;
+
+    /**
+     * Create loader.
+     * @param app application that receives loaded vocabularies.
+     * @param files vocabularies files.
+     * @param callbackExecutor executor for application's callbacks.
+     */
+    public VocabularyLoader(VocabularyApp app, List<File> files, Executor callbackExecutor) {
+        this.app = app;
+        this.files = files;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public void run() {
+        final int total = files.size();
+        long start = System.currentTimeMillis();
+        long sharedStrings = 0;
+        long sharedBytes = 0;
+        for (int i = 0; i < total; i++) {
+            final File file = files.get(i);
+            final int loaded = i + 1;
+            Vocabulary voc = null;
+            try {
+                voc = Vocabulary.loadVocabulary(file);
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Error while loading [" + file + "]", e);
+            }
+            if (voc != null) {
+                sharedStrings += voc.getSharedStrings();
+                sharedBytes += voc.getSharedBytes();
+            }
+            final Vocabulary result = voc;
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    app.vocabularyLoaded(VocabularyApp.getVocabularyName(file), result, loaded, total);
+                }
+            });
+        }
+        log.info("Loaded [" + total + "] vocabularies in [" + (System.currentTimeMillis() - start) + "] ms, ["
+                + sharedStrings + "] shared strings saved [" + sharedBytes / 1024 + "] KB of text, "
+                + StringPool.getInstance());
+    }
+}
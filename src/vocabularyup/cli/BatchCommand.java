@@ -0,0 +1,369 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import vocabularyup.AppEnvironment;
+import vocabularyup.exception.VocabularyModelException;
+import vocabularyup.ipc.InstanceClient;
+import vocabularyup.ipc.InstanceListener;
+import vocabularyup.exception.VocabularyNotFoundException;
+import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.ArticleSnapshot;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.model.xml.VocabularySnapshot;
+import vocabularyup.model.xml.VocabularyTransaction;
+import vocabularyup.test.history.AnswerHistory;
+import vocabularyup.test.history.AnswerVisitor;
+
+/**
+ * Commands that work with vocabularies files without UI.<br/>
+ * Each command opens only vocabularies from its arguments. Articles are
+ * exchanged in tab separated text: one article per line, fields are source,
+ * translates and examples, several values in field are separated by {@code ';'}.<br/>
+ * Commands that rewrite vocabularies files refuse to work while application is running.
+ * @author dooman
+ */
+public enum BatchCommand {
+    ADD("<vocabulary> <source> <translates> [examples]",
+            "add article by running application or append it to vocabulary journal, values are separated by ';'") {
+        @Override
+        int run(List<String> args, PrintStream out) throws Exception {
+            checkArgs(args, 3, 4);
+            String name = args.get(0);
+            String source = args.get(1).trim();
+            List<String> translates = split(args.get(2));
+            List<String> examples = args.size() > 3 ? split(args.get(3)) : Collections.<String>emptyList();
+            if (source.length() == 0) {
+                throw new IllegalArgumentException("Source is empty");
+            }
+            if (InstanceClient.send(InstanceListener.ADD_ARTICLE_COMMAND,
+                    Arrays.asList(name, source, joinLines(translates), joinLines(examples)))) {
+                out.println("Added [" + source + "] to [" + name + "] by running application");
+            } else {
+                Vocabulary.appendArticle(name, source, translates, examples);
+                out.println("Appended [" + source + "] to [" + name + "]");
+            }
+            return 0;
+        }
+    },
+
+    IMPORT("<vocabulary> <file>", "add articles from tab separated file, vocabulary is created if needed") {
+        @Override
+        int run(List<String> args, PrintStream out) throws Exception {
+            checkArgs(args, 2, 2);
+            checkNotRunning(this);
+            String name = args.get(0);
+            File file = AppEnvironment.getVocabularyFile(name);
+            Vocabulary vocabulary = file.exists() ? Vocabulary.loadVocabulary(file) : Vocabulary.newVocabulary(name);
+            VocabularyTransaction tx = new VocabularyTransaction();
+            tx.touch(vocabulary);
+            int imported = 0;
+            int skipped = 0;
+            BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args.get(1)), ENCODING));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.trim().length() == 0 || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] fields = line.split("\t", -1);
+                    String source = fields[0].trim();
+                    if (source.length() == 0 || vocabulary.getArticle(source) != null) {
+                        skipped++;
+                        continue;
+                    }
+                    tx.addArticle(vocabulary, source,
+                            fields.length > 1 ? split(fields[1]) : Collections.<String>emptyList(),
+                            fields.length > 2 ? split(fields[2]) : Collections.<String>emptyList());
+                    imported++;
+                }
+            } catch (Exception e) {
+                tx.rollback();
+                throw e;
+            } finally {
+                in.close();
+            }
+            tx.commit();
+            out.println("Imported [" + imported + "] articles to [" + name + "], skipped [" + skipped + "]");
+            return 0;
+        }
+    },
+
+    EXPORT("<vocabulary> [file]", "write articles as tab separated text to file or standard output") {
+        @Override
+        int run(List<String> args, PrintStream out) throws Exception {
+            checkArgs(args, 1, 2);
+            VocabularySnapshot snapshot = open(args.get(0)).snapshot();
+            PrintWriter writer = args.size() > 1
+                    ? new PrintWriter(new OutputStreamWriter(new FileOutputStream(args.get(1)), ENCODING))
+                    : new PrintWriter(new OutputStreamWriter(out, ENCODING));
+            for (ArticleSnapshot a : snapshot.getArticles()) {
+                writer.print(field(a.getSource()));
+                writer.print('\t');
+                writer.print(join(a.getTranslates()));
+                writer.print('\t');
+                writer.print(join(a.getExamples()));
+                writer.print('\n');
+            }
+            if (args.size() > 1) {
+                writer.close();
+                out.println("Exported [" + snapshot.size() + "] articles to " + args.get(1));
+            } else {
+                writer.flush();
+            }
+            return 0;
+        }
+    },
+
+    STATS("[vocabulary...]", "show size, due words, ratings and answers of vocabularies, all by default") {
+        @Override
+        int run(List<String> args, PrintStream out) throws Exception {
+            long now = System.currentTimeMillis();
+            out.println("vocabulary\tarticles\ttestable\tdue\tavg rating\tanswers\taccuracy");
+            for (String name : args.isEmpty() ? allVocabularies() : args) {
+                VocabularySnapshot snapshot = open(name).snapshot();
+                int testable = 0;
+                int due = 0;
+                long ratings = 0;
+                for (ArticleSnapshot a : snapshot.getArticles()) {
+                    ratings += a.getRatingValue();
+                    if (a.isTestable()) {
+                        testable++;
+                        if (a.getSchedule().isDue(now)) {
+                            due++;
+                        }
+                    }
+                }
+                final long[] answers = new long[2];
+                AnswerHistory.forVocabulary(name).read(new AnswerVisitor() {
+                    @Override
+                    public void visit(int articleId, long time, boolean right, int responseMillis) {
+                        answers[0]++;
+                        if (right) {
+                            answers[1]++;
+                        }
+                    }
+                });
+                out.println(String.format("%s\t%d\t%d\t%d\t%.2f\t%d\t%s", name, snapshot.size(), testable, due,
+                        snapshot.size() == 0 ? 0.0 : (double) ratings / snapshot.size(), answers[0],
+                        answers[0] == 0 ? "-" : String.format("%.1f%%", answers[1] * 100.0 / answers[0])));
+            }
+            return 0;
+        }
+    },
+
+    SEARCH("<vocabulary> <prefix> [limit]", "print articles which sources start with prefix") {
+        @Override
+        int run(List<String> args, PrintStream out) throws Exception {
+            checkArgs(args, 2, 3);
+            int limit = args.size() > 2 ? Integer.parseInt(args.get(2)) : 20;
+            List<Article> found = open(args.get(0)).findArticles(args.get(1));
+            for (int i = 0; i < found.size() && i < limit; i++) {
+                ArticleSnapshot a = found.get(i).snapshot();
+                out.println(a.getSource() + "\t" + join(a.getTranslates()));
+            }
+            if (found.size() > limit) {
+                out.println("... [" + (found.size() - limit) + "] more");
+            }
+            return 0;
+        }
+    },
+
+    COMPACT("[vocabulary...]", "merge journals of ratings and new articles into vocabularies files, all by default") {
+        @Override
+        int run(List<String> args, PrintStream out) throws Exception {
+            checkNotRunning(this);
+            for (String name : args.isEmpty() ? allVocabularies() : args) {
+                File ratings = Vocabulary.journalFile(name);
+                File added = Vocabulary.addedArticlesFile(name);
+                if (ratings.length() == 0 && added.length() == 0) {
+                    continue;
+                }
+                long length = ratings.length() + added.length();
+                open(name).save();
+                out.println("Merged [" + length + "] bytes of journals into [" + name + "]");
+            }
+            return 0;
+        }
+    },
+
+    PACK("[vocabulary...]", "convert vocabularies to packed files that are mapped to memory, all by default") {
+        @Override
+        int run(List<String> args, PrintStream out) throws Exception {
+            checkNotRunning(this);
+            return convert(args, true, out);
+        }
+    },
+
+    UNPACK("[vocabulary...]", "convert packed vocabularies back to XML, all by default") {
+        @Override
+        int run(List<String> args, PrintStream out) throws Exception {
+            checkNotRunning(this);
+            return convert(args, false, out);
+        }
+    };
+
+    static final String ENCODING = "UTF-8";
+
+    private final String arguments;
+    private final String description;
+
+    private BatchCommand(String arguments, String description) {
+        this.arguments = arguments;
+        this.description = description;
+    }
+
+    /**
+     * Execute command.
+     * @param args arguments after command name.
+     * @param out output for results.
+     * @return exit status.
+     * @throws IllegalArgumentException if arguments are wrong.
+     * @throws Exception error while executing command.
+     */
+    abstract int run(List<String> args, PrintStream out) throws Exception;
+
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    public String getUsage() {
+        return getName() + " " + arguments + "\n\t" + description;
+    }
+
+    /**
+     * Find command by name.
+     * @param name name of command from command line.
+     * @return command or {@code null} if it isn't batch command.
+     */
+    public static BatchCommand forName(String name) {
+        for (BatchCommand c : values()) {
+            if (c.getName().equals(name)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Commands that rewrite vocabularies files don't work beside running application,
+     * it would overwrite their changes by the next save or replace the file it has loaded.
+     * @throws IllegalStateException if application is running.
+     */
+    private static void checkNotRunning(BatchCommand command) throws IOException {
+        if (InstanceClient.isRunning()) {
+            throw new IllegalStateException("Application is running, close it before [" + command.getName() + "]");
+        }
+    }
+
+    private static void checkArgs(List<String> args, int min, int max) {
+        if (args.size() < min || args.size() > max) {
+            throw new IllegalArgumentException("Wrong number of arguments: " + args.size());
+        }
+    }
+
+    private static Vocabulary open(String name) throws VocabularyNotFoundException, VocabularyModelException {
+        File file = AppEnvironment.getVocabularyFile(name);
+        if (!file.exists()) {
+            throw new VocabularyNotFoundException(name);
+        }
+        return Vocabulary.loadVocabulary(file);
+    }
+
+    private static List<String> allVocabularies() {
+        File[] files = new File(AppEnvironment.APP_HOME_DIR).listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return AppEnvironment.isVocabularyFile(f);
+            }
+        });
+        List<String> names = new ArrayList<String>();
+        if (files != null) {
+            for (File f : files) {
+                String name = AppEnvironment.getVocabularyName(f);
+                if (!names.contains(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static int convert(List<String> args, boolean packed, PrintStream out) throws Exception {
+        for (String name : args.isEmpty() ? allVocabularies() : args) {
+            Vocabulary vocabulary = open(name);
+            if (vocabulary.isPacked() == packed) {
+                continue;
+            }
+            long length = AppEnvironment.getVocabularyFile(name).length();
+            vocabulary.setPacked(packed);
+            out.println("Converted [" + name + "] from [" + length + "] to ["
+                    + AppEnvironment.getVocabularyFile(name, packed).length() + "] bytes");
+        }
+        return 0;
+    }
+
+    private static List<String> split(String field) {
+        List<String> result = new ArrayList<String>();
+        for (String v : field.split(";")) {
+            if (v.trim().length() > 0) {
+                result.add(v.trim());
+            }
+        }
+        return result;
+    }
+
+    private static String joinLines(List<String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (String v : values) {
+            sb.append(v).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (String v : values) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(field(v).replace(';', ','));
+        }
+        return sb.toString();
+    }
+
+    private static String field(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.cli;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import vocabularyup.AppEnvironment;
+import vocabularyup.VocabularyApp;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.util.text.StringPool;
+
+/**
+ * Entry point of application.<br/>
+ * Batch commands (see {@link BatchCommand}) and {@code --addArticle} with
+ * article in arguments are executed without loading Swing and AWT, other
+ * arguments start {@link VocabularyApp}. After batch
+ * command wall time, peak heap usage, text saved by shared strings of
+ * vocabularies and memory saved by {@link StringPool} are printed to standard error.
+ * @author dooman
+ */
+public final class Launcher {
+    private static final Logger log = Logger.getLogger(Launcher.class.getName());
+
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final String HELP_COMMAND = "help";
+
+    private Launcher() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals(HELP_COMMAND)) {
+            System.out.println("Commands:");
+            for (BatchCommand c : BatchCommand.values()) {
+                System.out.println(c.getUsage());
+            }
+            return;
+        }
+        BatchCommand command = args.length > 0 ? BatchCommand.forName(args[0]) : null;
+        if (args.length > 1 && args[0].equals(VocabularyApp.ADD_ARTICLE_APP_OPTION)) {
+            //quick add from command line, without arguments dialog is shown
+            command = BatchCommand.ADD;
+        }
+        if (command == null) {
+            VocabularyApp.main(args);
+            return;
+        }
+        System.exit(run(command, Arrays.asList(args).subList(1, args.length)));
+    }
+
+    /**
+     * Execute batch command and print its wall time and peak heap.
+     * @return exit status.
+     */
+    static int run(BatchCommand command, List<String> args) {
+        long start = System.nanoTime();
+        AppEnvironment.configureLog(false);
+        //only warnings are interesting for scripts
+        Logger.getLogger("").setLevel(Level.WARNING);
+        int status;
+        try {
+            //results are written in the same encoding as exported files
+            PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), false, BatchCommand.ENCODING);
+            try {
+                AppEnvironment.createHomeDir();
+                status = command.run(args, out);
+            } finally {
+                out.flush();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: " + command.getUsage());
+            status = EXIT_USAGE;
+        } catch (Exception e) {
+            log.log(Level.FINE, "Command [" + command.getName() + "] failed", e);
+            System.err.println("Error: " + e);
+            status = EXIT_ERROR;
+        }
+        StringPool strings = StringPool.getInstance();
+        System.err.println(String.format("[%s] %d ms, peak heap %d KB, %d shared strings saved %d KB of text,"
+                + " pooled strings saved %d KB of %d", command.getName(), (System.nanoTime() - start) / 1000000,
+                peakHeapUsage() / 1024, Vocabulary.getLoadedSharedStrings(), Vocabulary.getLoadedSharedBytes() / 1024,
+                strings.getSavedBytes() / 1024, strings.getLookups()));
+        return status;
+    }
+
+    private static long peakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -15,22 +15,15 @@
  *  under the License.
  */
 
-package vocabularyup.util.dom;
 
-import org.w3c.dom.Element;
+package vocabularyup.exception;
 
 /**
- * Helper to work with DOM.
- * @author Pokidov.Dmitry
+ * Throws, when test session is already ended, expired or never existed.
+ * @author dooman
  */
-public class DomHelper {
-    /**
-     * Remove all childs element from {@code el}
-     * @param el element that contains unnecessary children.
-     */
-    public static void removeChildren(Element el) {
-        while (el.getChildNodes().getLength() > 0) {
-            el.removeChild(el.getChildNodes().item(0));
-        }
+public class TestSessionNotFoundException extends Exception {
+    public TestSessionNotFoundException(long sessionId) {
+        super("Test session [" + sessionId + "] not found");
     }
 }
@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.ipc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import vocabularyup.AppEnvironment;
+
+/**
+ * Sends commands to running instance of application, see {@link InstanceListener}.
+ * @author dooman
+ */
+public final class InstanceClient {
+    private static final Logger log = Logger.getLogger(InstanceClient.class.getName());
+
+    private static final int CONNECT_TIMEOUT = 1000;
+    private static final int READ_TIMEOUT = 30000;
+
+    /**
+     * Content of port file.
+     */
+    static final class Address {
+        final int port;
+        final String token;
+
+        Address(int port, String token) {
+            this.port = port;
+            this.token = token;
+        }
+    }
+
+    private InstanceClient() {
+    }
+
+    /**
+     * Send command to running instance.
+     * @param command name of command.
+     * @param args arguments of command.
+     * @return {@code true} if command is executed, {@code false} if there isn't running instance
+     *   or it's closing.
+     * @throws IOException if instance failed to execute command or connection is broken.
+     */
+    public static boolean send(String command, List<String> args) throws IOException {
+        String response = request(command, args);
+        if (response == null) {
+            return false;
+        }
+        if (InstanceListener.OK.equals(response)) {
+            return true;
+        }
+        if (InstanceListener.CLOSED.equals(response)) {
+            log.fine("Running instance is closing");
+            return false;
+        }
+        throw new IOException(response.substring(Math.min(response.length(), InstanceListener.ERROR.length() + 1)));
+    }
+
+    /**
+     * Check that other instance works with application directory. Instance that is
+     * closing is running too, it still may save its vocabularies.
+     * @return {@code true} if instance answers.
+     * @throws IOException if connection is broken.
+     */
+    public static boolean isRunning() throws IOException {
+        String response = request(InstanceListener.PING_COMMAND, Collections.<String>emptyList());
+        return InstanceListener.OK.equals(response) || InstanceListener.CLOSED.equals(response);
+    }
+
+    /**
+     * @return response line or {@code null} if there isn't running instance.
+     */
+    private static String request(String command, List<String> args) throws IOException {
+        Address address = readPortFile(new File(AppEnvironment.APP_HOME_DIR, InstanceListener.PORT_FILE_NAME));
+        if (address == null) {
+            return null;
+        }
+        Socket socket = new Socket();
+        try {
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), address.port), CONNECT_TIMEOUT);
+            } catch (ConnectException e) {
+                //port file of crashed instance
+                log.log(Level.FINE, "No instance on port [" + address.port + "]", e);
+                return null;
+            }
+            socket.setSoTimeout(READ_TIMEOUT);
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), InstanceListener.ENCODING);
+            StringBuilder request = new StringBuilder();
+            request.append(address.token).append('\n');
+            request.append(command).append('\n');
+            request.append(args.size()).append('\n');
+            for (String arg : args) {
+                request.append(URLEncoder.encode(arg, InstanceListener.ENCODING)).append('\n');
+            }
+            out.write(request.toString());
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), InstanceListener.ENCODING));
+            String response = in.readLine();
+            if (response == null) {
+                throw new IOException("Running instance closed connection");
+            }
+            return response;
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * @return address from port file or {@code null} if file doesn't exist or is malformed.
+     */
+    static Address readPortFile(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), InstanceListener.ENCODING));
+            try {
+                String[] parts = String.valueOf(in.readLine()).trim().split(" ");
+                return parts.length == 2 ? new Address(Integer.parseInt(parts[0]), parts[1]) : null;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            log.log(Level.FINE, "Cann't read " + file, e);
+            return null;
+        } catch (NumberFormatException e) {
+            log.log(Level.FINE, "Malformed " + file, e);
+            return null;
+        }
+    }
+}
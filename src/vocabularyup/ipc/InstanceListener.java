@@ -0,0 +1,267 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.ipc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import vocabularyup.AppEnvironment;
+
+/**
+ * Listener of commands from other processes of application, it makes running
+ * application the single instance: later processes forward their work to it
+ * by {@link InstanceClient} and exit.<br/>
+ * Listener accepts connections on loopback interface, its port and random
+ * token are written to {@link #PORT_FILE_NAME} in application directory.
+ * Request is token line, command line, number of arguments and url-encoded
+ * arguments one per line. Response is {@code OK}, {@code ERROR message} or
+ * {@code CLOSED} if listener is closed before command is executed, client
+ * executes command itself then.
+ * @author dooman
+ */
+public class InstanceListener {
+    private static final Logger log = Logger.getLogger(InstanceListener.class.getName());
+
+    public static final String PORT_FILE_NAME = "instance.port";
+    /** Add article, arguments are vocabulary, source, translates and optional examples, values are separated by new line. */
+    public static final String ADD_ARTICLE_COMMAND = "ADD_ARTICLE";
+    /** Show dialog for adding article. */
+    public static final String SHOW_ADD_DIALOG_COMMAND = "SHOW_ADD_DIALOG";
+    /** Bring main window to front. */
+    public static final String ACTIVATE_COMMAND = "ACTIVATE";
+    /** Check that instance is running, it's answered by listener without handler. */
+    public static final String PING_COMMAND = "PING";
+
+    static final String OK = "OK";
+    static final String ERROR = "ERROR";
+    static final String CLOSED = "CLOSED";
+    static final String ENCODING = "UTF-8";
+    static final int MAX_ARGUMENTS = 64;
+    private static final int READ_TIMEOUT = 5000;
+
+    /**
+     * Executes commands of other processes.
+     */
+    public interface Handler {
+        /**
+         * Execute command.
+         * @param command name of command.
+         * @param args arguments of command.
+         * @throws Exception any error, its message is sent to client.
+         */
+        void handle(String command, List<String> args) throws Exception;
+    }
+
+    private final Handler handler;
+    private final ServerSocket serverSocket;
+    private final String token;
+    private final File portFile;
+    private volatile Thread acceptThread;
+    private volatile boolean closed = false;
+
+    private InstanceListener(Handler handler, ServerSocket serverSocket, String token, File portFile) {
+        this.handler = handler;
+        this.serverSocket = serverSocket;
+        this.token = token;
+        this.portFile = portFile;
+    }
+
+    /**
+     * Start listening and publish port file.
+     * @param handler executes received commands one by one.
+     * @return started listener.
+     * @throws IOException if socket or port file can't be created.
+     */
+    public static InstanceListener start(Handler handler) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0, 16, InetAddress.getByName("127.0.0.1"));
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder token = new StringBuilder();
+        for (byte b : random) {
+            token.append(Integer.toHexString((b & 0xFF) | 0x100).substring(1));
+        }
+        File portFile = new File(AppEnvironment.APP_HOME_DIR, PORT_FILE_NAME);
+        writePortFile(portFile, serverSocket.getLocalPort(), token.toString());
+
+        final InstanceListener listener = new InstanceListener(handler, serverSocket, token.toString(), portFile);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                listener.acceptLoop();
+            }
+        }, "instance-listener");
+        thread.setDaemon(true);
+        listener.acceptThread = thread;
+        thread.start();
+        log.info("Listen for other instances on port [" + serverSocket.getLocalPort() + "]");
+        return listener;
+    }
+
+    /**
+     * File is written to temporary file and renamed, so clients never read half-written file.
+     * Only owner may read the file, token protects listener from other users.
+     */
+    private static void writePortFile(File portFile, int port, String token) throws IOException {
+        File tmp = new File(portFile.getPath() + ".tmp");
+        tmp.delete();
+        if (!tmp.createNewFile()) {
+            throw new IOException("Cann't create " + tmp);
+        }
+        if (!(tmp.setReadable(false, false) && tmp.setReadable(true, true)
+                && tmp.setWritable(false, false) && tmp.setWritable(true, true))) {
+            log.warning("Cann't restrict access to " + portFile + " to owner");
+        }
+        Writer out = new OutputStreamWriter(new FileOutputStream(tmp), ENCODING);
+        try {
+            out.write(port + " " + token + "\n");
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(portFile)) {
+            portFile.delete();
+            if (!tmp.renameTo(portFile)) {
+                throw new IOException("Cann't create " + portFile);
+            }
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stop listening and remove port file if it wasn't replaced by other instance.
+     * Waits while accepted connection is processed, but not longer than read
+     * timeout, so it doesn't hang if command waits for the caller.
+     */
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.log(Level.FINE, "Error closing instance listener", e);
+        }
+        Thread thread = acceptThread;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(READ_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        InstanceClient.Address address = InstanceClient.readPortFile(portFile);
+        if (address != null && address.token.equals(token)) {
+            portFile.delete();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket = null;
+            try {
+                socket = serverSocket.accept();
+                socket.setSoTimeout(READ_TIMEOUT);
+                process(socket);
+            } catch (SocketException e) {
+                if (!closed) {
+                    log.log(Level.WARNING, "Instance listener error", e);
+                }
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Error processing command of other instance", e);
+            } finally {
+                if (socket != null) {
+                    try {
+                        socket.close();
+                    } catch (IOException e) {
+                        log.log(Level.FINE, "Error closing socket", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void process(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), ENCODING));
+        Writer out = new OutputStreamWriter(socket.getOutputStream(), ENCODING);
+        if (!token.equals(in.readLine())) {
+            log.warning("Command with wrong token is ignored");
+            out.write(ERROR + " wrong token\n");
+            out.flush();
+            return;
+        }
+        String command = in.readLine();
+        String countLine = in.readLine();
+        int count;
+        try {
+            count = Integer.parseInt(countLine);
+        } catch (NumberFormatException e) {
+            count = -1;
+        }
+        if (command == null || count < 0 || count > MAX_ARGUMENTS) {
+            out.write(ERROR + " malformed request\n");
+            out.flush();
+            return;
+        }
+        List<String> args = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            String line = in.readLine();
+            if (line == null) {
+                out.write(ERROR + " malformed request\n");
+                out.flush();
+                return;
+            }
+            args.add(URLDecoder.decode(line, ENCODING));
+        }
+        if (closed) {
+            log.fine("Command [" + command + "] is received after closing, client executes it");
+            out.write(CLOSED + "\n");
+            out.flush();
+            return;
+        }
+        log.fine("Command [" + command + "] from other instance");
+        if (command.equals(PING_COMMAND)) {
+            out.write(OK + "\n");
+            out.flush();
+            return;
+        }
+        try {
+            handler.handle(command, args);
+            out.write(OK + "\n");
+        } catch (Exception e) {
+            log.log(Level.INFO, "Command [" + command + "] failed", e);
+            String message = String.valueOf(e.getMessage()).replace('\n', ' ');
+            out.write(ERROR + " " + message + "\n");
+        }
+        out.flush();
+    }
+}
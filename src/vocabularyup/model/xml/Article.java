@@ -18,142 +18,149 @@
 package vocabularyup.model.xml;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import vocabularyup.exception.ArticleModelException;
-import vocabularyup.util.dom.DomCheckHelper;
-import vocabularyup.util.dom.DomCheckingException;
-import vocabularyup.util.dom.DomHelper;
+import vocabularyup.util.text.AnswerNormalizer;
 
 /**
- * Class describes word in vocabulary and it's translation.
+ * Class describes word in vocabulary and it's translation.<br/>
+ * Article is a light view of vocabulary's article by id, it has no own state.
+ * Getters read the current {@link VocabularySnapshot} and may be called from
+ * any thread. Modifications are done under write lock of the owner vocabulary
+ * and publish new snapshot.<br/>
+ * Articles with the same vocabulary and id are equal.
  * @author Pokidov.Dmitry
  */
 public class Article {
     private static final Logger log = Logger.getLogger(Article.class.getName());
 
     public static final  String ARTICLE_ELEMENT            = "article";
-    private static final String ARTICAL_SOURCE_ELEMENT     = "source";
-    private static final String ARTICLE_TRANSLATES_ELEMENT = "translates";
-    private static final String ARTICLE_TRANSLATE_ELEMENT  = "translate";
-    private static final String ARTICLE_EXAMPLES_ELEMENT   = "examples";
-    private static final String ARTICLE_EXAMPLE_ELEMENT    = "example";
-    private static final String ARTICLE_RATING_ELEMENT     = "rating";
-
-    private Document document;
-    private Element rootElement;
-    private Element sourceElement;
-    private Element translatesElement;
-    private Element examplesElement;
-    private Element ratingElement;
+    static final String ARTICAL_SOURCE_ELEMENT     = "source";
+    static final String ARTICLE_TRANSLATES_ELEMENT = "translates";
+    static final String ARTICLE_TRANSLATE_ELEMENT  = "translate";
+    static final String ARTICLE_EXAMPLES_ELEMENT   = "examples";
+    static final String ARTICLE_EXAMPLE_ELEMENT    = "example";
+    static final String ARTICLE_RATING_ELEMENT     = "rating";
+    static final String ARTICLE_SCHEDULE_ELEMENT   = "schedule";
+    static final String SCHEDULE_DUE_ATTR          = "due";
+    static final String SCHEDULE_EASE_ATTR         = "ease";
+    static final String SCHEDULE_INTERVAL_ATTR     = "interval";
+    static final String SCHEDULE_REPETITIONS_ATTR  = "repetitions";
+
+    private final Vocabulary owner;
+    private final int id;
 
     /**
-     * Create new article.
-     * @param document DOM document where article should be placed.
-     * @param source source word.
-     * @param translates translates for word.
+     * Create view of article.
+     * @param owner vocabulary that contains article.
+     * @param id index of article in vocabulary.
      */
-    public Article(Document document, String source, List<String> translates) {
-        this.document = document;
-        this.rootElement = document.createElement(ARTICLE_ELEMENT);
-        //translateElements = new ArrayList<Element>();
-        //exampleElements = new ArrayList<Element>();
-        sourceElement = document.createElement(ARTICAL_SOURCE_ELEMENT);
-        sourceElement.setTextContent(source);
-        rootElement.appendChild(sourceElement);
-
-        addTranslates(translates);
-        rootElement.appendChild(translatesElement);
-
-        examplesElement = document.createElement(ARTICLE_EXAMPLES_ELEMENT);
-        rootElement.appendChild(examplesElement);
-
-        ratingElement = document.createElement(ARTICLE_RATING_ELEMENT);
-        rootElement.appendChild(ratingElement);
+    Article(Vocabulary owner, int id) {
+        this.owner = owner;
+        this.id = id;
     }
 
-    private Article(Document document, Element rootElement) throws DomCheckingException {
-        this.document = document;
-        this.rootElement = rootElement;
-
-        //reuired elements
-        this.sourceElement = DomCheckHelper.getElementsByTagName(rootElement, ARTICAL_SOURCE_ELEMENT, 1, true).get(0);
+    /**
+     * Return vocabulary which contains the article.
+     * @return owner vocabulary.
+     */
+    public Vocabulary getVocabulary() {
+        return owner;
+    }
 
-        this.translatesElement = DomCheckHelper.getElementsByTagName(rootElement, ARTICLE_TRANSLATES_ELEMENT, 1, true).get(0);
-        //this.translateElements = DomCheckHelper.getElementsByTagName(translatesElement, ARTICLE_TRANSLATE_ELEMENT, 0, false);
+    /**
+     * Return identifier of article in vocabulary. Identifier doesn't change
+     * while article is in vocabulary.
+     * @return id of article.
+     */
+    public int getId() {
+        return id;
+    }
 
-        //Not required elements
-        try {
-            this.examplesElement = DomCheckHelper.getElementsByTagName(rootElement, ARTICLE_EXAMPLES_ELEMENT, 1, true).get(0);
-            //this.exampleElements = DomCheckHelper.getElementsByTagName(examplesElement, ARTICLE_EXAMPLE_ELEMENT, 0, false);
-        } catch (DomCheckingException e) {
-            log.log(Level.INFO, "No examples in article[" + e.getMessage() + "]");
-        }
+    /**
+     * Return immutable copy of current article state.
+     * @return snapshot of article.
+     */
+    public ArticleSnapshot snapshot() {
+        return owner.snapshot().getArticle(id);
+    }
 
-        try {
-            this.ratingElement = DomCheckHelper.getElementsByTagName(rootElement, ARTICLE_RATING_ELEMENT, 1, true).get(0);
-        } catch (DomCheckingException e) {
-            log.log(Level.INFO, "No rating for article[" + e.getMessage() + "]");
-        }
+    private Lock lockWrite() {
+        Lock lock = owner.getLock().writeLock();
+        lock.lock();
+        return lock;
     }
 
     public String getSource() {
-        return sourceElement.getTextContent();
+        return owner.snapshot().getSource(id);
     }
 
-    public void setSource(String newSource) {
-        if (log.isLoggable(Level.FINE)) {
-            log.fine("Set new source for [" + getSource() + "]: " + newSource);
+    /**
+     * Change source without checking duplicates, called by
+     * {@link Vocabulary#renameArticle(Article, String)} under write lock.
+     * @param newSource new source, other article must not have it.
+     */
+    void setSource(String newSource) {
+        Lock lock = lockWrite();
+        try {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Set new source for [" + getSource() + "]: " + newSource);
+            }
+            owner.articleChanged(snapshot().withSource(newSource));
+        } finally {
+            lock.unlock();
         }
-        sourceElement.setTextContent(newSource);
     }
 
     public void addTranslates(List<String> translates) {
-        for (String t : translates) {
-            addTranslate(t);
+        Lock lock = lockWrite();
+        try {
+            ArticleSnapshot state = snapshot();
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Add new translates for [" + state.getSource() + "]: " + translates);
+            }
+            List<String> newTranslates = new ArrayList<String>(state.getTranslates());
+            newTranslates.addAll(translates);
+            owner.articleChanged(state.withTranslates(newTranslates));
+        } finally {
+            lock.unlock();
         }
     }
 
     public void addTranslate(String translate) {
-        if (translatesElement == null) {
-            translatesElement = document.createElement(ARTICLE_TRANSLATES_ELEMENT);
-        }
-        if (log.isLoggable(Level.FINE)) {
-            log.fine("Add new translate for [" + getSource() + "]: [" + translate + "]");
-        }
-        Element newTranslateEl = document.createElement(ARTICLE_TRANSLATE_ELEMENT);
-        newTranslateEl.setTextContent(translate);
-        translatesElement.appendChild(newTranslateEl);
+        addTranslates(Collections.singletonList(translate));
     }
 
+    /**
+     * Return translates of article.
+     * @return unmodifiable list of not empty translates.
+     */
     public List<String> getTranslates() {
-        List<String> result = new ArrayList<String>();
-        try {
-            List<Element> translatesEl = DomCheckHelper.getElementsByTagName(translatesElement, ARTICLE_TRANSLATE_ELEMENT, 0, false);
-            for (Element el : translatesEl) {
-                String content = el.getTextContent();
-                if (!content.isEmpty()) {
-                    result.add(content);
-                }
-            }
-        } catch (DomCheckingException e) {
-            log.log(Level.WARNING, "No translates in article", e);
-        }
+        return snapshot().getTranslates();
+    }
 
-        return result;
+    /**
+     * Return normalized translates, see {@link AnswerNormalizer}.
+     * @return unmodifiable set of keys.
+     */
+    public Set<String> getAnswerKeys() {
+        return snapshot().getAnswerKeys();
     }
 
     public void setTranslates(List<String> newTranslates) {
-        if (translatesElement != null) {
+        Lock lock = lockWrite();
+        try {
             if (log.isLoggable(Level.FINE)) {
-                log.fine("Remove all translates from [" + getSource() + "]");
+                log.fine("Set translates of [" + getSource() + "]: " + newTranslates);
             }
-            DomHelper.removeChildren(translatesElement);
+            owner.articleChanged(snapshot().withTranslates(newTranslates));
+        } finally {
+            lock.unlock();
         }
-        addTranslates(newTranslates);
     }
 
     /**
@@ -161,15 +168,7 @@ public class Article {
      * @param example example that should be added to this word.
      */
     public void addExample(String example) {
-        if (examplesElement == null) {
-            examplesElement = document.createElement(ARTICLE_EXAMPLES_ELEMENT);
-        }
-        if (log.isLoggable(Level.FINE)) {
-            log.fine("Add new example for word [" + getSource() + "]: [" + example + "]");
-        }
-        Element el = document.createElement(ARTICLE_EXAMPLE_ELEMENT);
-        el.setTextContent(example);
-        examplesElement.appendChild(el);
+        addExamples(Collections.singletonList(example));
     }
 
     /**
@@ -177,75 +176,134 @@ public class Article {
      * @param examples list of examples that will be added.
      */
     public void addExamples(List<String> examples) {
-        for (String e : examples) {
-            addExample(e);
-        }
-    }
-
-    public List<String> getExamples() {
-        List<String> result = new ArrayList<String>();
+        Lock lock = lockWrite();
         try {
-            List<Element> elements = DomCheckHelper.getElementsByTagName(examplesElement, ARTICLE_EXAMPLE_ELEMENT, 0, false);
-
-            for (Element e : elements) {
-                result.add(e.getTextContent());
+            ArticleSnapshot state = snapshot();
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Add new examples for word [" + state.getSource() + "]: " + examples);
             }
-        } catch (DomCheckingException e) {
-            log.log(Level.INFO, "No examples in article", e);
+            List<String> newExamples = new ArrayList<String>(state.getExamples());
+            newExamples.addAll(examples);
+            owner.articleChanged(state.withExamples(newExamples));
+        } finally {
+            lock.unlock();
         }
+    }
 
-        return result;
+    /**
+     * Return examples of article.
+     * @return unmodifiable list of examples.
+     */
+    public List<String> getExamples() {
+        return snapshot().getExamples();
     }
 
     public void setExamples(List<String> newExamples) {
-        if (examplesElement != null) {
+        Lock lock = lockWrite();
+        try {
             if (log.isLoggable(Level.FINE)) {
-                log.fine("Remove all examples from [" + sourceElement.getTextContent() + "]");
+                log.fine("Set examples of [" + getSource() + "]: " + newExamples);
             }
-            DomHelper.removeChildren(examplesElement);
+            owner.articleChanged(snapshot().withExamples(newExamples));
+        } finally {
+            lock.unlock();
         }
-        addExamples(newExamples);
     }
 
     /**
      * Set rating that calculates when test processed.
-     * @param rating new rating for this word.
+     * @param rating new rating for this word, not a number is stored as {@code 0}.
      */
     public void setRating(String rating) {
-        ratingElement.setTextContent(rating);
+        int value = parseRating(rating);
+        Lock lock = lockWrite();
+        try {
+            applyRating(value);
+            owner.getRatingCounters().set(id, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write rating exported from vocabulary's counters.
+     * Called by vocabulary under write lock.
+     * @param value current value of counter.
+     */
+    void applyRating(int value) {
+        ArticleSnapshot state = snapshot();
+        if (value != state.getRatingValue()) {
+            owner.articleChanged(state.withRating(value));
+        }
     }
 
     public String getRating() {
-        String content = ratingElement.getTextContent();
-        return (content == null || content.isEmpty()) ? "0" : content;
+        return String.valueOf(getRatingValue());
     }
 
     /**
-     * Return root DOM element of article..
-     * @return complete DOM representation of current article.
+     * Return rating as number, it's kept as number in vocabulary.
+     * @return rating.
      */
-    public Element buildArticleElement() {
-        return rootElement;
+    public int getRatingValue() {
+        return owner.snapshot().getRatingValue(id);
     }
 
     /**
-     * load article from DOM model.
-     * @param document document for new article.
-     * @param element root element of article.
-     * @return created article.
-     * @throws vocabularyup.exception.ArticleModelException error in element namings or structure.
+     * Article may be used in test only if it has translates.
+     * @return {@code true} if article has translates.
      */
-    public static Article loadArticle(Document document, Element element) throws ArticleModelException {
-        if (!element.getNodeName().equals(ARTICLE_ELEMENT)) {
-            throw new ArticleModelException("Bad element name(" + element.getLocalName() + ", but expected " + ARTICLE_ELEMENT + ")");
+    public boolean isTestable() {
+        return owner.snapshot().isTestable(id);
+    }
+
+    static int parseRating(String rating) {
+        if (rating == null || rating.trim().isEmpty()) {
+            return 0;
         }
         try {
-            return new Article(document, element);
-        } catch(DomCheckingException e) {
-            throw new ArticleModelException("Error building DOM model", e);
+            return Integer.parseInt(rating.trim());
+        } catch (NumberFormatException e) {
+            log.warning("Bad rating [" + rating + "], 0 is used");
+            return 0;
+        }
+    }
+
+    /**
+     * Set spaced repetition state after review.
+     * @param schedule new schedule of article.
+     */
+    public void setSchedule(ReviewSchedule schedule) {
+        Lock lock = lockWrite();
+        try {
+            owner.articleChanged(snapshot().withSchedule(schedule));
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Return spaced repetition state of article.
+     * @return schedule, {@link ReviewSchedule#NEW} if article wasn't reviewed.
+     */
+    public ReviewSchedule getSchedule() {
+        return owner.snapshot().getSchedule(id);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Article)) {
+            return false;
+        }
+        Article other = (Article) obj;
+        return owner == other.owner && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(owner) * 31 + id;
+    }
+
     @Override
     public String toString() {
         return getSource();
@@ -0,0 +1,374 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.model.xml;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import vocabularyup.util.text.StringPool;
+
+/**
+ * Immutable columnar storage of articles in heap.<br/>
+ * Strings of all articles are packed into one UTF-8 byte array, each string is
+ * prefixed by its length in varint format. Article is a range of the reference
+ * column: offset of source, offsets of translates and inverted offsets of examples.
+ * Ratings and review schedules are primitive columns indexed by article id.
+ * Equal short translates and examples are stored once.<br/>
+ * So article costs its text and about 40 bytes of columns, objects are created
+ * only when article is read by {@link #getArticle(Vocabulary, int)}.<br/>
+ * The same columns are written to packed vocabulary file, see {@link PackedArticleStore}.
+ * @author dooman
+ */
+final class ArticleColumns implements ArticleStore {
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final ArticleColumns EMPTY = new Builder().build();
+
+    private final byte[] text;
+    private final int[] refs;
+    /** References of article {@code id} are {@code refs[firstRef[id]..firstRef[id + 1])}. */
+    private final int[] firstRef;
+    private final int[] ratings;
+    private final long[] due;
+    private final int[] ease;
+    private final int[] intervals;
+    private final int[] repetitions;
+    private final int duplicates;
+    private final long sharedBytes;
+
+    private ArticleColumns(Builder builder) {
+        int size = builder.size;
+        this.text = Arrays.copyOf(builder.text, builder.textSize);
+        this.refs = Arrays.copyOf(builder.refs, builder.refCount);
+        this.firstRef = Arrays.copyOf(builder.firstRef, size + 1);
+        this.firstRef[size] = builder.refCount;
+        this.ratings = Arrays.copyOf(builder.ratings, size);
+        this.due = Arrays.copyOf(builder.due, size);
+        this.ease = Arrays.copyOf(builder.ease, size);
+        this.intervals = Arrays.copyOf(builder.intervals, size);
+        this.repetitions = Arrays.copyOf(builder.repetitions, size);
+        this.duplicates = builder.duplicates;
+        this.sharedBytes = builder.sharedBytes;
+    }
+
+    @Override
+    public int size() {
+        return ratings.length;
+    }
+
+    @Override
+    public ArticleSnapshot getArticle(Vocabulary vocabulary, int id) {
+        int from = firstRef[id];
+        int to = firstRef[id + 1];
+        List<String> translates = new ArrayList<String>(to - from - 1);
+        List<String> examples = Collections.emptyList();
+        for (int r = from + 1; r < to; r++) {
+            if (refs[r] >= 0) {
+                translates.add(decode(refs[r]));
+            } else {
+                if (examples.isEmpty()) {
+                    examples = new ArrayList<String>(to - r);
+                }
+                examples.add(decode(~refs[r]));
+            }
+        }
+        return new ArticleSnapshot(vocabulary, id, decode(refs[from]), Collections.unmodifiableList(translates),
+                Collections.unmodifiableList(examples), ratings[id], getSchedule(id));
+    }
+
+    @Override
+    public String getSource(int id) {
+        return decode(refs[firstRef[id]]);
+    }
+
+    @Override
+    public int getRatingValue(int id) {
+        return ratings[id];
+    }
+
+    @Override
+    public long getDue(int id) {
+        return due[id];
+    }
+
+    @Override
+    public boolean isTestable(int id) {
+        int r = firstRef[id] + 1;
+        return r < firstRef[id + 1] && refs[r] >= 0;
+    }
+
+    @Override
+    public ReviewSchedule getSchedule(int id) {
+        if (due[id] == 0 && repetitions[id] == 0 && intervals[id] == 0 && ease[id] == ReviewSchedule.DEFAULT_EASE) {
+            return ReviewSchedule.NEW;
+        }
+        return new ReviewSchedule(due[id], ease[id], intervals[id], repetitions[id]);
+    }
+
+    @Override
+    public IntBuffer getSourceOrder() {
+        return null;
+    }
+
+    @Override
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    @Override
+    public long getSharedBytes() {
+        return sharedBytes;
+    }
+
+    @Override
+    public long getTextSize() {
+        return text.length;
+    }
+
+    int getRefCount() {
+        return refs.length;
+    }
+
+    /**
+     * Write columns in order that is read by {@link PackedArticleStore}.
+     * @param out destination.
+     * @throws IOException error writing.
+     */
+    void write(PackedArticleStore.Output out) throws IOException {
+        out.writeInts(firstRef);
+        out.writeInts(refs);
+        out.writeInts(ratings);
+        out.writeLongs(due);
+        out.writeInts(ease);
+        out.writeInts(intervals);
+        out.writeInts(repetitions);
+    }
+
+    /**
+     * @return packed text.
+     */
+    byte[] getText() {
+        return text;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 10 * 16 + text.length + 4L * (refs.length + firstRef.length + ratings.length
+                + ease.length + intervals.length + repetitions.length) + 8L * due.length;
+    }
+
+    private String decode(int offset) {
+        return new String(text, lengthEnd(text, offset), readLength(text, offset), UTF8);
+    }
+
+    private static int readLength(byte[] text, int offset) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = text[offset++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return length;
+    }
+
+    private static int lengthEnd(byte[] text, int offset) {
+        while (text[offset] < 0) {
+            offset++;
+        }
+        return offset + 1;
+    }
+
+    /**
+     * Collects articles and packs them to columns.
+     * Builder isn't thread-safe.
+     */
+    static final class Builder {
+        private byte[] text = new byte[1024];
+        private int textSize;
+        private int[] refs = new int[256];
+        private int refCount;
+        private int[] firstRef = new int[65];
+        private int[] ratings = new int[64];
+        private long[] due = new long[64];
+        private int[] ease = new int[64];
+        private int[] intervals = new int[64];
+        private int[] repetitions = new int[64];
+        private int size;
+        /** Open addressing table of offsets of short strings plus one, {@code 0} is free slot. */
+        private int[] shortStrings = new int[256];
+        private int shortCount;
+        private int duplicates;
+        private long sharedBytes;
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Add article with the next id.
+         * @param source source word.
+         * @param translates not empty translates.
+         * @param examples examples.
+         * @param rating rating of article.
+         * @param schedule review schedule of article.
+         * @return this builder.
+         */
+        Builder add(String source, List<String> translates, List<String> examples, int rating, ReviewSchedule schedule) {
+            if (size == ratings.length) {
+                int capacity = size * 2;
+                firstRef = Arrays.copyOf(firstRef, capacity + 1);
+                ratings = Arrays.copyOf(ratings, capacity);
+                due = Arrays.copyOf(due, capacity);
+                ease = Arrays.copyOf(ease, capacity);
+                intervals = Arrays.copyOf(intervals, capacity);
+                repetitions = Arrays.copyOf(repetitions, capacity);
+            }
+            firstRef[size] = refCount;
+            addRef(append(source.getBytes(UTF8)));
+            for (String t : translates) {
+                addRef(store(t));
+            }
+            for (String e : examples) {
+                addRef(~store(e));
+            }
+            ratings[size] = rating;
+            due[size] = schedule.getDue();
+            ease[size] = schedule.getEase();
+            intervals[size] = schedule.getInterval();
+            repetitions[size] = schedule.getRepetitions();
+            size++;
+            return this;
+        }
+
+        /**
+         * Add article with the next id, id of snapshot isn't used.
+         * @param article state of article.
+         * @return this builder.
+         */
+        Builder add(ArticleSnapshot article) {
+            return add(article.getSource(), article.getTranslates(), article.getExamples(),
+                    article.getRatingValue(), article.getSchedule());
+        }
+
+        ArticleColumns build() {
+            shortStrings = null;
+            return new ArticleColumns(this);
+        }
+
+        private void addRef(int ref) {
+            if (refCount == refs.length) {
+                refs = Arrays.copyOf(refs, refCount * 2);
+            }
+            refs[refCount++] = ref;
+        }
+
+        /**
+         * Store string once if it's short.
+         * @return offset of equal string.
+         */
+        private int store(String value) {
+            byte[] bytes = value.getBytes(UTF8);
+            if (value.length() > StringPool.MAX_LENGTH) {
+                return append(bytes);
+            }
+            int mask = shortStrings.length - 1;
+            for (int slot = hash(bytes, 0, bytes.length) & mask; ; slot = (slot + 1) & mask) {
+                int offset = shortStrings[slot] - 1;
+                if (offset < 0) {
+                    offset = append(bytes);
+                    shortStrings[slot] = offset + 1;
+                    if (++shortCount * 2 > shortStrings.length) {
+                        rehash();
+                    }
+                    return offset;
+                }
+                if (equalsAt(offset, bytes)) {
+                    duplicates++;
+                    sharedBytes += lengthEnd(text, offset) - offset + bytes.length;
+                    return offset;
+                }
+            }
+        }
+
+        private boolean equalsAt(int offset, byte[] bytes) {
+            if (readLength(text, offset) != bytes.length) {
+                return false;
+            }
+            int start = lengthEnd(text, offset);
+            for (int i = 0; i < bytes.length; i++) {
+                if (text[start + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            int[] old = shortStrings;
+            shortStrings = new int[old.length * 2];
+            int mask = shortStrings.length - 1;
+            for (int entry : old) {
+                if (entry != 0) {
+                    int slot = hash(text, lengthEnd(text, entry - 1), readLength(text, entry - 1)) & mask;
+                    while (shortStrings[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    shortStrings[slot] = entry;
+                }
+            }
+        }
+
+        /**
+         * Append length and bytes of string to text.
+         * @return offset of string.
+         */
+        private int append(byte[] bytes) {
+            int offset = textSize;
+            int required = textSize + 5 + bytes.length;
+            if (required < 0) {
+                throw new IllegalStateException("Text of articles is larger than 2 GB");
+            }
+            if (required > text.length) {
+                text = Arrays.copyOf(text, Math.max(required, (int) Math.min(Integer.MAX_VALUE, text.length * 2L)));
+            }
+            int length = bytes.length;
+            while (length >= 0x80) {
+                text[textSize++] = (byte) (length | 0x80);
+                length >>>= 7;
+            }
+            text[textSize++] = (byte) length;
+            System.arraycopy(bytes, 0, text, textSize, bytes.length);
+            textSize += bytes.length;
+            return offset;
+        }
+
+        private static int hash(byte[] bytes, int from, int length) {
+            int hash = 1;
+            for (int i = from; i < from + length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.model.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import vocabularyup.util.io.VarInt;
+
+/**
+ * Sidecar file {@code <vocabulary>.added} with articles added after the last
+ * save of vocabulary.<br/>
+ * New article is appended to journal instead of rewriting the whole vocabulary,
+ * so it may be added without loading vocabulary. Journal is replayed when
+ * vocabulary is loaded, before ratings journal, and truncated after vocabulary
+ * is saved.<br/>
+ * Other processes may append articles while vocabulary is loaded, so journal is
+ * changed under file lock and loaded vocabulary tracks length of journal which
+ * records it has replayed: records appended after that are returned by
+ * {@link #append(File, Collection, long)} and {@link #truncate(File, long)}
+ * and aren't lost.
+ * <pre>
+ * block   := MAGIC count record*
+ * record  := source translates examples
+ * list    := count string*
+ * string  := length utf-8-bytes
+ * </pre>
+ * Numbers are varints. Block interrupted by crash is ignored by reader and
+ * cut off by the next append, so blocks appended after it may be read.
+ * @author dooman
+ */
+final class ArticleJournal {
+    private static final Logger log = Logger.getLogger(ArticleJournal.class.getName());
+
+    static final String JOURNAL_FILE_EXTENSION = ".added";
+    private static final int MAGIC = 0xAD;
+    private static final int MAX_BLOCK_SIZE = 1 << 24;
+    private static final int MAX_STRING_LENGTH = 1 << 20;
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * Records read from journal.
+     */
+    static final class Records {
+        final List<Entry> entries;
+        /** Length of journal up to the end of the last complete record. */
+        final long end;
+
+        Records(List<Entry> entries, long end) {
+            this.entries = entries;
+            this.end = end;
+        }
+    }
+
+    /**
+     * One journal record.
+     */
+    static final class Entry {
+        final String source;
+        final List<String> translates;
+        final List<String> examples;
+
+        Entry(String source, List<String> translates, List<String> examples) {
+            this.source = source;
+            this.translates = translates;
+            this.examples = examples;
+        }
+    }
+
+    private ArticleJournal() {
+    }
+
+    /**
+     * Append articles as one block and sync file, e.g. by process that doesn't load vocabulary.
+     * @param file journal file.
+     * @param articles new articles.
+     * @return number of written bytes.
+     * @throws IOException error writing file.
+     */
+    static int append(File file, Collection<Entry> articles) throws IOException {
+        if (articles.isEmpty()) {
+            return 0;
+        }
+        byte[] block = encode(articles);
+        synchronized (ArticleJournal.class) {
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            try {
+                FileLock lock = out.getChannel().lock();
+                try {
+                    write(out, parse(file, readTail(out, 0, out.length())).end, block);
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                out.close();
+            }
+        }
+        return block.length;
+    }
+
+    /**
+     * Append articles of loaded vocabulary as one block and sync file.
+     * @param file journal file.
+     * @param articles new articles.
+     * @param replayed length of journal which records are in vocabulary.
+     * @return records appended by others after {@code replayed}, end of returned
+     *   records is the end of written block.
+     * @throws IOException error writing file.
+     */
+    static Records append(File file, Collection<Entry> articles, long replayed) throws IOException {
+        byte[] block = articles.isEmpty() ? new byte[0] : encode(articles);
+        synchronized (ArticleJournal.class) {
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            try {
+                FileLock lock = out.getChannel().lock();
+                try {
+                    long length = out.length();
+                    long from = replayed(replayed, length);
+                    Records missed = parse(file, readTail(out, from, length));
+                    write(out, from + missed.end, block);
+                    return new Records(missed.entries, from + missed.end + block.length);
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Read complete records of journal.
+     * @param file journal file.
+     * @param from offset of the first record.
+     * @return records in order of writing, empty list if there isn't journal.
+     * @throws IOException error reading file or file is corrupted.
+     */
+    static Records read(File file, long from) throws IOException {
+        if (!file.exists()) {
+            return new Records(Collections.<Entry>emptyList(), 0);
+        }
+        synchronized (ArticleJournal.class) {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                FileLock lock = in.getChannel().lock(0, Long.MAX_VALUE, true);
+                try {
+                    long length = in.length();
+                    from = replayed(from, length);
+                    Records records = parse(file, readTail(in, from, length));
+                    return new Records(records.entries, from + records.end);
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Remove records that are saved in vocabulary file. Records appended after
+     * them are moved to the beginning of journal. Journal isn't deleted, because
+     * other process may wait for its lock to append records.
+     * @param file journal file.
+     * @param replayed length of journal which records are saved.
+     * @return records that are kept in journal, vocabulary must replay them.
+     * @throws IOException error writing file.
+     */
+    static Records truncate(File file, long replayed) throws IOException {
+        if (!file.exists()) {
+            return new Records(Collections.<Entry>emptyList(), 0);
+        }
+        synchronized (ArticleJournal.class) {
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            try {
+                FileLock lock = out.getChannel().lock();
+                try {
+                    long length = out.length();
+                    byte[] tail = readTail(out, replayed(replayed, length), length);
+                    Records kept = parse(file, tail);
+                    out.seek(0);
+                    out.write(tail, 0, (int) kept.end);
+                    out.setLength(kept.end);
+                    out.getFD().sync();
+                    return kept;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static byte[] encode(Collection<Entry> articles) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream(64 * articles.size());
+        block.write(MAGIC);
+        VarInt.writeUnsigned(block, articles.size());
+        for (Entry e : articles) {
+            writeString(block, e.source);
+            writeList(block, e.translates);
+            writeList(block, e.examples);
+        }
+        return block.toByteArray();
+    }
+
+    /**
+     * Write block after the last complete block, incomplete block is cut off.
+     */
+    private static void write(RandomAccessFile out, long offset, byte[] block) throws IOException {
+        out.seek(offset);
+        out.write(block);
+        if (out.length() > offset + block.length) {
+            log.warning("Incomplete block is cut off, [" + (out.length() - offset - block.length) + "] bytes");
+            out.setLength(offset + block.length);
+        }
+        out.getFD().sync();
+    }
+
+    /**
+     * Journal shorter than replayed length was replaced, all its records are new.
+     */
+    private static long replayed(long replayed, long length) {
+        return replayed <= length ? replayed : 0;
+    }
+
+    private static byte[] readTail(RandomAccessFile in, long from, long to) throws IOException {
+        byte[] bytes = new byte[(int) (to - from)];
+        in.seek(from);
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Parse complete records of journal's bytes.
+     */
+    private static Records parse(File file, byte[] bytes) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        long end = 0;
+        int magic;
+        while ((magic = in.read()) >= 0) {
+            if (magic != MAGIC) {
+                throw new IOException("Corrupted articles journal " + file);
+            }
+            int complete = entries.size();
+            try {
+                long count = VarInt.readUnsigned(in);
+                if (count > MAX_BLOCK_SIZE) {
+                    throw new IOException("Corrupted articles journal " + file + ", block size: " + count);
+                }
+                for (long i = 0; i < count; i++) {
+                    String source = readString(in);
+                    List<String> translates = readList(in);
+                    entries.add(new Entry(source, translates, readList(in)));
+                }
+                end = bytes.length - in.available();
+            } catch (EOFException e) {
+                log.warning("Incomplete block at the end of " + file + " is ignored");
+                return new Records(new ArrayList<Entry>(entries.subList(0, complete)), end);
+            }
+        }
+        return new Records(entries, end);
+    }
+
+    private static void writeList(OutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            VarInt.writeUnsigned(out, 0);
+            return;
+        }
+        VarInt.writeUnsigned(out, values.size());
+        for (String v : values) {
+            writeString(out, v);
+        }
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(ENCODING);
+        VarInt.writeUnsigned(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static List<String> readList(InputStream in) throws IOException {
+        int count = VarInt.readUnsignedInt(in);
+        if (count > MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupted articles journal, list size: " + count);
+        }
+        List<String> values = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        int length = VarInt.readUnsignedInt(in);
+        if (length > MAX_STRING_LENGTH) {
+            throw new IOException("Corrupted articles journal, string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+        return new String(bytes, ENCODING);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.model.xml;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Articles of one vocabulary kept as array of ids, e.g. result of search.<br/>
+ * {@link Article} views are created on access, so list costs 4 bytes per article.
+ * List may be changed, added articles must be from the same vocabulary.
+ * @author dooman
+ */
+public final class ArticleList extends AbstractList<Article> implements RandomAccess {
+    private final Vocabulary vocabulary;
+    private int[] ids;
+    private int size;
+
+    ArticleList(Vocabulary vocabulary, int[] ids) {
+        this.vocabulary = vocabulary;
+        this.ids = ids;
+        this.size = ids.length;
+    }
+
+    /**
+     * Return id of article without creating article.
+     * @param index index of article in list.
+     * @return id of article.
+     */
+    public int getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    @Override
+    public Article get(int index) {
+        return new Article(vocabulary, getId(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Article set(int index, Article article) {
+        Article old = get(index);
+        ids[index] = idOf(article);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Article article) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        int id = idOf(article);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Article remove(int index) {
+        Article old = get(index);
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    private int idOf(Article article) {
+        if (article.getVocabulary() != vocabulary) {
+            throw new IllegalArgumentException("Article [" + article.getSource() + "] isn't from vocabulary ["
+                    + vocabulary.getName() + "]");
+        }
+        return article.getId();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+}
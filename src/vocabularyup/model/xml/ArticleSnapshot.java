@@ -0,0 +1,199 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.model.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import vocabularyup.util.text.AnswerNormalizer;
+
+/**
+ * Immutable state of {@link Article} at some version of vocabulary.
+ * Snapshot may be used from any thread without locks, changes of article
+ * don't affect it.<br/>
+ * Snapshots are values: two snapshots are equal if they describe the same
+ * article of the same vocabulary with equal content.
+ * @author dooman
+ */
+public final class ArticleSnapshot {
+    private final Vocabulary vocabulary;
+    private final int id;
+    private final String source;
+    private final List<String> translates;
+    private volatile Set<String> answerKeys;
+    private final List<String> examples;
+    private final int ratingValue;
+    private final ReviewSchedule schedule;
+
+    ArticleSnapshot(Vocabulary vocabulary, int id, String source, List<String> translates,
+            List<String> examples, int ratingValue, ReviewSchedule schedule) {
+        this.vocabulary = vocabulary;
+        this.id = id;
+        this.source = source;
+        this.translates = translates;
+        this.examples = examples;
+        this.ratingValue = ratingValue;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Return not empty translates as unmodifiable list.
+     * @param translates translates, may contain empty strings.
+     * @return copy of not empty translates.
+     */
+    static List<String> cleanTranslates(List<String> translates) {
+        List<String> result = new ArrayList<String>(translates.size());
+        for (String t : translates) {
+            if (!t.isEmpty()) {
+                result.add(t);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Return examples as unmodifiable list.
+     * @param examples examples, may be {@code null}.
+     * @return copy of examples.
+     */
+    static List<String> copyExamples(List<String> examples) {
+        if (examples == null || examples.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<String>(examples));
+    }
+
+    ArticleSnapshot withSource(String newSource) {
+        return new ArticleSnapshot(vocabulary, id, newSource, translates, examples, ratingValue, schedule);
+    }
+
+    ArticleSnapshot withTranslates(List<String> newTranslates) {
+        return new ArticleSnapshot(vocabulary, id, source, cleanTranslates(newTranslates), examples, ratingValue, schedule);
+    }
+
+    ArticleSnapshot withExamples(List<String> newExamples) {
+        return new ArticleSnapshot(vocabulary, id, source, translates, copyExamples(newExamples), ratingValue, schedule);
+    }
+
+    ArticleSnapshot withRating(int newRating) {
+        return new ArticleSnapshot(vocabulary, id, source, translates, examples, newRating, schedule);
+    }
+
+    ArticleSnapshot withSchedule(ReviewSchedule newSchedule) {
+        return new ArticleSnapshot(vocabulary, id, source, translates, examples, ratingValue, newSchedule);
+    }
+
+    /**
+     * Return vocabulary which contains the article.
+     * @return owner vocabulary.
+     */
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Return identifier of article in vocabulary.
+     * Live article may be found by {@link Vocabulary#getArticle(int)}.
+     * @return id of article.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return unmodifiable list of translates.
+     */
+    public List<String> getTranslates() {
+        return translates;
+    }
+
+    /**
+     * Return normalized translates, user's answer is right if its normalized
+     * form is in this set. Keys are built on the first call.
+     * @return unmodifiable set of keys.
+     */
+    public Set<String> getAnswerKeys() {
+        Set<String> keys = answerKeys;
+        if (keys == null) {
+            keys = AnswerNormalizer.keys(translates);
+            answerKeys = keys;
+        }
+        return keys;
+    }
+
+    /**
+     * @return unmodifiable list of examples.
+     */
+    public List<String> getExamples() {
+        return examples;
+    }
+
+    public String getRating() {
+        return String.valueOf(ratingValue);
+    }
+
+    /**
+     * @return rating as number.
+     */
+    public int getRatingValue() {
+        return ratingValue;
+    }
+
+    /**
+     * @return {@code true} if article has translates and may be used in test.
+     */
+    public boolean isTestable() {
+        return !translates.isEmpty();
+    }
+
+    public ReviewSchedule getSchedule() {
+        return schedule;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ArticleSnapshot)) {
+            return false;
+        }
+        ArticleSnapshot other = (ArticleSnapshot) obj;
+        return vocabulary == other.vocabulary && id == other.id && ratingValue == other.ratingValue
+                && source.equals(other.source) && translates.equals(other.translates)
+                && examples.equals(other.examples) && schedule.equals(other.schedule);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 31 * id + source.hashCode();
+        hash = 31 * hash + ratingValue;
+        return 31 * hash + schedule.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
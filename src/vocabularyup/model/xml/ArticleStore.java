@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.model.xml;
+
+import java.nio.IntBuffer;
+
+/**
+ * Immutable storage of articles indexed by id, base of {@link VocabularySnapshot}.
+ * Articles are kept in packed form and article objects are created when they are read.
+ * @see ArticleColumns
+ * @see PackedArticleStore
+ * @author dooman
+ */
+interface ArticleStore {
+
+    int size();
+
+    /**
+     * Create article from store.
+     * @param vocabulary owner of article.
+     * @param id id of article.
+     * @return new snapshot of article.
+     * @throws IndexOutOfBoundsException if there isn't article with this id.
+     */
+    ArticleSnapshot getArticle(Vocabulary vocabulary, int id);
+
+    String getSource(int id);
+
+    int getRatingValue(int id);
+
+    long getDue(int id);
+
+    boolean isTestable(int id);
+
+    ReviewSchedule getSchedule(int id);
+
+    /**
+     * Return ids sorted by source, only the first of articles with equal sources is included.
+     * @return read-only buffer of ids or {@code null} if store doesn't keep order.
+     */
+    IntBuffer getSourceOrder();
+
+    /**
+     * @return number of translates and examples that are stored as references to equal string.
+     */
+    int getDuplicates();
+
+    /**
+     * @return bytes of text that aren't stored because equal strings are shared, with their length prefixes.
+     */
+    long getSharedBytes();
+
+    /**
+     * @return size of packed text in bytes.
+     */
+    long getTextSize();
+
+    /**
+     * Estimate heap used by store, memory outside of heap isn't counted.
+     * @return size in bytes.
+     */
+    long estimateSize();
+}
@@ -0,0 +1,363 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.model.xml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only article store in memory-mapped file.<br/>
+ * File contains the same columns as {@link ArticleColumns} and ids sorted
+ * by source, so opening of vocabulary maps the file and reads only its header,
+ * articles and source index stay outside of heap and are paged in by
+ * operating system when they are read. Large reference dictionaries don't
+ * add objects to heap and don't make GC pauses longer.<br/>
+ * Format of file (big-endian):
+ * <pre>
+ * magic, format version, name length, name (UTF-8)
+ * articles, references, sorted ids, text bytes, shared strings, shared bytes(long)
+ * first references[articles + 1], references[references]
+ * ratings[articles], due times(long)[articles], eases[articles], intervals[articles], repetitions[articles]
+ * sorted ids[sorted ids]
+ * text[text bytes]
+ * </pre>
+ * File is written once by {@link #write(File, String, ArticleColumns, int[])}
+ * and replaced as a whole, changes of loaded vocabulary are kept in journals
+ * and snapshot until the next save. One mapping is used, so file can't be larger than 2GB.
+ * @author dooman
+ */
+final class PackedArticleStore implements ArticleStore {
+    /** "VUPK" */
+    private static final int MAGIC = 0x5655504B;
+    private static final int FORMAT_VERSION = 2;
+    /** Version 1 hasn't shared bytes in header, they are reported as 0 until vocabulary is saved. */
+    private static final int FORMAT_VERSION_1 = 1;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer buffer;
+    private final String name;
+    private final int size;
+    private final int duplicates;
+    private final long sharedBytes;
+    private final int textSize;
+    private final int firstRefStart;
+    private final int refsStart;
+    private final int ratingsStart;
+    private final int dueStart;
+    private final int easeStart;
+    private final int intervalsStart;
+    private final int repetitionsStart;
+    private final int textStart;
+    private final IntBuffer order;
+
+    private PackedArticleStore(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < 12 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a packed vocabulary");
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION && version != FORMAT_VERSION_1) {
+            throw new IOException("Unknown format of packed vocabulary: " + version);
+        }
+        int headerSize = version == FORMAT_VERSION_1 ? 20 : 28;
+        int nameLength = buffer.getInt(8);
+        int pos = 12 + nameLength;
+        if (nameLength < 0 || (long) pos + headerSize > buffer.capacity()) {
+            throw new IOException("Corrupted header of packed vocabulary");
+        }
+        this.name = new String(read(12, nameLength), ArticleColumns.UTF8);
+        this.size = buffer.getInt(pos);
+        int refCount = buffer.getInt(pos + 4);
+        int orderSize = buffer.getInt(pos + 8);
+        this.textSize = buffer.getInt(pos + 12);
+        this.duplicates = buffer.getInt(pos + 16);
+        this.sharedBytes = version == FORMAT_VERSION_1 ? 0 : buffer.getLong(pos + 20);
+        long expected = pos + headerSize + 4L * (size + 1) + 4L * refCount + 24L * size + 4L * orderSize + textSize;
+        if (size < 0 || refCount < 0 || orderSize < 0 || textSize < 0 || expected != buffer.capacity()) {
+            throw new IOException("Corrupted packed vocabulary, expected [" + expected + "] bytes, found ["
+                    + buffer.capacity() + "]");
+        }
+        this.firstRefStart = pos + headerSize;
+        this.refsStart = firstRefStart + 4 * (size + 1);
+        this.ratingsStart = refsStart + 4 * refCount;
+        this.dueStart = ratingsStart + 4 * size;
+        this.easeStart = dueStart + 8 * size;
+        this.intervalsStart = easeStart + 4 * size;
+        this.repetitionsStart = intervalsStart + 4 * size;
+        int orderStart = repetitionsStart + 4 * size;
+        this.textStart = orderStart + 4 * orderSize;
+        ByteBuffer orderBytes = buffer.duplicate();
+        orderBytes.position(orderStart);
+        orderBytes.limit(textStart);
+        this.order = orderBytes.slice().asIntBuffer();
+    }
+
+    /**
+     * Map packed vocabulary file.
+     * @param file file written by {@link #write(File, String, ArticleColumns, int[])}.
+     * @return store backed by the file.
+     * @throws IOException error reading file or file isn't packed vocabulary.
+     */
+    static PackedArticleStore open(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            long length = in.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Packed vocabulary is larger than 2GB: " + file);
+            }
+            //mapping stays valid after channel is closed
+            return new PackedArticleStore(in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write packed vocabulary file, file is synced before method returns.
+     * @param file destination, it's overwritten.
+     * @param name name of vocabulary.
+     * @param columns articles.
+     * @param order ids sorted by source, see {@link SourceIndex#sortedIds(ArticleStore)}.
+     * @return number of written bytes.
+     * @throws IOException error writing file or vocabulary is too large.
+     */
+    static long write(File file, String name, ArticleColumns columns, int[] order) throws IOException {
+        byte[] nameBytes = name.getBytes(ArticleColumns.UTF8);
+        byte[] text = columns.getText();
+        int size = columns.size();
+        long length = 12 + nameBytes.length + 28 + 4L * (size + 1) + 4L * columns.getRefCount() + 24L * size
+                + 4L * order.length + text.length;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Vocabulary [" + name + "] is too large for packed file: " + length + " bytes");
+        }
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            Output out = new Output(stream.getChannel());
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(nameBytes.length);
+            out.writeBytes(nameBytes);
+            out.writeInt(size);
+            out.writeInt(columns.getRefCount());
+            out.writeInt(order.length);
+            out.writeInt(text.length);
+            out.writeInt(columns.getDuplicates());
+            out.writeLongs(new long[] {columns.getSharedBytes()});
+            columns.write(out);
+            out.writeInts(order);
+            out.writeBytes(text);
+            out.flush();
+            stream.getChannel().force(false);
+        } finally {
+            stream.close();
+        }
+        return length;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ArticleSnapshot getArticle(Vocabulary vocabulary, int id) {
+        int from = firstRef(id);
+        int to = firstRef(id + 1);
+        List<String> translates = new ArrayList<String>(to - from - 1);
+        List<String> examples = Collections.emptyList();
+        for (int r = from + 1; r < to; r++) {
+            int ref = ref(r);
+            if (ref >= 0) {
+                translates.add(decode(ref));
+            } else {
+                if (examples.isEmpty()) {
+                    examples = new ArrayList<String>(to - r);
+                }
+                examples.add(decode(~ref));
+            }
+        }
+        return new ArticleSnapshot(vocabulary, id, decode(ref(from)), Collections.unmodifiableList(translates),
+                Collections.unmodifiableList(examples), getRatingValue(id), getSchedule(id));
+    }
+
+    @Override
+    public String getSource(int id) {
+        return decode(ref(firstRef(id)));
+    }
+
+    @Override
+    public int getRatingValue(int id) {
+        return buffer.getInt(ratingsStart + 4 * checkId(id));
+    }
+
+    @Override
+    public long getDue(int id) {
+        return buffer.getLong(dueStart + 8 * checkId(id));
+    }
+
+    @Override
+    public boolean isTestable(int id) {
+        int r = firstRef(id) + 1;
+        return r < firstRef(id + 1) && ref(r) >= 0;
+    }
+
+    @Override
+    public ReviewSchedule getSchedule(int id) {
+        long due = getDue(id);
+        int ease = buffer.getInt(easeStart + 4 * id);
+        int interval = buffer.getInt(intervalsStart + 4 * id);
+        int repetitions = buffer.getInt(repetitionsStart + 4 * id);
+        if (due == 0 && repetitions == 0 && interval == 0 && ease == ReviewSchedule.DEFAULT_EASE) {
+            return ReviewSchedule.NEW;
+        }
+        return new ReviewSchedule(due, ease, interval, repetitions);
+    }
+
+    @Override
+    public IntBuffer getSourceOrder() {
+        return order.duplicate();
+    }
+
+    @Override
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    @Override
+    public long getSharedBytes() {
+        return sharedBytes;
+    }
+
+    @Override
+    public long getTextSize() {
+        return textSize;
+    }
+
+    @Override
+    public long estimateSize() {
+        //header fields and buffers, articles are outside of heap
+        return 200;
+    }
+
+    private int checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Index: " + id + ", size: " + size);
+        }
+        return id;
+    }
+
+    private int firstRef(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return buffer.getInt(firstRefStart + 4 * index);
+    }
+
+    private int ref(int index) {
+        return buffer.getInt(refsStart + 4 * index);
+    }
+
+    private String decode(int offset) {
+        int pos = textStart + offset;
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(pos++);
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return new String(read(pos, length), ArticleColumns.UTF8);
+    }
+
+    private byte[] read(int pos, int length) {
+        byte[] bytes = new byte[length];
+        //duplicate has its own position, so readers don't interfere
+        ByteBuffer in = buffer.duplicate();
+        in.position(pos);
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Buffered writer of primitive values to channel.
+     */
+    static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            out.putInt(value);
+        }
+
+        void writeInts(int[] values) throws IOException {
+            for (int v : values) {
+                ensure(4);
+                out.putInt(v);
+            }
+        }
+
+        void writeLongs(long[] values) throws IOException {
+            for (long v : values) {
+                ensure(8);
+                out.putLong(v);
+            }
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            int pos = 0;
+            while (pos < bytes.length) {
+                ensure(1);
+                int count = Math.min(out.remaining(), bytes.length - pos);
+                out.put(bytes, pos, count);
+                pos += count;
+            }
+        }
+
+        void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (out.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.model.xml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Ratings and answer counters of vocabulary's articles indexed by article id.<br/>
+ * Counters are changed without locks, so concurrent tests may grade the same
+ * article. Changed ratings are marked and written to articles in batches by
+ * {@link Vocabulary#flushRatings()}. Answer counters are kept only in memory,
+ * they count answers since vocabulary was loaded.<br/>
+ * Counters are stored in chunks that are never moved, so growing of vocabulary
+ * doesn't lose concurrent increments. Chunk is created when rating of its article
+ * is read or changed first time, initial ratings are taken from {@link InitialRatings}.
+ * Answer counters and change marks of a chunk are created when article of the chunk
+ * is graded, so vocabulary that isn't tested costs nothing and vocabulary that is
+ * tested costs 4 bytes per article.
+ * @author dooman
+ */
+public final class RatingCounters {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Source of ratings for new chunks, e.g. articles of vocabulary.
+     */
+    interface InitialRatings {
+        /**
+         * @return number of articles, counters of other ids can't be created.
+         */
+        int size();
+
+        int getRating(int id);
+    }
+
+    private static final class Chunk {
+        final AtomicIntegerArray ratings = new AtomicIntegerArray(CHUNK_SIZE);
+        volatile Answers answers;
+
+        Chunk(int index, InitialRatings initial) {
+            load(index, initial);
+        }
+
+        void load(int index, InitialRatings initial) {
+            int first = index << CHUNK_BITS;
+            int last = Math.min(first + CHUNK_SIZE, initial.size());
+            for (int id = first; id < last; id++) {
+                ratings.set(id & CHUNK_MASK, initial.getRating(id));
+            }
+        }
+
+        Answers answers() {
+            Answers result = answers;
+            if (result == null) {
+                synchronized (this) {
+                    result = answers;
+                    if (result == null) {
+                        result = new Answers();
+                        answers = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class Answers {
+        final AtomicIntegerArray rightAnswers = new AtomicIntegerArray(CHUNK_SIZE);
+        final AtomicIntegerArray wrongAnswers = new AtomicIntegerArray(CHUNK_SIZE);
+        /** 1 if rating is changed and id is in dirty queue. */
+        final AtomicIntegerArray dirty = new AtomicIntegerArray(CHUNK_SIZE);
+    }
+
+    private final InitialRatings initial;
+    /** Chunks by index, {@code null} for chunks that aren't created yet. */
+    private volatile Chunk[] chunks = new Chunk[0];
+    private final ConcurrentLinkedQueue<Integer> dirtyIds = new ConcurrentLinkedQueue<Integer>();
+
+    RatingCounters(InitialRatings initial) {
+        this.initial = initial;
+    }
+
+    /**
+     * Set rating without marking it changed, e.g. when article is changed.
+     * @param id article id.
+     * @param rating rating of article.
+     */
+    public void set(int id, int rating) {
+        chunk(id).ratings.set(id & CHUNK_MASK, rating);
+    }
+
+    /**
+     * Atomically add {@code delta} to rating and mark it changed.
+     * @param id article id.
+     * @param delta value that is added to rating.
+     * @return new rating.
+     */
+    public int add(int id, int delta) {
+        Chunk chunk = chunk(id);
+        int rating = chunk.ratings.addAndGet(id & CHUNK_MASK, delta);
+        if (chunk.answers().dirty.compareAndSet(id & CHUNK_MASK, 0, 1)) {
+            dirtyIds.add(id);
+        }
+        return rating;
+    }
+
+    public int getRating(int id) {
+        return chunk(id).ratings.get(id & CHUNK_MASK);
+    }
+
+    /**
+     * Count graded answer.
+     * @param id article id.
+     * @param right answer is right or not.
+     */
+    public void recordAnswer(int id, boolean right) {
+        Answers answers = chunk(id).answers();
+        (right ? answers.rightAnswers : answers.wrongAnswers).incrementAndGet(id & CHUNK_MASK);
+    }
+
+    public int getRightAnswers(int id) {
+        Answers answers = chunk(id).answers;
+        return answers == null ? 0 : answers.rightAnswers.get(id & CHUNK_MASK);
+    }
+
+    public int getWrongAnswers(int id) {
+        Answers answers = chunk(id).answers;
+        return answers == null ? 0 : answers.wrongAnswers.get(id & CHUNK_MASK);
+    }
+
+    /**
+     * Return ids of changed ratings and clear their marks. Rating changed
+     * after this call is marked again, so it isn't lost by the next export.
+     * @return ids in order of the first change.
+     */
+    public List<Integer> drainChanged() {
+        List<Integer> result = new ArrayList<Integer>();
+        Integer id;
+        while ((id = dirtyIds.poll()) != null) {
+            Answers answers = chunk(id).answers;
+            if (answers != null) {
+                answers.dirty.set(id & CHUNK_MASK, 0);
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * @return {@code true} if some ratings are changed and not drained yet.
+     */
+    public boolean hasChanges() {
+        return !dirtyIds.isEmpty();
+    }
+
+    /**
+     * @return number of articles that counters can hold without growing.
+     */
+    public int capacity() {
+        return chunks.length << CHUNK_BITS;
+    }
+
+    /**
+     * Read ratings of created chunks again, e.g. when vocabulary is restored.
+     * Answer counters and change marks are kept.
+     */
+    synchronized void reload() {
+        Chunk[] current = chunks;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != null) {
+                current[i].load(i, initial);
+            }
+        }
+    }
+
+    /**
+     * Estimate heap used by counters.
+     * @return size in bytes.
+     */
+    public long estimateSize() {
+        long size = 16 + 4L * chunks.length;
+        for (Chunk chunk : chunks) {
+            if (chunk == null) {
+                continue;
+            }
+            size += 4 * CHUNK_SIZE + 40;
+            if (chunk.answers != null) {
+                size += 3 * (4 * CHUNK_SIZE + 24);
+            }
+        }
+        return size;
+    }
+
+    private Chunk chunk(int id) {
+        Chunk[] current = chunks;
+        int index = id >>> CHUNK_BITS;
+        if (id >= 0 && index < current.length && current[index] != null) {
+            return current[index];
+        }
+        return createChunk(id);
+    }
+
+    private synchronized Chunk createChunk(int id) {
+        int size = initial.size();
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Article id: " + id + ", articles: " + size);
+        }
+        int index = id >>> CHUNK_BITS;
+        Chunk[] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        //array of references is small, it's copied so readers see only initialized chunks
+        Chunk[] grown = Arrays.copyOf(current, Math.max(current.length, ((size - 1) >>> CHUNK_BITS) + 1));
+        grown[index] = new Chunk(index, initial);
+        chunks = grown;
+        return grown[index];
+    }
+}
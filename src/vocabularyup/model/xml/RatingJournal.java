@@ -0,0 +1,177 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.model.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+import vocabularyup.util.io.VarInt;
+
+/**
+ * Sidecar file {@code <vocabulary>.ratings} with ratings and review schedules
+ * changed after the last save of vocabulary.<br/>
+ * After test only changed articles are appended to journal instead of
+ * rewriting the whole vocabulary. Journal is replayed when vocabulary is loaded
+ * and deleted after vocabulary is saved.
+ * <pre>
+ * block  := MAGIC count record*
+ * record := article-id rating due ease interval repetitions
+ * </pre>
+ * All numbers are varints, rating is zigzag encoded. Block interrupted by crash
+ * is ignored by reader and cut off by the next append, so blocks appended after
+ * it may be read.
+ * @author dooman
+ */
+final class RatingJournal {
+    private static final Logger log = Logger.getLogger(RatingJournal.class.getName());
+
+    static final String JOURNAL_FILE_EXTENSION = ".ratings";
+    private static final int MAGIC = 0x5A;
+    private static final int MAX_BLOCK_SIZE = 1 << 24;
+
+    /**
+     * One journal record.
+     */
+    static final class Entry {
+        final int articleId;
+        final int rating;
+        final ReviewSchedule schedule;
+
+        Entry(int articleId, int rating, ReviewSchedule schedule) {
+            this.articleId = articleId;
+            this.rating = rating;
+            this.schedule = schedule;
+        }
+    }
+
+    private RatingJournal() {
+    }
+
+    /**
+     * Append current ratings and schedules of articles as one block after
+     * the last complete block and sync file.
+     * @param file journal file.
+     * @param articles states of changed articles.
+     * @return number of written bytes.
+     * @throws IOException error writing file.
+     */
+    static int append(File file, Collection<ArticleSnapshot> articles) throws IOException {
+        if (articles.isEmpty()) {
+            return 0;
+        }
+        ByteArrayOutputStream block = new ByteArrayOutputStream(8 + articles.size() * 16);
+        block.write(MAGIC);
+        VarInt.writeUnsigned(block, articles.size());
+        for (ArticleSnapshot a : articles) {
+            ReviewSchedule s = a.getSchedule();
+            VarInt.writeUnsigned(block, a.getId());
+            VarInt.writeSigned(block, a.getRatingValue());
+            VarInt.writeUnsigned(block, Math.max(0, s.getDue()));
+            VarInt.writeUnsigned(block, s.getEase());
+            VarInt.writeUnsigned(block, Math.max(0, s.getInterval()));
+            VarInt.writeUnsigned(block, Math.max(0, s.getRepetitions()));
+        }
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            long length = out.length();
+            long end = parse(file, readAll(out), new ArrayList<Entry>());
+            out.seek(end);
+            out.write(block.toByteArray());
+            if (end < length) {
+                log.warning("Incomplete block at the end of " + file + " is cut off, [" + (length - end) + "] bytes");
+                out.setLength(end + block.size());
+            }
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        return block.size();
+    }
+
+    /**
+     * Read all complete records of journal.
+     * @param file journal file.
+     * @return records in order of writing, empty list if there isn't journal.
+     * @throws IOException error reading file or file is corrupted.
+     */
+    static List<Entry> read(File file) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        if (!file.exists()) {
+            return entries;
+        }
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            parse(file, readAll(in), entries);
+        } finally {
+            in.close();
+        }
+        return entries;
+    }
+
+    private static byte[] readAll(RandomAccessFile in) throws IOException {
+        byte[] bytes = new byte[(int) in.length()];
+        in.seek(0);
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Parse complete records of journal's bytes.
+     * @return length of complete blocks.
+     */
+    private static long parse(File file, byte[] bytes, List<Entry> entries) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        long end = 0;
+        int magic;
+        while ((magic = in.read()) >= 0) {
+            if (magic != MAGIC) {
+                throw new IOException("Corrupted ratings journal " + file);
+            }
+            int complete = entries.size();
+            try {
+                long count = VarInt.readUnsigned(in);
+                if (count > MAX_BLOCK_SIZE) {
+                    throw new IOException("Corrupted ratings journal " + file + ", block size: " + count);
+                }
+                for (long i = 0; i < count; i++) {
+                    int id = VarInt.readUnsignedInt(in);
+                    int rating = (int) VarInt.readSigned(in);
+                    long due = VarInt.readUnsigned(in);
+                    int ease = VarInt.readUnsignedInt(in);
+                    int interval = VarInt.readUnsignedInt(in);
+                    int repetitions = VarInt.readUnsignedInt(in);
+                    entries.add(new Entry(id, rating, new ReviewSchedule(due, ease, interval, repetitions)));
+                }
+                end = bytes.length - in.available();
+            } catch (EOFException e) {
+                log.warning("Incomplete block at the end of " + file + " is ignored");
+                entries.subList(complete, entries.size()).clear();
+                return end;
+            }
+        }
+        return end;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.model.xml;
+
+/**
+ * Spaced repetition state of article (SM-2 algorithm).<br/>
+ * Each review grades the answer by quality from {@link #QUALITY_MIN} to {@link #QUALITY_MAX},
+ * good answers increase the interval before the next review, bad answers start
+ * repetitions again. Ease is stored in percents, e.g. {@code 250} means 2.5.<br/>
+ * Class is immutable, {@link #next(int, long)} returns new schedule.
+ * @author dooman
+ */
+public final class ReviewSchedule {
+    public static final int QUALITY_MIN = 0;
+    public static final int QUALITY_MAX = 5;
+    /** Answers with lower quality are failed and start repetitions again. */
+    public static final int QUALITY_PASS = 3;
+
+    public static final int DEFAULT_EASE = 250;
+    public static final int MIN_EASE = 130;
+
+    public static final long DAY = 24L * 60 * 60 * 1000;
+
+    /** Schedule of article that was never reviewed, it's due immediately. */
+    public static final ReviewSchedule NEW = new ReviewSchedule(0, DEFAULT_EASE, 0, 0);
+
+    private final long due;
+    private final int ease;
+    private final int interval;
+    private final int repetitions;
+
+    public ReviewSchedule(long due, int ease, int interval, int repetitions) {
+        this.due = due;
+        this.ease = Math.max(MIN_EASE, ease);
+        this.interval = interval;
+        this.repetitions = repetitions;
+    }
+
+    /**
+     * Return time of the next review.
+     * @return time in milliseconds.
+     */
+    public long getDue() {
+        return due;
+    }
+
+    /**
+     * @return ease factor in percents.
+     */
+    public int getEase() {
+        return ease;
+    }
+
+    /**
+     * @return current interval between reviews in days.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return number of successful reviews in a row.
+     */
+    public int getRepetitions() {
+        return repetitions;
+    }
+
+    public boolean isNew() {
+        return repetitions == 0 && due == 0;
+    }
+
+    public boolean isDue(long now) {
+        return due <= now;
+    }
+
+    /**
+     * Calculate schedule after review.
+     * @param quality quality of answer.
+     * @param now time of review in milliseconds.
+     * @return new schedule.
+     * @throws IllegalArgumentException if quality is out of range.
+     */
+    public ReviewSchedule next(int quality, long now) {
+        if (quality < QUALITY_MIN || quality > QUALITY_MAX) {
+            throw new IllegalArgumentException("Quality must be in [" + QUALITY_MIN + ", " + QUALITY_MAX + "]: " + quality);
+        }
+        int newRepetitions;
+        int newInterval;
+        if (quality < QUALITY_PASS) {
+            newRepetitions = 0;
+            newInterval = 1;
+        } else {
+            newRepetitions = repetitions + 1;
+            if (newRepetitions == 1) {
+                newInterval = 1;
+            } else if (newRepetitions == 2) {
+                newInterval = 6;
+            } else {
+                newInterval = (int) Math.round(interval * ease / 100.0);
+            }
+        }
+        int q = QUALITY_MAX - quality;
+        int newEase = ease + 10 - q * (8 + q * 2);
+        return new ReviewSchedule(now + newInterval * DAY, newEase, newInterval, newRepetitions);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ReviewSchedule)) {
+            return false;
+        }
+        ReviewSchedule other = (ReviewSchedule) obj;
+        return due == other.due && ease == other.ease
+                && interval == other.interval && repetitions == other.repetitions;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = (int) (due ^ (due >>> 32));
+        hash = 31 * hash + ease;
+        hash = 31 * hash + interval;
+        return 31 * hash + repetitions;
+    }
+
+    @Override
+    public String toString() {
+        return "[due=" + due + ", ease=" + ease + ", interval=" + interval + ", repetitions=" + repetitions + "]";
+    }
+}
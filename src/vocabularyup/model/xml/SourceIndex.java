@@ -0,0 +1,295 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.model.xml;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ids of articles sorted by source, used for lookups and prefix search.<br/>
+ * Sorted ids are kept in int array and sources are read from snapshot of
+ * vocabulary, so index costs 4 bytes per article. Added articles are kept in
+ * small tree and merged to the array when the tree grows, so bulk adding
+ * doesn't move the whole array for each article.<br/>
+ * If store of snapshot keeps sorted ids, e.g. {@link PackedArticleStore}, index
+ * reads them from the store and copies them to heap only when article is renamed
+ * or many articles are added.<br/>
+ * Only the first of articles with equal sources is indexed. Index must be
+ * changed before snapshot with changed article is published.
+ * Index isn't thread-safe, it's guarded by lock of vocabulary.
+ * @author dooman
+ */
+final class SourceIndex {
+    private static final int MIN_MERGED_SIZE = 1024;
+
+    private int[] ids = new int[0];
+    /** Sorted ids of store, used instead of {@link #ids} until index is changed. */
+    private IntBuffer packedIds;
+    private int size;
+    private final TreeMap<String, Integer> added = new TreeMap<String, Integer>();
+
+    /**
+     * Build index of all articles of snapshot.
+     * @param snapshot articles.
+     * @return ids of articles that aren't indexed because other article has the same source.
+     */
+    List<Integer> rebuild(VocabularySnapshot snapshot) {
+        added.clear();
+        IntBuffer order = snapshot.getSourceOrder();
+        if (order != null) {
+            packedIds = order;
+            ids = null;
+            size = order.limit();
+            //duplicates were reported when store was written
+            return new ArrayList<Integer>();
+        }
+        String[] sources = new String[snapshot.size()];
+        for (int id = 0; id < sources.length; id++) {
+            sources[id] = snapshot.getSource(id);
+        }
+        List<Integer> duplicates = new ArrayList<Integer>();
+        packedIds = null;
+        ids = sortUnique(sources, duplicates);
+        size = ids.length;
+        return duplicates;
+    }
+
+    /**
+     * Sort ids of articles by source, e.g. to write them to packed store.
+     * @param store articles.
+     * @return ids, only the first of articles with equal sources is included.
+     */
+    static int[] sortedIds(ArticleStore store) {
+        String[] sources = new String[store.size()];
+        for (int id = 0; id < sources.length; id++) {
+            sources[id] = store.getSource(id);
+        }
+        return sortUnique(sources, new ArrayList<Integer>());
+    }
+
+    private static int[] sortUnique(String[] sources, List<Integer> duplicates) {
+        int count = sources.length;
+        int[] sorted = new int[count];
+        for (int id = 0; id < count; id++) {
+            sorted[id] = id;
+        }
+        sort(sorted, new int[count], 0, count, sources);
+        int unique = 0;
+        for (int id : sorted) {
+            if (unique > 0 && sources[sorted[unique - 1]].equals(sources[id])) {
+                duplicates.add(id);
+            } else {
+                sorted[unique++] = id;
+            }
+        }
+        return unique == count ? sorted : Arrays.copyOf(sorted, unique);
+    }
+
+    int size() {
+        return size + added.size();
+    }
+
+    /**
+     * Find article by source.
+     * @param snapshot the latest snapshot of vocabulary.
+     * @param source source of article.
+     * @return id of article or {@code -1}.
+     */
+    int get(VocabularySnapshot snapshot, String source) {
+        int pos = lowerBound(snapshot, source);
+        if (pos < size && snapshot.getSource(idAt(pos)).equals(source)) {
+            return idAt(pos);
+        }
+        Integer id = added.get(source);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Add article, caller checks that there isn't other article with the same source.
+     * @param snapshot the latest snapshot of vocabulary, it may not contain article yet.
+     * @param id id of article.
+     * @param source source of article.
+     */
+    void add(VocabularySnapshot snapshot, int id, String source) {
+        added.put(source, id);
+        if (added.size() > Math.max(MIN_MERGED_SIZE, size / 16)) {
+            merge(snapshot);
+        }
+    }
+
+    /**
+     * Remove article if it's indexed.
+     * @param snapshot the latest snapshot of vocabulary, article in it has {@code source}.
+     * @param id id of article.
+     * @param source source of article.
+     * @return {@code true} if article was indexed.
+     */
+    boolean remove(VocabularySnapshot snapshot, int id, String source) {
+        int pos = lowerBound(snapshot, source);
+        if (pos < size && idAt(pos) == id) {
+            unpack();
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+        Integer addedId = added.get(source);
+        if (addedId != null && addedId == id) {
+            added.remove(source);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Find articles which sources start with prefix. Bounds of found ids are
+     * found by binary search, so sources of found articles aren't read.
+     * @param snapshot the latest snapshot of vocabulary.
+     * @param prefix prefix of source.
+     * @param limit maximum number of returned ids.
+     * @return ids sorted by source.
+     */
+    int[] findPrefix(VocabularySnapshot snapshot, String prefix, int limit) {
+        int pos = lowerBound(snapshot, prefix);
+        int end = prefix.length() == 0 ? size : prefixEnd(snapshot, prefix, pos);
+        List<Map.Entry<String, Integer>> matched = new ArrayList<Map.Entry<String, Integer>>();
+        for (Map.Entry<String, Integer> e : added.tailMap(prefix, true).entrySet()) {
+            if (!e.getKey().startsWith(prefix) || matched.size() >= limit) {
+                break;
+            }
+            matched.add(e);
+        }
+        int[] result = new int[(int) Math.min(limit, (long) end - pos + matched.size())];
+        int count = 0;
+        for (Map.Entry<String, Integer> e : matched) {
+            int insert = lowerBound(snapshot, e.getKey());
+            while (pos < insert && count < result.length) {
+                result[count++] = idAt(pos++);
+            }
+            if (count == result.length) {
+                break;
+            }
+            result[count++] = e.getValue();
+        }
+        while (count < result.length) {
+            result[count++] = idAt(pos++);
+        }
+        return result;
+    }
+
+    /**
+     * Estimate heap used by index.
+     * @return size in bytes.
+     */
+    long estimateSize() {
+        return 16 + (ids == null ? 0 : 4L * ids.length) + 100L * added.size();
+    }
+
+    private int lowerBound(VocabularySnapshot snapshot, String source) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (snapshot.getSource(idAt(mid)).compareTo(source) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Return position of the first source after {@code from} that doesn't start with prefix.
+     */
+    private int prefixEnd(VocabularySnapshot snapshot, String prefix, int from) {
+        int low = from;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (snapshot.getSource(idAt(mid)).startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void merge(VocabularySnapshot snapshot) {
+        int[] merged = new int[size + added.size()];
+        int count = 0;
+        int pos = 0;
+        for (Map.Entry<String, Integer> e : added.entrySet()) {
+            while (pos < size && snapshot.getSource(idAt(pos)).compareTo(e.getKey()) < 0) {
+                merged[count++] = idAt(pos++);
+            }
+            merged[count++] = e.getValue();
+        }
+        while (pos < size) {
+            merged[count++] = idAt(pos++);
+        }
+        ids = merged;
+        packedIds = null;
+        size = merged.length;
+        added.clear();
+    }
+
+    private int idAt(int pos) {
+        return packedIds != null ? packedIds.get(pos) : ids[pos];
+    }
+
+    /**
+     * Copy ids of store to heap before they are changed or mapped file of store is replaced.
+     */
+    void unpack() {
+        if (packedIds != null) {
+            ids = new int[size];
+            packedIds.get(ids);
+            packedIds = null;
+        }
+    }
+
+    /**
+     * Stable merge sort of ids by sources.
+     */
+    private static void sort(int[] ids, int[] buffer, int from, int to, String[] sources) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(ids, buffer, from, mid, sources);
+        sort(ids, buffer, mid, to, sources);
+        if (sources[ids[mid - 1]].compareTo(sources[ids[mid]]) <= 0) {
+            return;
+        }
+        System.arraycopy(ids, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && sources[buffer[left]].compareTo(sources[buffer[right]]) <= 0)) {
+                ids[i] = buffer[left++];
+            } else {
+                ids[i] = buffer[right++];
+            }
+        }
+    }
+}
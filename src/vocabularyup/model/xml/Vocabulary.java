@@ -17,35 +17,57 @@
 
 package vocabularyup.model.xml;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-import vocabularyup.VocabularyApp;
+import javax.xml.stream.XMLStreamException;
+import vocabularyup.AppEnvironment;
 import vocabularyup.exception.ArticleAlreadyExistException;
 import vocabularyup.exception.VocabularyAlreadyExistException;
 import vocabularyup.exception.VocabularyModelException;
 import vocabularyup.exception.VocabularyNotFoundException;
-import vocabularyup.util.dom.DomCheckHelper;
-import vocabularyup.util.dom.DomCheckingException;
+import vocabularyup.util.collection.IndexedHeap;
 
 /**
- * Vocabulary contains articles. Class realize DOM model for storing data.
+ * Vocabulary contains articles. Articles are packed in columns of primitive
+ * arrays, see {@link ArticleColumns}, and {@link Article} is a light view by id,
+ * so vocabulary costs about the size of its text.<br/>
+ * Packed vocabulary is kept in memory-mapped file instead of heap, see
+ * {@link PackedArticleStore}. Opening of packed vocabulary doesn't read its articles,
+ * so large reference dictionaries are opened at once and don't load GC.
+ * Changes of packed vocabulary are kept in heap until it's saved.<br/>
+ * Vocabulary is thread-safe: lookups and searches are done under read lock,
+ * modifications of vocabulary and its articles - under write lock.
+ * After each modification vocabulary publishes new immutable {@link VocabularySnapshot},
+ * saving and other long readers work with snapshot and don't lock vocabulary.<br/>
+ * Articles with translates are kept in review queue ordered by time of the next
+ * review and in rating index, so words for test are taken without scanning
+ * the whole vocabulary. Indexes keep article ids in primitive arrays too,
+ * they are built when words for test are requested first time.<br/>
+ * Ratings and review schedules may be saved to small journal file instead of
+ * the whole vocabulary, see {@link #saveRatings(java.util.Collection)}.<br/>
+ * Tests change ratings in lock-free {@link RatingCounters}, changed ratings
+ * are written to articles in batches by {@link #flushRatings()}.
  *
  * TODO: create interface and factory for different implementations.
  * @author 111
@@ -55,64 +77,799 @@ public class Vocabulary {
     public static final String VOCABULARY_NAME_ATTR = "name";
 
     private static final Logger log = Logger.getLogger("XMLVocabulary");
+    /** Journal of new articles smaller than this isn't merged into vocabulary file. */
+    private static final long MIN_COMPACTED_JOURNAL_SIZE = 64 * 1024;
 
-    private Document document;
-    private Element  element;
-    private List<Article> articles = new ArrayList<Article>();
+    /** Order of review queue: the earliest due first, then by id. */
+    public static final Comparator<ArticleSnapshot> DUE_ORDER = new Comparator<ArticleSnapshot>() {
+        @Override
+        public int compare(ArticleSnapshot a1, ArticleSnapshot a2) {
+            long due1 = a1.getSchedule().getDue();
+            long due2 = a2.getSchedule().getDue();
+            if (due1 != due2) {
+                return due1 < due2 ? -1 : 1;
+            }
+            return compareIds(a1, a2);
+        }
+    };
+
+    /** Order of rating index: the lowest rating first, then by id. */
+    public static final Comparator<ArticleSnapshot> RATING_ORDER = new Comparator<ArticleSnapshot>() {
+        @Override
+        public int compare(ArticleSnapshot a1, ArticleSnapshot a2) {
+            if (a1.getRatingValue() != a2.getRatingValue()) {
+                return a1.getRatingValue() < a2.getRatingValue() ? -1 : 1;
+            }
+            return compareIds(a1, a2);
+        }
+    };
+
+    private static int compareIds(ArticleSnapshot a1, ArticleSnapshot a2) {
+        return a1.getId() < a2.getId() ? -1 : (a1.getId() == a2.getId() ? 0 : 1);
+    }
+
+    /** Shared strings of all vocabularies loaded by process, see {@link #getLoadedSharedBytes()}. */
+    private static final AtomicLong loadedSharedStrings = new AtomicLong();
+    private static final AtomicLong loadedSharedBytes = new AtomicLong();
+
+    private volatile String name;
+    private volatile VocabularySnapshot snapshot;
+    /** Version of snapshot that is in vocabulary's file, -1 if vocabulary isn't saved yet. */
+    private volatile long savedVersion = -1;
+    /** Vocabulary is saved to packed file instead of XML. */
+    private volatile boolean packed;
+    /** Length of articles journal which records are in vocabulary, guarded by {@link #saveLock}. */
+    private long addedJournalLength;
+    /** Articles sorted by source, used for lookups and prefix search. */
+    private final SourceIndex sourceIndex = new SourceIndex();
+    /** Testable articles ordered by time of the next review. */
+    private final IndexedHeap reviewQueue = new IndexedHeap();
+    /** Testable articles ordered by rating. */
+    private final IndexedHeap ratingIndex = new IndexedHeap();
+    /** Review queue and rating index are built, they are changed with articles. */
+    private volatile boolean testIndexesBuilt;
+    /** Undo logs of active transactions, changes made by their threads are recorded. */
+    private final List<VocabularyTransaction.UndoLog> undoLogs = new CopyOnWriteArrayList<VocabularyTransaction.UndoLog>();
+    /** Ratings from counters are written to articles, guarded by write lock. */
+    private boolean flushingRatings;
+    /** Vocabulary is dropped from memory, its file belongs to vocabulary loaded again. */
+    private volatile boolean detached;
+
+    /** Live ratings, they are changed without lock and written to articles by {@link #flushRatings()}. */
+    private final RatingCounters ratingCounters = new RatingCounters(new RatingCounters.InitialRatings() {
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+
+        @Override
+        public int getRating(int id) {
+            return snapshot.getRatingValue(id);
+        }
+    });
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Only one thread writes vocabulary's file at the same time. */
+    private final Lock saveLock = new ReentrantLock();
+
+    private Vocabulary(String name, ArticleStore articles, boolean packed) {
+        this.name = name;
+        this.packed = packed;
+        this.snapshot = VocabularySnapshot.of(this, name, 0, articles);
+        rebuildIndexes();
+        log.log(Level.INFO, "Loaded [" + articles.size() + "] articles for vocabulary [" + name + "], ["
+                + articles.getTextSize() + "] bytes of text" + (packed ? " mapped" : "") + ", ["
+                + articles.getDuplicates() + "] shared strings, [" + articles.getSharedBytes() + "] bytes saved");
+        loadedSharedStrings.addAndGet(articles.getDuplicates());
+        loadedSharedBytes.addAndGet(articles.getSharedBytes());
+    }
+
+    /**
+     * Build source index for articles of current snapshot, test indexes
+     * are built later and counters read ratings of current snapshot.
+     */
+    private void rebuildIndexes() {
+        VocabularySnapshot current = snapshot;
+        for (int id : sourceIndex.rebuild(current)) {
+            log.log(Level.WARNING, "Duplicate article [" + current.getSource(id) + "] in vocabulary [" + name + "]");
+        }
+        reviewQueue.clear();
+        ratingIndex.clear();
+        testIndexesBuilt = false;
+        ratingCounters.reload();
+    }
 
-    private Vocabulary(Document document, Element element) {
-        this.document = document;
-        this.element = element;
+    /**
+     * Build review queue and rating index if they aren't built yet.
+     * Must not be called under read lock.
+     */
+    private void ensureTestIndexes() {
+        if (testIndexesBuilt) {
+            return;
+        }
+        lock.writeLock().lock();
         try {
-            List<Element> articlesEl = DomCheckHelper.getElementsByTagName(element, Article.ARTICLE_ELEMENT, 0, false);
-            for (Element el : articlesEl) {
-                try {
-                    articles.add(Article.loadArticle(document, el));
-                } catch (Exception e) {
-                    log.log(Level.SEVERE, "Error loading article", e);
+            if (testIndexesBuilt) {
+                return;
+            }
+            VocabularySnapshot current = snapshot;
+            reviewQueue.ensureCapacity(current.size());
+            ratingIndex.ensureCapacity(current.size());
+            for (int id = 0; id < current.size(); id++) {
+                if (current.isTestable(id)) {
+                    reviewQueue.set(id, current.getDue(id));
+                    ratingIndex.set(id, current.getRatingValue(id));
                 }
             }
-            log.log(Level.INFO, "Loaded [" + articles.size() + "] articles for vocabulary [" + getName() + "]");
-        } catch (DomCheckingException e) {
-            log.log(Level.WARNING, "No articles in vocabulary [" + getName() + "]");
+            testIndexesBuilt = true;
+            log.fine("Built test indexes of vocabulary [" + name + "], [" + reviewQueue.size() + "] testable articles");
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public String getName() {
-        return element.getAttribute(VOCABULARY_NAME_ATTR);
+        return name;
     }
 
     public void setName(String name) {
-        element.setAttribute(VOCABULARY_NAME_ATTR, name);
+        lock.writeLock().lock();
+        try {
+            this.name = name;
+            snapshot = snapshot.withName(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
-     * Save vocabulary to file. Delete old file and create new, write DOM structure after creating.
-     * @throws vocabularyup.exception.VocabularyModelException Error transformation DOM to File.
+     * Lock of vocabulary. Use it when several operations must be done atomically,
+     * e.g. read rating of article and set new value.
+     * @return read/write lock of this vocabulary.
      */
-    public void save() throws VocabularyModelException {
-        String fileName = VocabularyApp.APP_HOME_DIR + "/" + getName() + ".xml";
-        File file = new File(fileName);
-        if (file.exists()) {
-            file.delete();
+    public ReadWriteLock getLock() {
+        return lock;
+    }
+
+    /**
+     * Return counters of ratings and answers indexed by article id.
+     * @return counters of this vocabulary.
+     */
+    public RatingCounters getRatingCounters() {
+        return ratingCounters;
+    }
+
+    /**
+     * Write changed ratings from counters to articles, so they are published
+     * in snapshot and may be saved. All changed ratings are written under one
+     * write lock.
+     * @return articles with written ratings, possibly changed by other threads.
+     */
+    public List<Article> flushRatings() {
+        List<Integer> ids = ratingCounters.drainChanged();
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Article> flushed = new ArrayList<Article>(ids.size());
+        lock.writeLock().lock();
+        flushingRatings = true;
+        try {
+            for (int id : ids) {
+                if (id < snapshot.size()) {
+                    Article article = new Article(this, id);
+                    article.applyRating(ratingCounters.getRating(id));
+                    flushed.add(article);
+                }
+            }
+        } finally {
+            flushingRatings = false;
+            lock.writeLock().unlock();
+        }
+        log.fine("Flushed [" + flushed.size() + "] ratings of vocabulary [" + name + "]");
+        return flushed;
+    }
+
+    /**
+     * Has vocabulary changes that aren't written to its file by {@link #save()}.
+     * Changes saved to journals only are treated as not saved.
+     * @return {@code true} if vocabulary must be saved before it's dropped.
+     */
+    public boolean isDirty() {
+        return snapshot.getVersion() != savedVersion || ratingCounters.hasChanges();
+    }
+
+    /**
+     * Return current immutable version of vocabulary.
+     * @return the latest snapshot, never {@code null}.
+     */
+    public VocabularySnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publish changed article in the new snapshot.
+     * Called by article under write lock.
+     * @param current new state of article, it replaces article with the same id or is added.
+     */
+    void articleChanged(ArticleSnapshot current) {
+        if (detached) {
+            throw new IllegalStateException("Vocabulary [" + name + "] is dropped from memory, get it by name again");
+        }
+        int id = current.getId();
+        if (!undoLogs.isEmpty()) {
+            recordUndo(current);
+        }
+        if (id >= snapshot.size()) {
+            sourceIndex.add(snapshot, id, current.getSource());
+        } else {
+            String oldSource = snapshot.getSource(id);
+            if (!oldSource.equals(current.getSource()) && sourceIndex.remove(snapshot, id, oldSource)) {
+                if (sourceIndex.get(snapshot, current.getSource()) < 0) {
+                    sourceIndex.add(snapshot, id, current.getSource());
+                } else {
+                    log.warning("Duplicate article [" + current.getSource() + "] in vocabulary [" + name + "]");
+                }
+            }
+        }
+        //indexes that aren't built yet will be built from snapshot
+        if (testIndexesBuilt) {
+            if (current.isTestable()) {
+                reviewQueue.set(id, current.getSchedule().getDue());
+                ratingIndex.set(id, current.getRatingValue());
+            } else {
+                reviewQueue.remove(id);
+                ratingIndex.remove(id);
+            }
+        }
+        snapshot = snapshot.withArticle(current);
+    }
+
+    /**
+     * Record change in undo logs of transactions. Flushed ratings are exported
+     * from counters, they aren't changes of transaction and only update states
+     * of articles written by transactions.
+     */
+    private void recordUndo(ArticleSnapshot current) {
+        int id = current.getId();
+        ArticleSnapshot old = id < snapshot.size() ? snapshot.getArticle(id) : null;
+        for (VocabularyTransaction.UndoLog undo : undoLogs) {
+            if (flushingRatings) {
+                undo.ratingFlushed(current);
+            } else if (undo.isOwnThread()) {
+                undo.record(old, current);
+            }
+        }
+    }
+
+    /**
+     * Start recording changes made by transaction's thread.
+     * @param undo undo log of transaction.
+     */
+    void addUndoLog(VocabularyTransaction.UndoLog undo) {
+        undoLogs.add(undo);
+    }
+
+    /**
+     * Stop recording changes, e.g. when transaction is committed.
+     * @param undo undo log of transaction.
+     */
+    void removeUndoLog(VocabularyTransaction.UndoLog undo) {
+        undoLogs.remove(undo);
+    }
+
+    /**
+     * Undo changes recorded in undo log and stop recording. Articles changed
+     * by other threads after transaction keep their state, added article is
+     * removed only if it's the last one, so ids of other articles aren't changed.
+     * Ratings changed by transaction are subtracted from counters, so ratings
+     * changed by other threads are kept.
+     * @param undo undo log of transaction.
+     */
+    void undo(VocabularyTransaction.UndoLog undo) {
+        lock.writeLock().lock();
+        try {
+            undoLogs.remove(undo);
+            List<Integer> ids = new ArrayList<Integer>(undo.getChangedIds());
+            //the last added article is removed first
+            Collections.reverse(ids);
+            for (int id : ids) {
+                ArticleSnapshot current = id < snapshot.size() ? snapshot.getArticle(id) : null;
+                if (current == null || !current.equals(undo.getWritten(id))) {
+                    log.warning("Article [" + id + "] of vocabulary [" + name + "] was changed by other thread, it isn't rolled back");
+                    continue;
+                }
+                ArticleSnapshot before = undo.getBefore(id);
+                if (before != null) {
+                    articleChanged(before.withRating(current.getRatingValue()));
+                } else if (id == snapshot.size() - 1) {
+                    removeLastArticle();
+                } else {
+                    log.warning("Article [" + current.getSource() + "] isn't removed from vocabulary ["
+                            + name + "], other articles were added after it");
+                }
+            }
+            for (Map.Entry<Integer, Integer> e : undo.getRatingDeltas().entrySet()) {
+                ratingCounters.add(e.getKey(), -e.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flushRatings();
+    }
+
+    private void removeLastArticle() {
+        int id = snapshot.size() - 1;
+        sourceIndex.remove(snapshot, id, snapshot.getSource(id));
+        reviewQueue.remove(id);
+        ratingIndex.remove(id);
+        snapshot = snapshot.withoutLast();
+    }
+
+    /**
+     * Return articles that should be reviewed first: the most overdue articles,
+     * then articles with the nearest time of review. Articles without translates
+     * aren't returned.
+     * @param count maximum number of articles.
+     * @return articles ordered by time of the next review.
+     */
+    public List<ArticleSnapshot> getArticlesForReview(int count) {
+        ensureTestIndexes();
+        lock.readLock().lock();
+        try {
+            return articles(reviewQueue.first(count));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return articles with the lowest rating. Articles without translates
+     * aren't returned.
+     * @param count maximum number of articles.
+     * @return articles ordered by rating.
+     */
+    public List<ArticleSnapshot> getWeakestArticles(int count) {
+        ensureTestIndexes();
+        lock.readLock().lock();
+        try {
+            return articles(ratingIndex.first(count));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ArticleSnapshot> articles(int[] ids) {
+        VocabularySnapshot current = snapshot;
+        List<ArticleSnapshot> result = new ArrayList<ArticleSnapshot>(ids.length);
+        for (int id : ids) {
+            result.add(current.getArticle(id));
+        }
+        return result;
+    }
+
+    /**
+     * Pack articles changed after loading to new columns, if vocabulary
+     * wasn't changed while columns were built.
+     * @param version the latest saved version.
+     */
+    private void compact(VocabularySnapshot version) {
+        if (version.getChangeCount() == 0) {
+            return;
+        }
+        VocabularySnapshot compacted = version.compact();
+        lock.writeLock().lock();
+        try {
+            if (snapshot == version) {
+                snapshot = compacted;
+                log.fine("Vocabulary [" + name + "] compacted, [" + version.getChangeCount() + "] changed articles packed");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of translates and examples of packed articles that are stored as references to equal string.
+     */
+    public int getSharedStrings() {
+        return snapshot.getStore().getDuplicates();
+    }
+
+    /**
+     * @return bytes of text saved by sharing equal strings of packed articles.
+     */
+    public long getSharedBytes() {
+        return snapshot.getStore().getSharedBytes();
+    }
+
+    /**
+     * @return number of shared strings in all vocabularies loaded by process.
+     */
+    public static long getLoadedSharedStrings() {
+        return loadedSharedStrings.get();
+    }
+
+    /**
+     * Equal translates and examples are stored once per vocabulary, see {@link ArticleColumns}.
+     * @return bytes of text saved by sharing equal strings in all vocabularies loaded by process.
+     */
+    public static long getLoadedSharedBytes() {
+        return loadedSharedBytes.get();
+    }
+
+    /**
+     * Estimate heap used by vocabulary: articles, indexes and counters.
+     * Vocabulary isn't locked, so estimate may miss concurrent changes.
+     * @return size in bytes.
+     */
+    public long estimateHeapSize() {
+        //16 bytes per id in each heap
+        return snapshot.estimateSize() + sourceIndex.estimateSize()
+                + 16L * (reviewQueue.size() + ratingIndex.size()) + ratingCounters.estimateSize();
+    }
+
+    /**
+     * Detach vocabulary from its files when it's dropped from memory. Detached
+     * vocabulary can't be changed or saved, so holder of dropped vocabulary
+     * doesn't overwrite file of vocabulary loaded again.
+     * @return {@code false} if vocabulary has unsaved changes or is being
+     *   changed or saved now, it isn't detached then.
+     */
+    public boolean detach() {
+        if (!saveLock.tryLock()) {
+            return false;
+        }
+        try {
+            if (!lock.writeLock().tryLock()) {
+                return false;
+            }
+            try {
+                if (isDirty()) {
+                    return false;
+                }
+                detached = true;
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private void checkAttached() throws VocabularyModelException {
+        if (detached) {
+            throw new VocabularyModelException("Vocabulary [" + name + "] is dropped from memory, it isn't saved");
         }
-        log.log(Level.INFO, "Save vocabulary to " + fileName);
+    }
+
+    /**
+     * Save vocabulary to file. Delete old file and create new, write the latest snapshot after creating.
+     * Packed file is written to temporary file which replaces old one, articles are moved
+     * from the old mapping to heap before, see {@link #setPacked(boolean)}.
+     * Vocabulary isn't locked while writing, so it may be changed and searched in parallel.
+     * @throws vocabularyup.exception.VocabularyModelException Error writing snapshot to File.
+     */
+    public void save() throws VocabularyModelException {
+        saveLock.lock();
         try {
-            if (file.createNewFile()) {
-                DOMSource source = new DOMSource(element);
-                TransformerFactory tFactory = TransformerFactory.newInstance();
-                tFactory.setAttribute("indent-number", 4);
-                Transformer t = tFactory.newTransformer();
-                FileOutputStream fos = new FileOutputStream(file);
-                t.setOutputProperty(OutputKeys.INDENT, "yes");
-                t.transform(source, new StreamResult(fos));
-                fos.flush();
-                fos.close();
+            checkAttached();
+            VocabularySnapshot version = snapshot;
+            File file = AppEnvironment.getVocabularyFile(version.getName(), packed);
+            log.log(Level.INFO, "Save vocabulary version [" + version.getVersion() + "] to " + file);
+            if (packed) {
+                savePacked(version, file);
+                savedVersion = version.getVersion();
+            } else {
+                if (file.exists()) {
+                    file.delete();
+                }
+                if (file.createNewFile()) {
+                    OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+                    try {
+                        VocabularyXmlWriter.write(version, out);
+                    } finally {
+                        out.close();
+                    }
+                    savedVersion = version.getVersion();
+                    compact(version);
+                }
             }
+            //journal records are applied to memory before writing, so they are in saved version
+            File journal = journalFile(version.getName());
+            if (journal.exists() && !journal.delete()) {
+                log.warning("Cann't delete ratings journal " + journal);
+            }
+            //other process may append articles while vocabulary is saved, they are kept in journal
+            File added = addedArticlesFile(version.getName());
+            ArticleJournal.Records kept = ArticleJournal.truncate(added, addedJournalLength);
+            addedJournalLength = kept.end;
+            replayAddedArticles(kept.entries, added);
         } catch (Exception e) {
             log.log(Level.SEVERE, "Error saving vocabulary", e);
             throw new VocabularyModelException("Error save vocabulary " + getName(), e);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * Write snapshot to packed file and map it instead of articles in heap
+     * if vocabulary wasn't changed while file was written.
+     * Mapped file can't be replaced on Windows, so articles are moved to heap before.
+     * @param version saved snapshot.
+     * @param file vocabulary file.
+     * @throws IOException error writing file or old file is still mapped.
+     */
+    private void savePacked(VocabularySnapshot version, File file) throws IOException {
+        ArticleColumns columns = version.toColumns();
+        File tmp = new File(file.getPath() + ".tmp");
+        long bytes = PackedArticleStore.write(tmp, version.getName(), columns, SourceIndex.sortedIds(columns));
+        releaseMapping(version, columns);
+        if (!tmp.renameTo(file) && !(deleteUnmapped(file) && tmp.renameTo(file))) {
+            throw new IOException("Cann't replace " + file + " by " + tmp);
+        }
+        PackedArticleStore store = PackedArticleStore.open(file);
+        lock.writeLock().lock();
+        try {
+            //version isn't changed if snapshot was only moved to heap, so articles are the same
+            //and test indexes and counters stay valid
+            if (snapshot.getVersion() == version.getVersion()) {
+                snapshot = VocabularySnapshot.of(this, version.getName(), version.getVersion(), store);
+                sourceIndex.rebuild(snapshot);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
+        log.fine("Written [" + bytes + "] bytes of packed vocabulary [" + version.getName() + "]");
+    }
+
+    /**
+     * Move articles from mapped store to heap columns, so the file may be replaced or deleted.
+     * Current snapshot keeps its changes over columns if it's based on the same store.
+     * @param version snapshot that columns are packed from.
+     * @param columns all articles of {@code version}.
+     */
+    private void releaseMapping(VocabularySnapshot version, ArticleColumns columns) {
+        if (!(version.getStore() instanceof PackedArticleStore)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (snapshot.getStore() == version.getStore()) {
+                snapshot = snapshot.withStore(columns);
+                sourceIndex.unpack();
+                log.fine("Articles of vocabulary [" + name + "] are moved to heap from mapped file");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete file that was mapped. Mapping is released only when its buffer is collected,
+     * till then Windows doesn't allow deleting file, so deleting is retried once after GC.
+     * Snapshots kept by readers, e.g. running export, keep mapping too.
+     * @return {@code true} if file is deleted.
+     */
+    private static boolean deleteUnmapped(File file) {
+        if (file.delete()) {
+            return true;
+        }
+        System.gc();
+        System.runFinalization();
+        return file.delete();
+    }
+
+    public boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * Change format of vocabulary file. Vocabulary is saved in new format
+     * and file in old format is deleted, packed file is deleted after its articles are moved to heap.
+     * @param packed save vocabulary to memory-mapped packed file instead of XML.
+     * @throws VocabularyModelException error saving vocabulary, format isn't changed.
+     */
+    public void setPacked(boolean packed) throws VocabularyModelException {
+        saveLock.lock();
+        try {
+            if (this.packed == packed) {
+                return;
+            }
+            File old = AppEnvironment.getVocabularyFile(name, this.packed);
+            this.packed = packed;
+            try {
+                save();
+            } catch (VocabularyModelException e) {
+                this.packed = !packed;
+                throw e;
+            }
+            VocabularySnapshot version = snapshot;
+            if (!packed && version.getStore() instanceof PackedArticleStore) {
+                releaseMapping(version, version.toColumns());
+            }
+            if (old.exists() && !deleteUnmapped(old)) {
+                log.warning("Cann't delete old vocabulary file " + old);
+            }
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * Save ratings and review schedules of articles to journal file, other
+     * changes aren't saved. It costs a few bytes per article instead of
+     * rewriting the whole file. Journal is merged to vocabulary's file by {@link #save()}.
+     * If vocabulary's file doesn't exist yet, the whole vocabulary is saved.
+     * @param changed articles of this vocabulary, their current state is saved.
+     * @throws VocabularyModelException error writing journal.
+     */
+    public void saveRatings(Collection<Article> changed) throws VocabularyModelException {
+        saveLock.lock();
+        try {
+            checkAttached();
+            VocabularySnapshot version = snapshot;
+            if (!AppEnvironment.getVocabularyFile(version.getName(), packed).exists()) {
+                save();
+                return;
+            }
+            List<ArticleSnapshot> states = new ArrayList<ArticleSnapshot>(changed.size());
+            for (Article a : changed) {
+                states.add(version.getArticle(a.getId()));
+            }
+            File journal = journalFile(version.getName());
+            int bytes = RatingJournal.append(journal, states);
+            log.log(Level.INFO, "Save [" + states.size() + "] ratings, [" + bytes + "] bytes to " + journal);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Error saving ratings", e);
+            throw new VocabularyModelException("Error save ratings of vocabulary " + getName(), e);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * Save new articles to journal file instead of the whole vocabulary.
+     * If vocabulary was never saved or journal becomes large comparing with
+     * vocabulary file, the whole vocabulary is saved.
+     * @param added new articles of this vocabulary.
+     * @throws VocabularyModelException error writing journal.
+     */
+    public void saveAddedArticles(Collection<Article> added) throws VocabularyModelException {
+        saveLock.lock();
+        try {
+            checkAttached();
+            VocabularySnapshot version = snapshot;
+            File file = AppEnvironment.getVocabularyFile(version.getName(), packed);
+            File journal = addedArticlesFile(version.getName());
+            if (!file.exists() || journal.length() > Math.max(MIN_COMPACTED_JOURNAL_SIZE, file.length() / 4)) {
+                save();
+                return;
+            }
+            List<ArticleJournal.Entry> entries = new ArrayList<ArticleJournal.Entry>(added.size());
+            for (Article a : added) {
+                ArticleSnapshot state = version.getArticle(a.getId());
+                entries.add(new ArticleJournal.Entry(state.getSource(), state.getTranslates(), state.getExamples()));
+            }
+            long start = addedJournalLength;
+            ArticleJournal.Records missed = ArticleJournal.append(journal, entries, addedJournalLength);
+            addedJournalLength = missed.end;
+            log.log(Level.INFO, "Save [" + entries.size() + "] new articles to " + journal + ", ["
+                    + (missed.end - start) + "] bytes");
+            if (!missed.entries.isEmpty()) {
+                //articles appended by other process get ids after articles of this vocabulary,
+                //they are saved to vocabulary file, so ids don't change after loading
+                replayAddedArticles(missed.entries, journal);
+                save();
+            }
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Error saving new articles", e);
+            throw new VocabularyModelException("Error save new articles of vocabulary " + getName(), e);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * Add article to vocabulary file without loading it. Article is appended
+     * to journal and appears in vocabulary when vocabulary is loaded next time;
+     * if vocabulary already has article with the same source, new article is ignored.
+     * Application that has loaded vocabulary replays article when it saves vocabulary.
+     * @param vocabularyName name of vocabulary.
+     * @param source source word.
+     * @param translates translates of new word.
+     * @param examples usages of new word, may be {@code null}.
+     * @throws VocabularyNotFoundException if vocabulary file doesn't exist.
+     * @throws VocabularyModelException error writing journal.
+     */
+    public static void appendArticle(String vocabularyName, String source, List<String> translates, List<String> examples)
+            throws VocabularyNotFoundException, VocabularyModelException {
+        if (!AppEnvironment.getVocabularyFile(vocabularyName).exists()) {
+            throw new VocabularyNotFoundException(vocabularyName);
+        }
+        File journal = addedArticlesFile(vocabularyName);
+        try {
+            ArticleJournal.append(journal, Collections.singletonList(new ArticleJournal.Entry(source, translates, examples)));
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Error appending article to " + journal, e);
+            throw new VocabularyModelException("Error append article to vocabulary " + vocabularyName, e);
+        }
+    }
+
+    /**
+     * Add articles from journal after loading.
+     */
+    private void replayAddedArticles() {
+        File journal = addedArticlesFile(name);
+        try {
+            ArticleJournal.Records records = ArticleJournal.read(journal, 0);
+            addedJournalLength = records.end;
+            replayAddedArticles(records.entries, journal);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Error reading articles journal " + journal, e);
+        }
+    }
+
+    private void replayAddedArticles(List<ArticleJournal.Entry> entries, File journal) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (ArticleJournal.Entry e : entries) {
+            try {
+                addArticle(e.source, e.translates, e.examples);
+            } catch (ArticleAlreadyExistException ex) {
+                log.warning("Article [" + e.source + "] from " + journal + " already exists");
+            }
+        }
+        log.info("Replayed [" + entries.size() + "] new articles from " + journal);
+    }
+
+    /**
+     * Apply ratings from journal after loading.
+     */
+    private void replayJournal() {
+        File journal = journalFile(name);
+        try {
+            List<RatingJournal.Entry> entries = RatingJournal.read(journal);
+            if (entries.isEmpty()) {
+                return;
+            }
+            for (RatingJournal.Entry e : entries) {
+                if (e.articleId >= snapshot.size()) {
+                    log.warning("Unknown article [" + e.articleId + "] in " + journal);
+                    continue;
+                }
+                Article article = new Article(this, e.articleId);
+                if (article.getRatingValue() != e.rating) {
+                    article.setRating(String.valueOf(e.rating));
+                }
+                if (!article.getSchedule().equals(e.schedule)) {
+                    article.setSchedule(e.schedule);
+                }
+            }
+            log.info("Replayed [" + entries.size() + "] ratings from " + journal);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Error reading ratings journal " + journal, e);
+        }
+    }
+
+    /**
+     * Return ratings journal of vocabulary, see {@link #saveRatings(java.util.Collection)}.
+     * @param vocabularyName name of vocabulary.
+     * @return journal file, it exists only if ratings were saved after the last save of vocabulary.
+     */
+    public static File journalFile(String vocabularyName) {
+        return new File(AppEnvironment.APP_HOME_DIR, vocabularyName + RatingJournal.JOURNAL_FILE_EXTENSION);
+    }
+
+    /**
+     * Return journal of new articles, see {@link #saveAddedArticles(java.util.Collection)}.
+     * @param vocabularyName name of vocabulary.
+     * @return journal file, it's empty or doesn't exist if articles weren't added after the last save of vocabulary.
+     */
+    public static File addedArticlesFile(String vocabularyName) {
+        return new File(AppEnvironment.APP_HOME_DIR, vocabularyName + ArticleJournal.JOURNAL_FILE_EXTENSION);
     }
 
     /**
@@ -125,26 +882,103 @@ public class Vocabulary {
      * @throws ArticleAlreadyExistException when article with the same {@code source} already exists in the vocabulary.
      */
     public Article addArticle(String source, List<String> translates, List<String> examples) throws ArticleAlreadyExistException {
-        if (getArticle(source) != null) {
-            throw new ArticleAlreadyExistException("Article with source [" + source + "] already exists");
+        lock.writeLock().lock();
+        try {
+            if (getArticle(source) != null) {
+                throw new ArticleAlreadyExistException("Article with source [" + source + "] already exists");
+            }
+            int id = snapshot.size();
+            articleChanged(new ArticleSnapshot(this, id, source, ArticleSnapshot.cleanTranslates(translates),
+                    ArticleSnapshot.copyExamples(examples), 0, ReviewSchedule.NEW));
+            ratingCounters.set(id, 0);
+            return new Article(this, id);
+        } finally {
+            lock.writeLock().unlock();
         }
-        Article article = new Article(document, source, translates);
-        if (examples != null && examples.size() > 0) {
-            article.addExamples(examples);
+    }
+
+    /**
+     * Change source of article and keep source index in actual state.
+     * @param article article from this vocabulary.
+     * @param newSource new source word.
+     * @throws ArticleAlreadyExistException when other article with {@code newSource} already exists.
+     */
+    public void renameArticle(Article article, String newSource) throws ArticleAlreadyExistException {
+        lock.writeLock().lock();
+        try {
+            String oldSource = article.getSource();
+            if (oldSource.equals(newSource)) {
+                return;
+            }
+            int exists = sourceIndex.get(snapshot, newSource);
+            if (exists >= 0 && exists != article.getId()) {
+                throw new ArticleAlreadyExistException("Article with source [" + newSource + "] already exists");
+            }
+            article.setSource(newSource);
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        articles.add(article);
-        element.appendChild(article.buildArticleElement());
+    /**
+     * Find articles which sources start with {@code prefix}.
+     * @param prefix prefix of source, empty string matches all articles.
+     * @return found articles sorted by source or empty list, list may be changed.
+     */
+    public ArticleList findArticles(String prefix) {
+        return findArticles(prefix, Integer.MAX_VALUE);
+    }
 
-        return article;
+    /**
+     * Find the first articles which sources start with {@code prefix}.
+     * Search stops after {@code limit} articles.
+     * @param prefix prefix of source, empty string matches all articles.
+     * @param limit maximum number of found articles.
+     * @return found articles sorted by source or empty list, list may be changed.
+     */
+    public ArticleList findArticles(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return new ArticleList(this, sourceIndex.findPrefix(snapshot, prefix, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
      * Return vocabularie's articles.
-     * @return list of articles or empty list if vocabulary hasn't articles.
+     * @return unmodifiable list of articles that were in vocabulary when method was called.
      */
     public List<Article> getArticles() {
-        return articles;
+        final int size = snapshot.size();
+        return new AbstractList<Article>() {
+            @Override
+            public Article get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+                }
+                return new Article(Vocabulary.this, index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Return article by id.
+     * @param id id of article, see {@link Article#getId()}.
+     * @return article.
+     * @throws IndexOutOfBoundsException if there isn't article with this id.
+     */
+    public Article getArticle(int id) {
+        int size = snapshot.size();
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Index: " + id + ", size: " + size);
+        }
+        return new Article(this, id);
     }
 
     /**
@@ -153,13 +987,13 @@ public class Vocabulary {
      * @return article or {@code null}, if article with this sourse does not exists
      */
     public Article getArticle(String source) {
-        for (Article a : articles) {
-            if (source.equals(a.getSource())) {
-                return a;
-            }
+        lock.readLock().lock();
+        try {
+            int id = sourceIndex.get(snapshot, source);
+            return id < 0 ? null : new Article(this, id);
+        } finally {
+            lock.readLock().unlock();
         }
-
-        return null;
     }
 
     @Override
@@ -173,32 +1007,21 @@ public class Vocabulary {
      * @param name vocabulary's name.
      * @return created vocabulary.
      * @throws VocabularyAlreadyExistException vocabulary with name - {@code name} already exist
-     * @throws VocabularyModelException DOM error.
+     * @throws VocabularyModelException never thrown, kept for other implementations.
      */
     public static Vocabulary newVocabulary(String name) 
     throws VocabularyAlreadyExistException, VocabularyModelException {
-        File file = new File(VocabularyApp.APP_HOME_DIR + "/" + name + ".xml");
+        File file = AppEnvironment.getVocabularyFile(name);
         if (file.exists()) {
             throw new VocabularyAlreadyExistException(name);
         }
-        Vocabulary vocabulary = null;
-        try { //создаем дом-документ.
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.newDocument();
-            Element root = document.createElement(VOCABULARY_ELEMENT);
-            root.setAttribute(VOCABULARY_NAME_ATTR, name);
-            vocabulary = new Vocabulary(document, root);
-        } catch (ParserConfigurationException pce) {
-            throw new VocabularyModelException(name, pce);
-        }
-
-        return vocabulary;
+        return new Vocabulary(name, ArticleColumns.EMPTY, false);
     }
 
     /**
      * Load vocabulary with name - {@code name}.
-     * @param file Source file.
+     * Packed file is mapped to memory, its articles are read when they are used.
+     * @param file Source file, XML or packed.
      * @return loaded vocabulary
      * @throws vocabularyup.exception.VocabularyNotFoundException vocabulary with name - {@code name} doesnot exist.
      * @throws vocabularyup.exception.VocabularyModelException parse error
@@ -210,18 +1033,30 @@ public class Vocabulary {
         }
         Vocabulary vocabulary = null;
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(file);
-            NodeList list = document.getElementsByTagName(VOCABULARY_ELEMENT);
-            if (list.getLength() != 1) {
-                throw new VocabularyModelException("More than one vocabulary element");
+            if (file.getName().endsWith(AppEnvironment.PACKED_VOCABULARY_FILE_EXTENSION)) {
+                PackedArticleStore store = PackedArticleStore.open(file);
+                vocabulary = new Vocabulary(store.getName(), store, true);
+            } else {
+                ArticleColumns.Builder builder = new ArticleColumns.Builder();
+                String name;
+                InputStream in = new BufferedInputStream(new FileInputStream(file));
+                try {
+                    name = VocabularyXmlReader.read(in, builder);
+                } finally {
+                    in.close();
+                }
+                vocabulary = new Vocabulary(name, builder.build(), false);
             }
-            Element root = (Element) list.item(0);
-            vocabulary = new Vocabulary(document, root);
-        } catch(ParserConfigurationException e) {
-            throw new VocabularyModelException(file.getName(), e);
-        } catch(SAXException e) {
+            //ratings journal may refer to added articles
+            vocabulary.replayAddedArticles();
+            vocabulary.replayJournal();
+            //changes of packed vocabulary stay in heap, they are small comparing with mapped file
+            if (!vocabulary.packed && vocabulary.snapshot.getChangeCount() > 0) {
+                vocabulary.snapshot = vocabulary.snapshot.compact();
+            }
+            //replayed changes are kept by journals
+            vocabulary.savedVersion = vocabulary.snapshot.getVersion();
+        } catch(XMLStreamException e) {
             throw new VocabularyModelException(file.getName(), e);
         } catch (IOException e) {
             throw new VocabularyModelException(file.getName(), e);
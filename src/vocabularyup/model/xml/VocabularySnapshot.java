@@ -0,0 +1,239 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.model.xml;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import vocabularyup.util.collection.PersistentVector;
+
+/**
+ * Immutable version of vocabulary.<br/>
+ * {@link Vocabulary} publishes new snapshot after each modification,
+ * readers(tests, serializers, exports) work with consistent data without locks.<br/>
+ * Articles are kept in packed {@link ArticleStore}: {@link ArticleColumns} in heap or
+ * {@link PackedArticleStore} in mapped file. Articles changed or added after store
+ * was built are kept in persistent vector of changes. Snapshots share store and
+ * unchanged nodes of the vector, so new version costs O(log n).
+ * Article objects are created from store when they are read.
+ * @author dooman
+ */
+public final class VocabularySnapshot {
+    private final Vocabulary vocabulary;
+    private final String name;
+    private final long version;
+    private final ArticleStore store;
+    /** Changed and added articles by id, {@code null} for articles that are read from store. */
+    private final PersistentVector<ArticleSnapshot> changes;
+    private final int changeCount;
+
+    private VocabularySnapshot(Vocabulary vocabulary, String name, long version, ArticleStore store,
+            PersistentVector<ArticleSnapshot> changes, int changeCount) {
+        this.vocabulary = vocabulary;
+        this.name = name;
+        this.version = version;
+        this.store = store;
+        this.changes = changes;
+        this.changeCount = changeCount;
+    }
+
+    /**
+     * Create snapshot of vocabulary without changes.
+     * @param vocabulary owner of articles.
+     * @param name name of vocabulary.
+     * @param version version of snapshot.
+     * @param store articles.
+     * @return new snapshot.
+     */
+    static VocabularySnapshot of(Vocabulary vocabulary, String name, long version, ArticleStore store) {
+        return new VocabularySnapshot(vocabulary, name, version, store,
+                PersistentVector.<ArticleSnapshot>filled(store.size(), null), 0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return version of vocabulary, it increments after each modification.
+     * @return version of snapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    /**
+     * Return article by id.
+     * @param id id of article.
+     * @return article's snapshot.
+     * @throws IndexOutOfBoundsException if there isn't article with this id.
+     */
+    public ArticleSnapshot getArticle(int id) {
+        ArticleSnapshot changed = changes.get(id);
+        return changed != null ? changed : store.getArticle(vocabulary, id);
+    }
+
+    /**
+     * Return all articles in order of ids.
+     * @return unmodifiable list of articles, they are created when list is read.
+     */
+    public List<ArticleSnapshot> getArticles() {
+        return new AbstractList<ArticleSnapshot>() {
+            @Override
+            public ArticleSnapshot get(int index) {
+                return getArticle(index);
+            }
+
+            @Override
+            public int size() {
+                return changes.size();
+            }
+        };
+    }
+
+    String getSource(int id) {
+        ArticleSnapshot changed = changes.get(id);
+        return changed != null ? changed.getSource() : store.getSource(id);
+    }
+
+    int getRatingValue(int id) {
+        ArticleSnapshot changed = changes.get(id);
+        return changed != null ? changed.getRatingValue() : store.getRatingValue(id);
+    }
+
+    long getDue(int id) {
+        ArticleSnapshot changed = changes.get(id);
+        return changed != null ? changed.getSchedule().getDue() : store.getDue(id);
+    }
+
+    ReviewSchedule getSchedule(int id) {
+        ArticleSnapshot changed = changes.get(id);
+        return changed != null ? changed.getSchedule() : store.getSchedule(id);
+    }
+
+    boolean isTestable(int id) {
+        ArticleSnapshot changed = changes.get(id);
+        return changed != null ? changed.isTestable() : store.isTestable(id);
+    }
+
+    /**
+     * @return number of articles that aren't in packed store.
+     */
+    int getChangeCount() {
+        return changeCount;
+    }
+
+    ArticleStore getStore() {
+        return store;
+    }
+
+    /**
+     * Return ids sorted by source if store keeps them and articles aren't changed.
+     * @return read-only buffer of ids or {@code null}.
+     */
+    IntBuffer getSourceOrder() {
+        return changeCount == 0 ? store.getSourceOrder() : null;
+    }
+
+    /**
+     * Estimate heap used by snapshot, articles shared with other snapshots are counted too.
+     * @return size in bytes.
+     */
+    long estimateSize() {
+        //changed article costs its objects and a copied path of the vector
+        return store.estimateSize() + 400L * changeCount;
+    }
+
+    /**
+     * Create next version with changed or new article.
+     * @param article article's state, it replaces article with the same id or appends new one.
+     * @return new snapshot.
+     */
+    VocabularySnapshot withArticle(ArticleSnapshot article) {
+        if (article.getId() < changes.size()) {
+            int count = changes.get(article.getId()) == null ? changeCount + 1 : changeCount;
+            return new VocabularySnapshot(vocabulary, name, version + 1, store,
+                    changes.set(article.getId(), article), count);
+        }
+        return new VocabularySnapshot(vocabulary, name, version + 1, store, changes.append(article), changeCount + 1);
+    }
+
+    /**
+     * Create next version without the last article, e.g. when adding of article
+     * is rolled back. If article is already packed to store, other articles are
+     * packed again.
+     * @return new snapshot.
+     */
+    VocabularySnapshot withoutLast() {
+        int last = size() - 1;
+        if (last >= store.size()) {
+            return new VocabularySnapshot(vocabulary, name, version + 1, store, changes.pop(), changeCount - 1);
+        }
+        ArticleColumns.Builder builder = new ArticleColumns.Builder();
+        for (int id = 0; id < last; id++) {
+            builder.add(getArticle(id));
+        }
+        return of(vocabulary, name, version + 1, builder.build());
+    }
+
+    /**
+     * Create next version with other name.
+     * @param newName new name of vocabulary.
+     * @return new snapshot.
+     */
+    VocabularySnapshot withName(String newName) {
+        return new VocabularySnapshot(vocabulary, newName, version + 1, store, changes, changeCount);
+    }
+
+    /**
+     * Create the same version over other store, e.g. over heap copy of mapped store.
+     * Unchanged articles of this snapshot must be equal in both stores, so
+     * store must be packed from this snapshot or from its ancestor with the same store.
+     * @param newStore store with the same unchanged articles.
+     * @return new snapshot with the same version and changes.
+     */
+    VocabularySnapshot withStore(ArticleStore newStore) {
+        return new VocabularySnapshot(vocabulary, name, version, newStore, changes, changeCount);
+    }
+
+    /**
+     * Pack all articles to new columns. Compacted snapshot has the same
+     * version and articles as this one, but doesn't keep changes.
+     * @return new snapshot.
+     */
+    VocabularySnapshot compact() {
+        return of(vocabulary, name, version, toColumns());
+    }
+
+    /**
+     * Pack all articles to columns in heap.
+     * @return new columns.
+     */
+    ArticleColumns toColumns() {
+        ArticleColumns.Builder builder = new ArticleColumns.Builder();
+        for (int id = 0; id < size(); id++) {
+            builder.add(getArticle(id));
+        }
+        return builder.build();
+    }
+}
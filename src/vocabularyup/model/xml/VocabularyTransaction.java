@@ -0,0 +1,296 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.model.xml;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import vocabularyup.exception.ArticleAlreadyExistException;
+import vocabularyup.exception.VocabularyModelException;
+
+/**
+ * Group of changes in one or more vocabularies.<br/>
+ * Changes are applied to vocabularies immediately, but saving is deferred:
+ * {@link #commit()} saves each touched vocabulary once. If only ratings and
+ * review schedules of vocabulary were changed, only they are saved to
+ * journal, see {@link Vocabulary#saveRatings(java.util.Collection)}. If saving fails
+ * or {@link #rollback()} is called, changes of this transaction are undone:
+ * vocabularies record old states of articles changed by transaction's thread
+ * and changes of other threads are kept.<br/>
+ * Transaction doesn't isolate changes from other threads and must be used
+ * by one thread. It must be finished by {@link #commit()} or {@link #rollback()},
+ * until then touched vocabularies record changes of its thread.
+ * @author dooman
+ */
+public class VocabularyTransaction {
+    private static final Logger log = Logger.getLogger(VocabularyTransaction.class.getName());
+
+    private final Map<Vocabulary, UndoLog> touched = new LinkedHashMap<Vocabulary, UndoLog>();
+    /** Vocabularies with other changes than ratings, they are saved completely. */
+    private final Set<Vocabulary> changed = new HashSet<Vocabulary>();
+    /** Articles with changed rating or schedule. */
+    private final Map<Vocabulary, Set<Article>> rated = new HashMap<Vocabulary, Set<Article>>();
+    private boolean finished = false;
+
+    /**
+     * Start recording changes of vocabulary. Call it before changing
+     * vocabulary directly, methods of transaction do it themselves.
+     * @param vocabulary vocabulary that will be changed.
+     */
+    public void touch(Vocabulary vocabulary) {
+        remember(vocabulary);
+        changed.add(vocabulary);
+    }
+
+    private void remember(Vocabulary vocabulary) {
+        checkActive();
+        if (!touched.containsKey(vocabulary)) {
+            UndoLog undo = new UndoLog();
+            touched.put(vocabulary, undo);
+            vocabulary.addUndoLog(undo);
+        }
+    }
+
+    private void rated(Vocabulary vocabulary, Article article) {
+        remember(vocabulary);
+        Set<Article> articles = rated.get(vocabulary);
+        if (articles == null) {
+            articles = new LinkedHashSet<Article>();
+            rated.put(vocabulary, articles);
+        }
+        articles.add(article);
+    }
+
+    /**
+     * Add new article to vocabulary.
+     * @see Vocabulary#addArticle(java.lang.String, java.util.List, java.util.List)
+     */
+    public Article addArticle(Vocabulary vocabulary, String source, List<String> translates, List<String> examples)
+            throws ArticleAlreadyExistException {
+        touch(vocabulary);
+        return vocabulary.addArticle(source, translates, examples);
+    }
+
+    /**
+     * Change source, translates and examples of article.
+     * @param article article from vocabulary.
+     * @param source new source.
+     * @param translates new translates.
+     * @param examples new examples.
+     * @throws ArticleAlreadyExistException if other article with {@code source} already exists.
+     */
+    public void changeArticle(Article article, String source, List<String> translates, List<String> examples)
+            throws ArticleAlreadyExistException {
+        Vocabulary vocabulary = ownerOf(article);
+        touch(vocabulary);
+        vocabulary.renameArticle(article, source);
+        article.setTranslates(translates);
+        article.setExamples(examples);
+    }
+
+    /**
+     * Atomically change rating of article without locking vocabulary.
+     * New rating is kept in vocabulary's {@link RatingCounters} and written
+     * to article on commit.
+     * @param article article from vocabulary.
+     * @param delta value that will be added to rating.
+     * @return new rating.
+     */
+    public int changeRating(Article article, int delta) {
+        Vocabulary vocabulary = ownerOf(article);
+        rated(vocabulary, article);
+        touched.get(vocabulary).addRatingDelta(article.getId(), delta);
+        return vocabulary.getRatingCounters().add(article.getId(), delta);
+    }
+
+    /**
+     * Atomically update spaced repetition schedule of article after review.
+     * @param article article from vocabulary.
+     * @param quality quality of answer, see {@link ReviewSchedule#next(int, long)}.
+     * @param now time of review.
+     * @return new schedule.
+     */
+    public ReviewSchedule review(Article article, int quality, long now) {
+        Vocabulary vocabulary = ownerOf(article);
+        rated(vocabulary, article);
+        vocabulary.getLock().writeLock().lock();
+        try {
+            ReviewSchedule schedule = article.getSchedule().next(quality, now);
+            article.setSchedule(schedule);
+            return schedule;
+        } finally {
+            vocabulary.getLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return vocabularies changed in this transaction.
+     * @return vocabularies in order of the first change.
+     */
+    public List<Vocabulary> getVocabularies() {
+        return new ArrayList<Vocabulary>(touched.keySet());
+    }
+
+    /**
+     * Save each changed vocabulary once.
+     * If any vocabulary can't be saved, transaction is rolled back.
+     * @throws VocabularyModelException error while saving, all changes are rolled back.
+     */
+    public void commit() throws VocabularyModelException {
+        checkActive();
+        List<Vocabulary> saved = new ArrayList<Vocabulary>();
+        try {
+            for (Vocabulary v : touched.keySet()) {
+                //ratings changed by other threads are exported too
+                List<Article> flushed = v.flushRatings();
+                if (changed.contains(v) || !rated.containsKey(v)) {
+                    v.save();
+                } else {
+                    Set<Article> articles = rated.get(v);
+                    articles.addAll(flushed);
+                    v.saveRatings(articles);
+                }
+                saved.add(v);
+            }
+        } catch (VocabularyModelException e) {
+            log.log(Level.SEVERE, "Error committing transaction, rollback", e);
+            restoreAll();
+            for (Vocabulary v : saved) {
+                try {
+                    v.save();
+                } catch (VocabularyModelException ex) {
+                    log.log(Level.SEVERE, "Cann't save restored vocabulary [" + v.getName() + "]", ex);
+                }
+            }
+            finished = true;
+            throw e;
+        }
+        for (Map.Entry<Vocabulary, UndoLog> e : touched.entrySet()) {
+            e.getKey().removeUndoLog(e.getValue());
+        }
+        log.fine("Transaction committed, saved [" + saved.size() + "] vocabularies");
+        finished = true;
+    }
+
+    /**
+     * Undo changes of this transaction in all touched vocabularies.
+     * Nothing is saved.
+     */
+    public void rollback() {
+        checkActive();
+        restoreAll();
+        finished = true;
+    }
+
+    private void restoreAll() {
+        for (Map.Entry<Vocabulary, UndoLog> e : touched.entrySet()) {
+            e.getKey().undo(e.getValue());
+        }
+    }
+
+    private void checkActive() {
+        if (finished) {
+            throw new IllegalStateException("Transaction is already finished");
+        }
+    }
+
+    private static Vocabulary ownerOf(Article article) {
+        Vocabulary vocabulary = article.getVocabulary();
+        if (vocabulary == null) {
+            throw new IllegalArgumentException("Article [" + article.getSource() + "] isn't in vocabulary");
+        }
+        return vocabulary;
+    }
+
+    /**
+     * Changes made by transaction's thread in one vocabulary.
+     * It's changed by vocabulary under write lock and by transaction's thread.
+     */
+    static final class UndoLog {
+        private final Thread thread = Thread.currentThread();
+        /** States of articles before the first change by id, {@code null} for added articles. */
+        private final Map<Integer, ArticleSnapshot> before = new LinkedHashMap<Integer, ArticleSnapshot>();
+        /** The latest states of articles written by transaction. */
+        private final Map<Integer, ArticleSnapshot> written = new HashMap<Integer, ArticleSnapshot>();
+        private final Map<Integer, Integer> ratingDeltas = new HashMap<Integer, Integer>();
+
+        boolean isOwnThread() {
+            return Thread.currentThread() == thread;
+        }
+
+        /**
+         * Record change of article.
+         * @param old state before change, {@code null} if article is added.
+         * @param current new state.
+         */
+        void record(ArticleSnapshot old, ArticleSnapshot current) {
+            int id = current.getId();
+            if (!before.containsKey(id)) {
+                before.put(id, old);
+            }
+            written.put(id, current);
+            if (old != null && old.getRatingValue() != current.getRatingValue()) {
+                addRatingDelta(id, current.getRatingValue() - old.getRatingValue());
+            }
+        }
+
+        /**
+         * Rating from counters is written to article, it isn't change of transaction.
+         * @param current new state of article.
+         */
+        void ratingFlushed(ArticleSnapshot current) {
+            if (written.containsKey(current.getId())) {
+                written.put(current.getId(), current);
+            }
+        }
+
+        void addRatingDelta(int id, int delta) {
+            Integer old = ratingDeltas.get(id);
+            ratingDeltas.put(id, old == null ? delta : old + delta);
+        }
+
+        /**
+         * Return ids of changed articles.
+         * @return ids in order of the first change.
+         */
+        Collection<Integer> getChangedIds() {
+            return before.keySet();
+        }
+
+        ArticleSnapshot getBefore(int id) {
+            return before.get(id);
+        }
+
+        ArticleSnapshot getWritten(int id) {
+            return written.get(id);
+        }
+
+        Map<Integer, Integer> getRatingDeltas() {
+            return ratingDeltas;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.model.xml;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import vocabularyup.exception.VocabularyModelException;
+
+/**
+ * Reads vocabulary file written by {@link VocabularyXmlWriter} straight to
+ * {@link ArticleColumns}, no DOM or article objects are built.<br/>
+ * Articles without source or translates are skipped, unknown elements are ignored.
+ * @author dooman
+ */
+final class VocabularyXmlReader {
+    private static final Logger log = Logger.getLogger(VocabularyXmlReader.class.getName());
+
+    private final XMLStreamReader reader;
+    private final ArticleColumns.Builder builder;
+
+    private VocabularyXmlReader(XMLStreamReader reader, ArticleColumns.Builder builder) {
+        this.reader = reader;
+        this.builder = builder;
+    }
+
+    /**
+     * Read vocabulary.
+     * @param in source stream, it isn't closed by this method.
+     * @param builder articles are added to it.
+     * @return name of vocabulary.
+     * @throws XMLStreamException error parsing stream.
+     * @throws VocabularyModelException stream hasn't exactly one vocabulary element.
+     */
+    static String read(InputStream in, ArticleColumns.Builder builder) throws XMLStreamException, VocabularyModelException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+        try {
+            return new VocabularyXmlReader(reader, builder).readVocabulary();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private String readVocabulary() throws XMLStreamException, VocabularyModelException {
+        while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+            //skip prolog
+        }
+        if (!reader.isStartElement() || !Vocabulary.VOCABULARY_ELEMENT.equals(reader.getLocalName())) {
+            throw new VocabularyModelException("No vocabulary element");
+        }
+        String name = reader.getAttributeValue(null, Vocabulary.VOCABULARY_NAME_ATTR);
+        while (nextChild()) {
+            String element = reader.getLocalName();
+            if (Article.ARTICLE_ELEMENT.equals(element)) {
+                readArticle();
+            } else if (Vocabulary.VOCABULARY_ELEMENT.equals(element)) {
+                throw new VocabularyModelException("More than one vocabulary element");
+            } else {
+                skipElement();
+            }
+        }
+        return name;
+    }
+
+    private void readArticle() throws XMLStreamException {
+        String source = null;
+        List<String> translates = null;
+        List<String> examples = Collections.emptyList();
+        int rating = 0;
+        ReviewSchedule schedule = ReviewSchedule.NEW;
+        while (nextChild()) {
+            String element = reader.getLocalName();
+            if (Article.ARTICAL_SOURCE_ELEMENT.equals(element)) {
+                source = reader.getElementText();
+            } else if (Article.ARTICLE_TRANSLATES_ELEMENT.equals(element)) {
+                translates = readList(Article.ARTICLE_TRANSLATE_ELEMENT, false);
+            } else if (Article.ARTICLE_EXAMPLES_ELEMENT.equals(element)) {
+                examples = readList(Article.ARTICLE_EXAMPLE_ELEMENT, true);
+            } else if (Article.ARTICLE_RATING_ELEMENT.equals(element)) {
+                rating = Article.parseRating(reader.getElementText());
+            } else if (Article.ARTICLE_SCHEDULE_ELEMENT.equals(element)) {
+                schedule = readSchedule(source);
+                skipElement();
+            } else {
+                skipElement();
+            }
+        }
+        if (source == null || translates == null) {
+            log.log(Level.SEVERE, "Error loading article [" + source + "]: no "
+                    + (source == null ? Article.ARTICAL_SOURCE_ELEMENT : Article.ARTICLE_TRANSLATES_ELEMENT) + " element");
+            return;
+        }
+        builder.add(source, translates, examples, rating, schedule);
+    }
+
+    private List<String> readList(String itemElement, boolean keepEmpty) throws XMLStreamException {
+        List<String> items = new ArrayList<String>();
+        while (nextChild()) {
+            if (itemElement.equals(reader.getLocalName())) {
+                String item = reader.getElementText();
+                if (keepEmpty || !item.isEmpty()) {
+                    items.add(item);
+                }
+            } else {
+                skipElement();
+            }
+        }
+        return items;
+    }
+
+    private ReviewSchedule readSchedule(String source) {
+        try {
+            return new ReviewSchedule(
+                    Long.parseLong(reader.getAttributeValue(null, Article.SCHEDULE_DUE_ATTR)),
+                    Integer.parseInt(reader.getAttributeValue(null, Article.SCHEDULE_EASE_ATTR)),
+                    Integer.parseInt(reader.getAttributeValue(null, Article.SCHEDULE_INTERVAL_ATTR)),
+                    Integer.parseInt(reader.getAttributeValue(null, Article.SCHEDULE_REPETITIONS_ATTR)));
+        } catch (NumberFormatException e) {
+            log.log(Level.WARNING, "Bad schedule for article [" + source + "], it will be reviewed as new", e);
+            return ReviewSchedule.NEW;
+        }
+    }
+
+    /**
+     * Move to the next child element of current element.
+     * @return {@code false} if current element is ended.
+     */
+    private boolean nextChild() throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Skip current element with its content.
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.model.xml;
+
+import java.io.OutputStream;
+import java.util.List;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes {@link VocabularySnapshot} to XML file in the same format as DOM model.
+ * Writer works with immutable snapshot, so vocabulary may be changed while saving.
+ * @author dooman
+ */
+final class VocabularyXmlWriter {
+    private static final String ENCODING = "UTF-8";
+    private static final String INDENT = "    ";
+
+    private final XMLStreamWriter writer;
+
+    private VocabularyXmlWriter(XMLStreamWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write vocabulary.
+     * @param snapshot version of vocabulary that should be written.
+     * @param out destination stream, it isn't closed by this method.
+     * @throws XMLStreamException error while writing.
+     */
+    static void write(VocabularySnapshot snapshot, OutputStream out) throws XMLStreamException {
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+        try {
+            new VocabularyXmlWriter(writer).writeVocabulary(snapshot);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeVocabulary(VocabularySnapshot snapshot) throws XMLStreamException {
+        writer.writeStartDocument(ENCODING, "1.0");
+        newLine(0);
+        writer.writeStartElement(Vocabulary.VOCABULARY_ELEMENT);
+        writer.writeAttribute(Vocabulary.VOCABULARY_NAME_ATTR, snapshot.getName());
+        for (ArticleSnapshot a : snapshot.getArticles()) {
+            newLine(1);
+            writeArticle(a);
+        }
+        newLine(0);
+        writer.writeEndElement();
+        newLine(0);
+        writer.writeEndDocument();
+    }
+
+    private void writeArticle(ArticleSnapshot article) throws XMLStreamException {
+        writer.writeStartElement(Article.ARTICLE_ELEMENT);
+        newLine(2);
+        writeText(Article.ARTICAL_SOURCE_ELEMENT, article.getSource());
+        newLine(2);
+        writeList(Article.ARTICLE_TRANSLATES_ELEMENT, Article.ARTICLE_TRANSLATE_ELEMENT, article.getTranslates());
+        newLine(2);
+        writeList(Article.ARTICLE_EXAMPLES_ELEMENT, Article.ARTICLE_EXAMPLE_ELEMENT, article.getExamples());
+        newLine(2);
+        writeText(Article.ARTICLE_RATING_ELEMENT, article.getRating());
+        if (!article.getSchedule().isNew()) {
+            newLine(2);
+            writeSchedule(article.getSchedule());
+        }
+        newLine(1);
+        writer.writeEndElement();
+    }
+
+    private void writeSchedule(ReviewSchedule schedule) throws XMLStreamException {
+        writer.writeEmptyElement(Article.ARTICLE_SCHEDULE_ELEMENT);
+        writer.writeAttribute(Article.SCHEDULE_DUE_ATTR, String.valueOf(schedule.getDue()));
+        writer.writeAttribute(Article.SCHEDULE_EASE_ATTR, String.valueOf(schedule.getEase()));
+        writer.writeAttribute(Article.SCHEDULE_INTERVAL_ATTR, String.valueOf(schedule.getInterval()));
+        writer.writeAttribute(Article.SCHEDULE_REPETITIONS_ATTR, String.valueOf(schedule.getRepetitions()));
+    }
+
+    private void writeList(String listElement, String itemElement, List<String> items) throws XMLStreamException {
+        writer.writeStartElement(listElement);
+        for (String item : items) {
+            newLine(3);
+            writeText(itemElement, item);
+        }
+        if (!items.isEmpty()) {
+            newLine(2);
+        }
+        writer.writeEndElement();
+    }
+
+    private void writeText(String element, String text) throws XMLStreamException {
+        writer.writeStartElement(element);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+
+    private void newLine(int level) throws XMLStreamException {
+        writer.writeCharacters("\n");
+        for (int i = 0; i < level; i++) {
+            writer.writeCharacters(INDENT);
+        }
+    }
+}
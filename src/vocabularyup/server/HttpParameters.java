@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameters of request from query string and url-encoded form body.
+ * @author dooman
+ */
+final class HttpParameters {
+    /** Requests with larger body are rejected. */
+    static final int MAX_BODY_SIZE = 64 * 1024;
+
+    private final Map<String, List<String>> values = new HashMap<String, List<String>>();
+
+    private HttpParameters() {
+    }
+
+    /**
+     * Read parameters of request.
+     * @throws IllegalArgumentException if body is too large.
+     */
+    static HttpParameters parse(HttpExchange exchange) throws IOException {
+        HttpParameters params = new HttpParameters();
+        params.decode(exchange.getRequestURI().getRawQuery());
+        String method = exchange.getRequestMethod();
+        if ("POST".equals(method) || "PUT".equals(method)) {
+            params.decode(readBody(exchange.getRequestBody()));
+        }
+        return params;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_BODY_SIZE) {
+                throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_SIZE + " bytes");
+            }
+        }
+        return body.toString("US-ASCII");
+    }
+
+    private void decode(String query) throws IOException {
+        if (query == null || query.length() == 0) {
+            return;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.length() == 0) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            List<String> list = values.get(name);
+            if (list == null) {
+                list = new ArrayList<String>(1);
+                values.put(name, list);
+            }
+            list.add(value);
+        }
+    }
+
+    /**
+     * @return the first value of parameter or {@code null}.
+     */
+    String get(String name) {
+        List<String> list = values.get(name);
+        return list == null ? null : list.get(0);
+    }
+
+    /**
+     * @return all values of parameter, empty list if parameter is absent.
+     */
+    List<String> getAll(String name) {
+        List<String> list = values.get(name);
+        return list == null ? Collections.<String>emptyList() : list;
+    }
+
+    /**
+     * @throws IllegalArgumentException if parameter is absent.
+     */
+    String require(String name) {
+        String value = get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Parameter [" + name + "] is required");
+        }
+        return value;
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter [" + name + "] isn't a number: " + value);
+        }
+    }
+
+    long requireLong(String name) {
+        String value = require(name);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter [" + name + "] isn't a number: " + value);
+        }
+    }
+}
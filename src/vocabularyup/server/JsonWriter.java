@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import vocabularyup.model.xml.ArticleSnapshot;
+
+/**
+ * Minimal streaming JSON writer, values are written as soon as they are added.
+ * Writer doesn't check structure of document.
+ * @author dooman
+ */
+final class JsonWriter {
+    private final Writer out;
+    /** The next value is the first in its object or array. */
+    private boolean first = true;
+
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        separator();
+        out.write('{');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endObject() throws IOException {
+        out.write('}');
+        first = false;
+        return this;
+    }
+
+    JsonWriter beginArray() throws IOException {
+        separator();
+        out.write('[');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endArray() throws IOException {
+        out.write(']');
+        first = false;
+        return this;
+    }
+
+    JsonWriter name(String name) throws IOException {
+        separator();
+        string(name);
+        out.write(':');
+        first = true;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        separator();
+        if (value == null) {
+            out.write("null");
+        } else {
+            string(value);
+        }
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException {
+        separator();
+        out.write(Long.toString(value));
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(boolean value) throws IOException {
+        separator();
+        out.write(value ? "true" : "false");
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(Collection<String> values) throws IOException {
+        beginArray();
+        for (String v : values) {
+            value(v);
+        }
+        return endArray();
+    }
+
+    /**
+     * Write article as object with id, source, translates, examples, rating and due time.
+     */
+    JsonWriter article(ArticleSnapshot article) throws IOException {
+        return beginObject()
+                .name("id").value(article.getId())
+                .name("source").value(article.getSource())
+                .name("translates").value(article.getTranslates())
+                .name("examples").value(article.getExamples())
+                .name("rating").value(article.getRatingValue())
+                .name("due").value(article.getSchedule().getDue())
+                .endObject();
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    private void separator() throws IOException {
+        if (!first) {
+            out.write(',');
+        }
+        first = false;
+    }
+
+    private void string(String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
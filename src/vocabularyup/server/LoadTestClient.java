@@ -0,0 +1,181 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Simple load generator for {@link VocabularyServer}.<br/>
+ * Several threads send GET requests to one url one after another, latency of
+ * each request is measured until the whole response body is read.
+ * @author dooman
+ */
+public class LoadTestClient {
+    private static final Logger log = Logger.getLogger(LoadTestClient.class.getName());
+
+    private final URL url;
+
+    /**
+     * Result of load test.
+     */
+    public static final class Report {
+        private final long[] latencies;
+        private final int errors;
+        private final long wallNanos;
+
+        Report(long[] latencies, int errors, long wallNanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.wallNanos = wallNanos;
+            Arrays.sort(this.latencies);
+        }
+
+        public int getRequests() {
+            return latencies.length;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public long getWallMillis() {
+            return wallNanos / 1000000;
+        }
+
+        /**
+         * @return requests per second.
+         */
+        public double getThroughput() {
+            return wallNanos == 0 ? 0 : latencies.length * 1e9 / wallNanos;
+        }
+
+        /**
+         * Return latency percentile.
+         * @param percent percent of requests, e.g. {@code 99}.
+         * @return latency in milliseconds.
+         */
+        public double getPercentile(double percent) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percent / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Requests: %d, errors: %d, time: %d ms, throughput: %.1f req/s, "
+                    + "latency p50: %.2f ms, p99: %.2f ms, max: %.2f ms",
+                    getRequests(), errors, getWallMillis(), getThroughput(),
+                    getPercentile(50), getPercentile(99), getPercentile(100));
+        }
+    }
+
+    public LoadTestClient(URL url) {
+        this.url = url;
+    }
+
+    /**
+     * Run load test.
+     * @param threads number of concurrent clients.
+     * @param requestsPerThread number of requests of each client.
+     * @return report of all requests.
+     * @throws InterruptedException if current thread is interrupted.
+     */
+    public Report run(int threads, final int requestsPerThread) throws InterruptedException {
+        final long[] latencies = new long[threads * requestsPerThread];
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * requestsPerThread;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < requestsPerThread; i++) {
+                            long begin = System.nanoTime();
+                            if (!request()) {
+                                errors.incrementAndGet();
+                            }
+                            latencies[offset + i] = System.nanoTime() - begin;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "load-test-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return new Report(latencies, errors.get(), System.nanoTime() - begin);
+    }
+
+    private boolean request() {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            int code = connection.getResponseCode();
+            InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    //read the whole response, connection is reused by keep-alive
+                }
+                in.close();
+            }
+            return code < 400;
+        } catch (IOException e) {
+            log.log(Level.FINE, "Request error", e);
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Run load test from command line.
+     * @param args url, number of threads and number of requests of each thread.
+     */
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://127.0.0.1:" + VocabularyServer.DEFAULT_PORT + "/vocabularies";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        LoadTestClient client = new LoadTestClient(new URL(url));
+        //warm up server and client
+        client.run(threads, Math.max(1, requests / 10));
+        System.out.println(url);
+        System.out.println(client.run(threads, requests));
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import vocabularyup.VocabularyApp;
+import vocabularyup.VocabularyBatch;
+import vocabularyup.VocabularyCache;
+import vocabularyup.exception.ArticleAlreadyExistException;
+import vocabularyup.exception.TestSessionNotFoundException;
+import vocabularyup.exception.VocabularyModelException;
+import vocabularyup.exception.VocabularyNotFoundException;
+import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.model.xml.VocabularyTransaction;
+import vocabularyup.test.TestSession;
+import vocabularyup.test.TestSessionEngine;
+import vocabularyup.test.VocabularyTest;
+import vocabularyup.test.VocabularyTestResult;
+import vocabularyup.test.WordOrder;
+import vocabularyup.util.text.StringPool;
+
+/**
+ * HTTP service for tools that work with vocabularies without UI.<br/>
+ * Server listens only on loopback interface, all responses are JSON and are
+ * streamed with chunked encoding. Requests are processed by bounded pool of
+ * threads, when its queue is full the request is answered with 503 by the
+ * accepting thread without processing, so overload doesn't block accepting.
+ * <pre>
+ * GET  /vocabularies                              names of vocabularies, sizes of vocabularies in memory
+ * GET  /cache                                     metrics of vocabularies cache and string pool
+ * GET  /search?vocabulary=&prefix=&limit=         articles which sources start with prefix
+ * GET  /articles?vocabulary=&source=              one article
+ * POST /articles?vocabulary=&source=&translate=*&example=*             add article
+ * PUT  /articles?vocabulary=&source=&newSource=&translate=*&example=*  change article
+ * POST /tests/start?vocabulary=*&count=&selection=&order=   start test, returns id and word
+ * POST /tests/answer?id=&answer=                  answer and get the next word
+ * POST /tests/end?id=                             end test and get results
+ * </pre>
+ * Parameters may be sent in query string or url-encoded form body.
+ * @author dooman
+ */
+public class VocabularyServer {
+    private static final Logger log = Logger.getLogger(VocabularyServer.class.getName());
+
+    public static final int DEFAULT_PORT = 8090;
+    public static final int DEFAULT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int QUEUE_SIZE = 1024;
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+    private static final int DEFAULT_TEST_WORDS = 10;
+    /** Request is rejected by pool and handlers answer it with 503 in accepting thread. */
+    private static final ThreadLocal<Boolean> rejected = new ThreadLocal<Boolean>();
+
+    private final VocabularyApp app;
+    private final TestSessionEngine engine;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Create server, it doesn't accept requests until {@link #start()}.
+     * @param app application with vocabularies.
+     * @param port port on loopback interface, {@code 0} for any free port.
+     * @param threads number of threads that process requests.
+     * @throws IOException if port can't be bound.
+     */
+    public VocabularyServer(VocabularyApp app, int port, int threads) throws IOException {
+        this(app, port, threads, QUEUE_SIZE);
+    }
+
+    VocabularyServer(VocabularyApp app, int port, int threads, int queueSize) throws IOException {
+        this.app = app;
+        this.engine = app.getTestEngine();
+        //small chunked responses otherwise wait for delayed ACK of headers
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), 0);
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "http-worker-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.AbortPolicy());
+        server.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable exchange) {
+                try {
+                    executor.execute(exchange);
+                } catch (RejectedExecutionException e) {
+                    log.fine("Request queue is full, request is rejected");
+                    rejected.set(Boolean.TRUE);
+                    try {
+                        exchange.run();
+                    } finally {
+                        rejected.remove();
+                    }
+                }
+            }
+        });
+        server.createContext("/vocabularies", new VocabulariesHandler());
+        server.createContext("/cache", new CacheHandler());
+        server.createContext("/search", new SearchHandler());
+        server.createContext("/articles", new ArticlesHandler());
+        server.createContext("/tests/", new TestsHandler());
+    }
+
+    public void start() {
+        server.start();
+        log.info("Vocabulary server is listening on port [" + getPort() + "] with ["
+                + executor.getCorePoolSize() + "] threads");
+    }
+
+    /**
+     * Stop accepting requests and wait for current ones.
+     * @param delaySeconds maximum time to wait for current requests.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        log.info("Vocabulary server is stopped");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Start chunked JSON response.
+     */
+    private static JsonWriter respond(HttpExchange exchange, int code) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(code, 0);
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), "UTF-8")));
+    }
+
+    private static void respondError(HttpExchange exchange, int code, String message) throws IOException {
+        respond(exchange, code).beginObject().name("error").value(message).endObject().flush();
+    }
+
+    /**
+     * Base handler that maps exceptions to HTTP errors.
+     */
+    private abstract static class JsonHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (rejected.get() != null) {
+                try {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    respondError(exchange, 503, "Server is overloaded");
+                } finally {
+                    exchange.close();
+                }
+                return;
+            }
+            try {
+                process(exchange, HttpParameters.parse(exchange));
+            } catch (IllegalArgumentException e) {
+                error(exchange, 400, e);
+            } catch (VocabularyNotFoundException e) {
+                error(exchange, 404, e);
+            } catch (TestSessionNotFoundException e) {
+                error(exchange, 404, e);
+            } catch (ArticleAlreadyExistException e) {
+                error(exchange, 409, e);
+            } catch (IllegalStateException e) {
+                error(exchange, 409, e);
+            } catch (VocabularyModelException e) {
+                error(exchange, e.getCause() instanceof ArticleAlreadyExistException ? 409 : 500, e);
+            } catch (Exception e) {
+                error(exchange, 500, e);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void error(HttpExchange exchange, int code, Exception e) throws IOException {
+            log.log(code == 500 ? Level.SEVERE : Level.FINE, "Error processing " + exchange.getRequestURI(), e);
+            if (exchange.getResponseCode() != -1) {
+                //response is already streaming, client sees truncated body
+                return;
+            }
+            respondError(exchange, code, String.valueOf(e.getMessage()));
+        }
+
+        abstract void process(HttpExchange exchange, HttpParameters params) throws Exception;
+    }
+
+    private class VocabulariesHandler extends JsonHandler {
+        @Override
+        void process(HttpExchange exchange, HttpParameters params) throws Exception {
+            JsonWriter json = respond(exchange, 200).beginArray();
+            //listing doesn't load vocabularies dropped from memory
+            VocabularyCache cache = app.getVocabularyCache();
+            for (String name : app.getVocabularyNames()) {
+                Vocabulary v = cache.getLoaded(name);
+                json.beginObject()
+                        .name("name").value(name)
+                        .name("loaded").value(v != null);
+                if (v != null) {
+                    json.name("articles").value(v.snapshot().size());
+                }
+                json.endObject();
+            }
+            json.endArray().flush();
+        }
+    }
+
+    private class CacheHandler extends JsonHandler {
+        @Override
+        void process(HttpExchange exchange, HttpParameters params) throws Exception {
+            VocabularyCache cache = app.getVocabularyCache();
+            StringPool strings = StringPool.getInstance();
+            respond(exchange, 200).beginObject()
+                    .name("loaded").value(cache.getResidentCount())
+                    .name("vocabularies").value(app.getVocabularyNames().size())
+                    .name("size").value(cache.getResidentSize())
+                    .name("budget").value(cache.getBudget())
+                    .name("hits").value(cache.getHits())
+                    .name("misses").value(cache.getMisses())
+                    .name("evictions").value(cache.getEvictions())
+                    .name("flushes").value(cache.getFlushes())
+                    .name("sharedStrings").value(cache.getSharedStrings())
+                    .name("sharedBytes").value(cache.getSharedBytes())
+                    .name("pooledStrings").value(strings.size())
+                    .name("duplicateStrings").value(strings.getDuplicates())
+                    .name("savedBytes").value(strings.getSavedBytes())
+                    .name("poolBytes").value(strings.getOverheadBytes())
+                    .endObject().flush();
+        }
+    }
+
+    private class SearchHandler extends JsonHandler {
+        @Override
+        void process(HttpExchange exchange, HttpParameters params) throws Exception {
+            Vocabulary vocabulary = app.getVocabulary(params.require("vocabulary"));
+            String prefix = params.get("prefix") == null ? "" : params.get("prefix");
+            int limit = params.getInt("limit", DEFAULT_SEARCH_LIMIT);
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Parameter [limit] must be positive");
+            }
+            List<Article> found = vocabulary.findArticles(prefix, limit);
+            JsonWriter json = respond(exchange, 200).beginArray();
+            for (Article article : found) {
+                json.article(article.snapshot());
+            }
+            json.endArray().flush();
+        }
+    }
+
+    private class ArticlesHandler extends JsonHandler {
+        @Override
+        void process(HttpExchange exchange, HttpParameters params) throws Exception {
+            String method = exchange.getRequestMethod();
+            final Vocabulary vocabulary = app.getVocabulary(params.require("vocabulary"));
+            final String source = params.require("source");
+            final List<String> translates = params.getAll("translate");
+            final List<String> examples = params.getAll("example");
+            final Article[] result = new Article[1];
+            int code = 200;
+            if ("GET".equals(method)) {
+                result[0] = vocabulary.getArticle(source);
+            } else if ("POST".equals(method)) {
+                app.batch(new VocabularyBatch() {
+                    @Override
+                    public void execute(VocabularyTransaction tx) throws Exception {
+                        result[0] = tx.addArticle(vocabulary, source, translates, examples);
+                    }
+                });
+                code = 201;
+            } else if ("PUT".equals(method)) {
+                final Article article = vocabulary.getArticle(source);
+                final String newSource = params.get("newSource") == null ? source : params.get("newSource");
+                if (article != null) {
+                    app.batch(new VocabularyBatch() {
+                        @Override
+                        public void execute(VocabularyTransaction tx) throws Exception {
+                            tx.changeArticle(article, newSource, translates, examples);
+                        }
+                    });
+                    result[0] = article;
+                }
+            } else {
+                //articles can't be removed from vocabulary
+                exchange.getResponseHeaders().set("Allow", "GET, POST, PUT");
+                respondError(exchange, 405, "Method " + method + " isn't supported");
+                return;
+            }
+            if (result[0] == null) {
+                respondError(exchange, 404, "Article [" + source + "] isn't found");
+                return;
+            }
+            respond(exchange, code).article(result[0].snapshot()).flush();
+        }
+    }
+
+    private class TestsHandler extends JsonHandler {
+        @Override
+        void process(HttpExchange exchange, HttpParameters params) throws Exception {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respondError(exchange, 405, "Only POST is supported");
+                return;
+            }
+            String action = exchange.getRequestURI().getPath().substring("/tests/".length());
+            if ("start".equals(action)) {
+                List<String> names = params.getAll("vocabulary");
+                if (names.isEmpty()) {
+                    throw new IllegalArgumentException("Parameter [vocabulary] is required");
+                }
+                List<Vocabulary> vocabularies = new ArrayList<Vocabulary>(names.size());
+                for (String name : names) {
+                    vocabularies.add(app.getVocabulary(name));
+                }
+                String selection = params.get("selection");
+                String order = params.get("order");
+                TestSession session = engine.start(vocabularies, params.getInt("count", DEFAULT_TEST_WORDS),
+                        selection == null ? VocabularyTest.Selection.DUE : VocabularyTest.Selection.valueOf(selection.toUpperCase()),
+                        order == null ? WordOrder.RANDOM : WordOrder.valueOf(order.toUpperCase()));
+                writeWord(exchange, session.getId(), session.nextWord());
+            } else if ("answer".equals(action)) {
+                long id = params.requireLong("id");
+                engine.answer(id, params.require("answer"));
+                writeWord(exchange, id, engine.nextWord(id));
+            } else if ("end".equals(action)) {
+                long id = params.requireLong("id");
+                List<VocabularyTestResult> results = engine.end(id);
+                JsonWriter json = respond(exchange, 200).beginObject()
+                        .name("id").value(id)
+                        .name("results").beginArray();
+                for (VocabularyTestResult r : results) {
+                    json.beginObject()
+                            .name("source").value(r.getArticle().getSource())
+                            .name("answer").value(r.getUserAnswer())
+                            .name("right").value(r.isResult())
+                            .name("millis").value(r.getResponseMillis())
+                            .endObject();
+                }
+                json.endArray().endObject().flush();
+            } else {
+                respondError(exchange, 404, "Unknown test action [" + action + "]");
+            }
+        }
+
+        private void writeWord(HttpExchange exchange, long id, String word) throws IOException {
+            respond(exchange, 200).beginObject()
+                    .name("id").value(id)
+                    .name("word").value(word)
+                    .endObject().flush();
+        }
+    }
+}
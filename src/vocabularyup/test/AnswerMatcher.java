@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import vocabularyup.model.xml.ArticleSnapshot;
+import vocabularyup.util.text.AnswerNormalizer;
+
+/**
+ * Checks user's answer against normalized translates of article.<br/>
+ * Exact match of normalized answer is a hash lookup. If matcher allows typos,
+ * answer is also right when edit distance to any translate is not greater
+ * than number of allowed typos; distance is calculated only for keys
+ * with close length and stops as soon as the bound is exceeded.
+ * Matcher is immutable and may be shared.
+ * @author dooman
+ */
+public class AnswerMatcher {
+    /** Normalized answer must be equal to normalized translate. */
+    public static final AnswerMatcher EXACT = new AnswerMatcher(0);
+
+    private final int maxTypos;
+
+    /**
+     * Create matcher.
+     * @param maxTypos maximum edit distance between answer and translate.
+     */
+    public AnswerMatcher(int maxTypos) {
+        if (maxTypos < 0) {
+            throw new IllegalArgumentException("Number of typos can't be negative: " + maxTypos);
+        }
+        this.maxTypos = maxTypos;
+    }
+
+    public int getMaxTypos() {
+        return maxTypos;
+    }
+
+    /**
+     * Check answer.
+     * @param article asked article.
+     * @param answer user's answer, may be {@code null}.
+     * @return {@code true} if answer is right.
+     */
+    public boolean matches(ArticleSnapshot article, String answer) {
+        String key = AnswerNormalizer.normalize(answer);
+        if (key.isEmpty()) {
+            return false;
+        }
+        if (article.getAnswerKeys().contains(key)) {
+            return true;
+        }
+        if (maxTypos > 0) {
+            for (String translate : article.getAnswerKeys()) {
+                if (withinDistance(key, translate, maxTypos)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Levenshtein distance with bound, only diagonal band of width
+     * {@code 2 * bound + 1} is calculated.
+     * @return {@code true} if distance between strings isn't greater than {@code bound}.
+     */
+    static boolean withinDistance(String s1, String s2, int bound) {
+        int n = s1.length();
+        int m = s2.length();
+        if (Math.abs(n - m) > bound) {
+            return false;
+        }
+        final int infinity = bound + 1;
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= bound ? j : infinity;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - bound);
+            int to = Math.min(m, i + bound);
+            current[0] = i <= bound ? i : infinity;
+            if (from > 1) {
+                current[from - 1] = infinity;
+            }
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(d, infinity);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = infinity;
+            }
+            if (rowMin > bound) {
+                return false;
+            }
+            int[] tmp = previous;
+            previous = current;
+            current = tmp;
+        }
+        return previous[m] <= bound;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import vocabularyup.model.xml.ArticleSnapshot;
+import vocabularyup.model.xml.Vocabulary;
+
+/**
+ * Words from different vocabularies are asked in turn, inside one vocabulary
+ * words are drawn at random. Each draw is O(1).
+ * @author dooman
+ */
+public class RoundRobinStrategy implements WordSelectionStrategy {
+    private final List<WordSelectionStrategy> queues;
+    private int current = 0;
+    private int remaining;
+
+    public RoundRobinStrategy(List<ArticleSnapshot> words, Random random) {
+        Map<Vocabulary, List<ArticleSnapshot>> byVocabulary = new IdentityHashMap<Vocabulary, List<ArticleSnapshot>>();
+        List<List<ArticleSnapshot>> groups = new ArrayList<List<ArticleSnapshot>>();
+        for (ArticleSnapshot word : words) {
+            List<ArticleSnapshot> group = byVocabulary.get(word.getVocabulary());
+            if (group == null) {
+                group = new ArrayList<ArticleSnapshot>();
+                byVocabulary.put(word.getVocabulary(), group);
+                groups.add(group);
+            }
+            group.add(word);
+        }
+        queues = new ArrayList<WordSelectionStrategy>(groups.size());
+        for (List<ArticleSnapshot> group : groups) {
+            queues.add(new ShuffledDeckStrategy(group, random));
+        }
+        remaining = words.size();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    @Override
+    public ArticleSnapshot next() {
+        if (remaining == 0) {
+            throw new NoSuchElementException("No more words");
+        }
+        //empty queues are removed, so the current queue always has words
+        WordSelectionStrategy queue = queues.get(current);
+        ArticleSnapshot word = queue.next();
+        remaining--;
+        if (queue.hasNext()) {
+            current++;
+        } else {
+            queues.remove(current);
+        }
+        if (current >= queues.size()) {
+            current = 0;
+        }
+        return word;
+    }
+
+    @Override
+    public int remaining() {
+        return remaining;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import vocabularyup.model.xml.ArticleSnapshot;
+
+/**
+ * Words are drawn uniformly at random. Drawn word is replaced by the last one,
+ * so each draw is O(1).
+ * @author dooman
+ */
+public class ShuffledDeckStrategy implements WordSelectionStrategy {
+    private final ArticleSnapshot[] deck;
+    private final Random random;
+    private int size;
+
+    public ShuffledDeckStrategy(List<ArticleSnapshot> words, Random random) {
+        this.deck = words.toArray(new ArticleSnapshot[words.size()]);
+        this.random = random;
+        this.size = deck.length;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return size > 0;
+    }
+
+    @Override
+    public ArticleSnapshot next() {
+        if (size == 0) {
+            throw new NoSuchElementException("No more words");
+        }
+        int index = random.nextInt(size);
+        ArticleSnapshot word = deck[index];
+        size--;
+        deck[index] = deck[size];
+        deck[size] = null;
+        return word;
+    }
+
+    @Override
+    public int remaining() {
+        return size;
+    }
+}
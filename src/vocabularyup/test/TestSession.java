@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.util.List;
+import vocabularyup.model.xml.Vocabulary;
+
+/**
+ * Test of one user registered in {@link TestSessionEngine}.<br/>
+ * Session wraps {@link VocabularyTest} and serializes calls to it,
+ * so session may be used from different threads, e.g. by requests of one client.
+ * @author dooman
+ */
+public class TestSession {
+    private final long id;
+    private final VocabularyTest test;
+    private volatile long lastAccess;
+    private boolean ended = false;
+    private boolean awaitingAnswer = false;
+
+    TestSession(long id, VocabularyTest test) {
+        this.id = id;
+        this.test = test;
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return time of the last operation in milliseconds.
+     */
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Does session take words from vocabulary.
+     * @param vocabulary vocabulary.
+     * @return {@code true} if vocabulary is one of test's vocabularies.
+     */
+    public boolean uses(Vocabulary vocabulary) {
+        return test.getVocabularies().contains(vocabulary);
+    }
+
+    synchronized void start() {
+        test.start();
+    }
+
+    /**
+     * Return the next word.
+     * @return the next word or {@code null} if there aren't more words.
+     */
+    public synchronized String nextWord() {
+        touch();
+        awaitingAnswer = !ended && test.hasMoreWords();
+        return awaitingAnswer ? test.getWord() : null;
+    }
+
+    /**
+     * Set answer for the last returned word. Every word is answered once,
+     * a repeated request (e.g. client's retry) must not grade the word again.
+     * @param answer user's answer.
+     * @throws IllegalStateException if session is ended or there isn't word waiting for answer.
+     */
+    public synchronized void answer(String answer) {
+        touch();
+        checkActive();
+        if (!awaitingAnswer) {
+            throw new IllegalStateException("There isn't word waiting for answer in test session [" + id + "]");
+        }
+        awaitingAnswer = false;
+        test.setAnswer(answer);
+    }
+
+    public synchronized boolean hasMoreWords() {
+        return !ended && test.hasMoreWords();
+    }
+
+    /**
+     * End test and save results. Called by engine when session is removed from registry.
+     */
+    synchronized List<VocabularyTestResult> end() {
+        checkActive();
+        ended = true;
+        return test.end();
+    }
+
+    private void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    private void checkActive() {
+        if (ended) {
+            throw new IllegalStateException("Test session [" + id + "] is ended");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import vocabularyup.exception.TestSessionNotFoundException;
+import vocabularyup.model.xml.Vocabulary;
+
+/**
+ * Registry of test sessions, it doesn't depend on UI.<br/>
+ * All operations are thread-safe, many sessions may use the same vocabularies:
+ * ratings are changed atomically under vocabulary's lock, so concurrent sessions
+ * don't lose updates. Memory of session is bounded by {@link #MAX_WORDS} words;
+ * sessions that weren't used for {@code maxIdleMillis} are removed without saving
+ * results when new session starts.
+ * @author dooman
+ */
+public class TestSessionEngine {
+    private static final Logger log = Logger.getLogger(TestSessionEngine.class.getName());
+
+    /** Maximum number of words in one session. */
+    public static final int MAX_WORDS = 1000;
+    /** Default time after that not used session is removed. */
+    public static final long DEFAULT_MAX_IDLE = 30 * 60 * 1000L;
+
+    private final ConcurrentMap<Long, TestSession> sessions = new ConcurrentHashMap<Long, TestSession>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong lastExpire = new AtomicLong(System.currentTimeMillis());
+    private final long maxIdleMillis;
+
+    public TestSessionEngine() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    public TestSessionEngine(long maxIdleMillis) {
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * Start new session.
+     * @param vocabularies vocabularies for test.
+     * @param wordCount number of words, it's limited by {@link #MAX_WORDS}.
+     * @param selection how words are chosen.
+     * @param order order of words.
+     * @return started session.
+     */
+    public TestSession start(List<Vocabulary> vocabularies, int wordCount,
+            VocabularyTest.Selection selection, WordOrder order) {
+        //registry is checked not often than 10 times per idle period
+        long now = System.currentTimeMillis();
+        long last = lastExpire.get();
+        if (now - last > maxIdleMillis / 10 && lastExpire.compareAndSet(last, now)) {
+            expireIdle();
+        }
+        VocabularyTest test = new VocabularyTest(vocabularies, Math.min(wordCount, MAX_WORDS),
+                selection, order, new Random());
+        TestSession session = new TestSession(nextId.getAndIncrement(), test);
+        session.start();
+        sessions.put(session.getId(), session);
+        log.fine("Start test session [" + session.getId() + "], active sessions: [" + sessions.size() + "]");
+        return session;
+    }
+
+    /**
+     * Return active session.
+     * @param id id of session.
+     * @return session.
+     * @throws TestSessionNotFoundException if session is ended or expired.
+     */
+    public TestSession getSession(long id) throws TestSessionNotFoundException {
+        TestSession session = sessions.get(id);
+        if (session == null) {
+            throw new TestSessionNotFoundException(id);
+        }
+        return session;
+    }
+
+    /**
+     * Return the next word of session.
+     * @return the next word or {@code null} if there aren't more words.
+     * @throws TestSessionNotFoundException if session is ended or expired.
+     */
+    public String nextWord(long id) throws TestSessionNotFoundException {
+        return getSession(id).nextWord();
+    }
+
+    /**
+     * Set answer for the last word of session.
+     * @throws TestSessionNotFoundException if session is ended or expired.
+     */
+    public void answer(long id, String answer) throws TestSessionNotFoundException {
+        getSession(id).answer(answer);
+    }
+
+    /**
+     * End session, save results and remove it from registry.
+     * Only one of concurrent calls for the same session ends it.
+     * @param id id of session.
+     * @return results of test.
+     * @throws TestSessionNotFoundException if session is already ended or expired.
+     */
+    public List<VocabularyTestResult> end(long id) throws TestSessionNotFoundException {
+        TestSession session = sessions.remove(id);
+        if (session == null) {
+            throw new TestSessionNotFoundException(id);
+        }
+        return session.end();
+    }
+
+    /**
+     * @return number of active sessions.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Is vocabulary used by any active session.
+     * @param vocabulary vocabulary.
+     * @return {@code true} if some session takes words from vocabulary.
+     */
+    public boolean isUsed(Vocabulary vocabulary) {
+        for (TestSession session : sessions.values()) {
+            if (session.uses(vocabulary)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove sessions that weren't used too long, their results aren't saved.
+     * @return number of removed sessions.
+     */
+    public int expireIdle() {
+        long oldest = System.currentTimeMillis() - maxIdleMillis;
+        int removed = 0;
+        for (Iterator<TestSession> it = sessions.values().iterator(); it.hasNext();) {
+            if (it.next().getLastAccess() < oldest) {
+                it.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("Removed [" + removed + "] idle test sessions");
+        }
+        return removed;
+    }
+}
@@ -17,47 +17,148 @@
 
 package vocabularyup.test;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import vocabularyup.exception.VocabularyModelException;
 import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.ArticleSnapshot;
 import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.model.xml.VocabularyTransaction;
+import vocabularyup.test.history.AnswerHistory;
+import vocabularyup.test.history.AnswerRecord;
+import vocabularyup.util.collection.KWayMerge;
 
 /**
  * Main class for prepare and process users's test.<br/>
- * Class choose words from minimum rating to high.<br/>
+ * By default class chooses words that are due for review (spaced repetition), the most overdue first,
+ * see {@link Selection} for other ways. Order of chosen words is defined by {@link WordOrder}.<br/>
  * If user's answer is right than rating of this word increments, else decrement.
+ * Review schedule of word is updated by answer too.<br/>
+ * Test may use several vocabularies, words are chosen from all of them by
+ * merging their indexes, results are saved once for each vocabulary.<br/>
  * To begin test, call method {@code start()}. For end test, call method {@code end()}.
- * To get word, call method {@code getWord()}. When user answer, you must call {@code setAnswer()}.
+ * To get word, call method {@code getWord()}. When user answer, you must call {@code setAnswer()}.<br/>
+ * Test works with snapshots of vocabularies taken at start, so vocabularies may be
+ * edited while test is in progress.
  * 
- * //TODO: need statistics
+ * Graded answers are appended to {@link AnswerHistory} of each vocabulary.
  * @author dooman
  */
 public class VocabularyTest {
     private static final Logger log = Logger.getLogger(VocabularyTest.class.getName());
 
-    private Vocabulary vocabulary;
+    /** Quality of right answer for review schedule. */
+    private static final int RIGHT_ANSWER_QUALITY = 4;
+    /** Quality of wrong answer for review schedule. */
+    private static final int WRONG_ANSWER_QUALITY = 1;
+
+    /**
+     * How words for test are chosen.
+     */
+    public enum Selection {
+        /** Words that should be reviewed first. */
+        DUE("Due for review", Vocabulary.DUE_ORDER) {
+            @Override
+            List<ArticleSnapshot> take(Vocabulary vocabulary, int count) {
+                return vocabulary.getArticlesForReview(count);
+            }
+        },
+        /** Words with the lowest rating. */
+        WEAKEST("Weakest words", Vocabulary.RATING_ORDER) {
+            @Override
+            List<ArticleSnapshot> take(Vocabulary vocabulary, int count) {
+                return vocabulary.getWeakestArticles(count);
+            }
+        };
+
+        private final String title;
+        private final Comparator<ArticleSnapshot> order;
+
+        private Selection(String title, Comparator<ArticleSnapshot> order) {
+            this.title = title;
+            this.order = order;
+        }
+
+        /**
+         * Take the first words of vocabulary in order of this selection.
+         */
+        abstract List<ArticleSnapshot> take(Vocabulary vocabulary, int count);
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    private List<Vocabulary> vocabularies;
     private int wordCount;
-    private List<Article> testArticles;
+    private Selection selection;
+    private WordOrder order;
+    private Random random;
+    private WordSelectionStrategy testArticles;
     private boolean inProcess = false;
 
-    private Article currentArticle = null;
-    private Map<Article, String> answers = null;
-    
+    private AnswerMatcher matcher = AnswerMatcher.EXACT;
+
+    private ArticleSnapshot currentArticle = null;
+    private long currentAskedAt;
+    private Map<ArticleSnapshot, VocabularyTestResult> answers = null;
+    /** Graded answers for history of each vocabulary. */
+    private Map<Vocabulary, List<AnswerRecord>> history = null;
 
     public VocabularyTest(Vocabulary vocabulary, int wordCount) {
-        this.vocabulary = vocabulary;
+        this(vocabulary, wordCount, Selection.DUE);
+    }
+
+    public VocabularyTest(Vocabulary vocabulary, int wordCount, Selection selection) {
+        this(vocabulary, wordCount, selection, WordOrder.RANDOM, new Random());
+    }
+
+    /**
+     * Create test.
+     * @param vocabulary vocabulary for test.
+     * @param wordCount maximum number of words.
+     * @param selection how words are chosen.
+     * @param order order of chosen words.
+     * @param random random generator for order, test with the same seed asks words in the same order.
+     */
+    public VocabularyTest(Vocabulary vocabulary, int wordCount, Selection selection, WordOrder order, Random random) {
+        this(Collections.singletonList(vocabulary), wordCount, selection, order, random);
+    }
+
+    /**
+     * Create test for several vocabularies.
+     * @param vocabularies vocabularies for test.
+     * @param wordCount maximum number of words from all vocabularies.
+     * @param selection how words are chosen, the best words of all vocabularies are taken.
+     * @param order order of chosen words.
+     * @param random random generator for order.
+     */
+    public VocabularyTest(List<Vocabulary> vocabularies, int wordCount, Selection selection, WordOrder order, Random random) {
+        this.vocabularies = new ArrayList<Vocabulary>(vocabularies);
         this.wordCount = wordCount;
-        testArticles = new ArrayList<Article>();
-        log.fine("Create new test vocabulary=[" + vocabulary.getName() + "], wordCount=[" + wordCount + "]");
+        this.selection = selection;
+        this.order = order;
+        this.random = random;
+        log.fine("Create new test vocabularies=" + vocabularies + ", wordCount=[" + wordCount +
+                "], selection=[" + selection.name() + "], order=[" + order.name() + "]");
+    }
+
+    /**
+     * Set the way answers are checked, by default normalized answer must be
+     * equal to normalized translate.
+     * @param matcher checks answers.
+     */
+    public void setAnswerMatcher(AnswerMatcher matcher) {
+        this.matcher = matcher;
     }
 
     /**
@@ -65,8 +166,8 @@ public class VocabularyTest {
      */
     public void start() {
         log.fine("Start test.");
-        testArticles = new LinkedList<Article>();
-        answers = new HashMap<Article, String>();
+        answers = new LinkedHashMap<ArticleSnapshot, VocabularyTestResult>();
+        history = new LinkedHashMap<Vocabulary, List<AnswerRecord>>();
         prepareWords();
         inProcess = true;
     }
@@ -80,27 +181,38 @@ public class VocabularyTest {
         if (!inProcess) {
             throw new IllegalStateException("Test isn't in progress, you must call start() to begin it.");
         }
-        if (testArticles.size() == 0) {
+        if (!testArticles.hasNext()) {
             throw new IllegalStateException("No more word for test.");
         }
 
-        Random rand = new Random(System.currentTimeMillis());
-        int wordIndex = rand.nextInt(testArticles.size());
-
-        currentArticle = testArticles.get(wordIndex);
-        testArticles.remove(currentArticle);
+        currentArticle = testArticles.next();
+        currentAskedAt = System.currentTimeMillis();
 
         log.fine("Get next article from test [" + currentArticle.getSource() + "]");
         return currentArticle.getSource();
     }
 
     /**
-     * Set user's answer for current word.
+     * Set user's answer for current word. Answer is graded at once.
      * @param answer user's answer.
+     * @throws IllegalStateException if there isn't current word.
      */
     public void setAnswer(String answer) {
         log.fine("Set answer [" + answer + "]");
-        answers.put(currentArticle, answer);
+        if (currentArticle == null) {
+            throw new IllegalStateException("There isn't current word in test");
+        }
+        long now = System.currentTimeMillis();
+        int responseMillis = (int) Math.min(Integer.MAX_VALUE, now - currentAskedAt);
+        VocabularyTestResult result = new VocabularyTestResult(currentArticle, answer, responseMillis, matcher);
+        answers.put(currentArticle, result);
+
+        List<AnswerRecord> records = history.get(currentArticle.getVocabulary());
+        if (records == null) {
+            records = new ArrayList<AnswerRecord>();
+            history.put(currentArticle.getVocabulary(), records);
+        }
+        records.add(new AnswerRecord(currentArticle.getId(), now, result.isResult(), responseMillis));
     }
 
     /**
@@ -109,74 +221,75 @@ public class VocabularyTest {
      */
     public List<VocabularyTestResult> end() {
         log.fine("End test, creating result");
-        List<VocabularyTestResult> results = new LinkedList<VocabularyTestResult>();
-        for (Map.Entry<Article, String> answer : answers.entrySet())  {
-            results.add(new VocabularyTestResult(answer.getKey(), answer.getValue()));
-        }
-        testArticles.clear();
+        List<VocabularyTestResult> results = new ArrayList<VocabularyTestResult>(answers.values());
         testArticles = null;
         answers.clear();
         answers = null;
 
+        //all ratings are saved at once, one save for each vocabulary
+        VocabularyTransaction tx = new VocabularyTransaction();
+        long now = System.currentTimeMillis();
         for (VocabularyTestResult r : results) {
-            Article article = r.getArticle();
-            Integer rating = Integer.valueOf(article.getRating());
-            r.getArticle().setRating(String.valueOf(rating + (r.isResult() ? 1 : -1)));
+            Article article = r.getArticle().getVocabulary().getArticle(r.getArticle().getId());
+            article.getVocabulary().getRatingCounters().recordAnswer(article.getId(), r.isResult());
+            int rating = tx.changeRating(article, r.isResult() ? 1 : -1);
+            tx.review(article, r.isResult() ? RIGHT_ANSWER_QUALITY : WRONG_ANSWER_QUALITY, now);
             log.fine("Set new rating to article [" + article.getSource() +
-                    "], new: [" + article.getRating() + "] old: [" + rating + "]");
+                    "], new: [" + rating + "] old: [" + r.getArticle().getRating() + "]");
         }
 
         try {
-            vocabulary.save();
+            tx.commit();
         } catch (VocabularyModelException e) {
             log.log(Level.SEVERE, "Error saving test results", e);
         }
 
+        for (Map.Entry<Vocabulary, List<AnswerRecord>> e : history.entrySet()) {
+            try {
+                AnswerHistory.forVocabulary(e.getKey().getName()).append(e.getValue());
+            } catch (IOException ex) {
+                log.log(Level.SEVERE, "Error writing answers history of [" + e.getKey().getName() + "]", ex);
+            }
+        }
+        history = null;
+
         return results;
     }
 
+    /**
+     * @return vocabularies of this test.
+     */
+    public List<Vocabulary> getVocabularies() {
+        return Collections.unmodifiableList(vocabularies);
+    }
+
     /**
      * Has more words in test or not.
      * @return {@code true} if test has words and {@code != null}, else {@code false}.
      */
     public boolean hasMoreWords() {
-        return testArticles != null && testArticles.size() != 0;
+        return testArticles != null && testArticles.hasNext();
     }
 
     /**
      * Call before test begins.<br/>
      * Prepare words for testing.<br/>
-     * Select words with minimum ratings, if need add other words.
+     * Take words from the head of vocabularies' review queues or rating indexes,
+     * several vocabularies are merged without sorting all their words.
      */
     private void prepareWords() {
-        List<Article> articles = vocabulary.getArticles();
-        Map<Integer, List<Article>> ratingMap = new TreeMap<Integer, List<Article>>(); //need sorted map
-
-        //sort all articles by rating
-        for (Article a : articles) {
-            if (a.getTranslates() == null || a.getTranslates().size() == 0) {
-                log.info("Article [" + a.getSource() + "] hasn't translate and won't add to test.");
-                continue;
+        List<ArticleSnapshot> words;
+        if (vocabularies.size() == 1) {
+            words = selection.take(vocabularies.get(0), wordCount);
+        } else {
+            List<List<ArticleSnapshot>> heads = new ArrayList<List<ArticleSnapshot>>(vocabularies.size());
+            for (Vocabulary v : vocabularies) {
+                heads.add(selection.take(v, wordCount));
             }
-            Integer rating = a.getRating().isEmpty() ? 0 : Integer.valueOf(a.getRating());
-            List<Article> ratingArticles = ratingMap.get(rating);
-            if (ratingArticles == null) {
-                ratingArticles = new ArrayList<Article>();
-                ratingMap.put(rating, ratingArticles);
-            }
-
-            ratingArticles.add(a);
-        }
-
-        List<Article> allSortedArticles = new LinkedList<Article>();
-        for (List<Article> a : ratingMap.values()) {
-            allSortedArticles.addAll(a);
-        }
-        Iterator<Article> allSortedArticleIt = allSortedArticles.iterator();
-        while (testArticles.size() < wordCount && allSortedArticleIt.hasNext()) {
-            testArticles.add(allSortedArticleIt.next());
+            words = KWayMerge.merge(heads, selection.order, wordCount);
         }
-        log.fine("Add [" + testArticles.size() + "] words to test");
+        testArticles = order.create(words, random);
+        log.fine("Add [" + testArticles.remaining() + "] words to test");
     }
 
 }
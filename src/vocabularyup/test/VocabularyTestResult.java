@@ -17,31 +17,43 @@
 
 package vocabularyup.test;
 
-import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.ArticleSnapshot;
 
 /**
- * Result for one word in test.
+ * Result for one word in test.<br/>
+ * Answer is graded by {@link AnswerMatcher}, it compares normalized answer
+ * with precomputed keys of article.
  * @author dooman
  */
 public class VocabularyTestResult {
-    private Article article;
+    private ArticleSnapshot article;
     private String userAnswer;
     private boolean result;
+    private int responseMillis;
 
-    public VocabularyTestResult(Article article, String userAnswer) {
+    public VocabularyTestResult(ArticleSnapshot article, String userAnswer) {
+        this(article, userAnswer, 0, AnswerMatcher.EXACT);
+    }
+
+    /**
+     * Grade answer.
+     * @param article asked article.
+     * @param userAnswer user's answer.
+     * @param responseMillis time between showing word and answer.
+     * @param matcher checks answer.
+     */
+    public VocabularyTestResult(ArticleSnapshot article, String userAnswer, int responseMillis, AnswerMatcher matcher) {
         this.article = article;
         this.userAnswer = userAnswer;
-        this.result = false;
-
-        for (String t : article.getTranslates()) {
-            if (t.equals(userAnswer)) {
-                result = true;
-                break;
-            }
-        }
+        this.responseMillis = responseMillis;
+        this.result = matcher.matches(article, userAnswer);
     }
 
-    public Article getArticle() {
+    /**
+     * Return article in the state it was asked in test.
+     * @return snapshot of article.
+     */
+    public ArticleSnapshot getArticle() {
         return article;
     }
 
@@ -51,5 +63,12 @@ public class VocabularyTestResult {
 
     public String getUserAnswer() {
         return userAnswer;
+    }
+
+    /**
+     * @return time between showing word and answer in milliseconds.
+     */
+    public int getResponseMillis() {
+        return responseMillis;
     }    
 }
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import vocabularyup.model.xml.ArticleSnapshot;
+import vocabularyup.util.collection.FenwickTree;
+
+/**
+ * Words with lower rating are drawn earlier with higher probability.<br/>
+ * Weight of word is {@code BASE_WEIGHT - rating}, but not less than {@code 1}.
+ * Weights are kept in Fenwick tree, so each draw is O(log n).
+ * @author dooman
+ */
+public class WeightedRandomStrategy implements WordSelectionStrategy {
+    /** Weight of word with zero rating. */
+    static final int BASE_WEIGHT = 10;
+
+    private final ArticleSnapshot[] words;
+    private final FenwickTree weights;
+    private final Random random;
+    private int remaining;
+
+    public WeightedRandomStrategy(List<ArticleSnapshot> words, Random random) {
+        this.words = words.toArray(new ArticleSnapshot[words.size()]);
+        this.random = random;
+        this.remaining = this.words.length;
+        int[] w = new int[this.words.length];
+        for (int i = 0; i < w.length; i++) {
+            w[i] = weight(this.words[i].getRatingValue());
+        }
+        this.weights = new FenwickTree(w);
+    }
+
+    static int weight(int rating) {
+        long weight = (long) BASE_WEIGHT - rating;
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, weight));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    @Override
+    public ArticleSnapshot next() {
+        if (remaining == 0) {
+            throw new NoSuchElementException("No more words");
+        }
+        long total = weights.total();
+        long value = total <= Integer.MAX_VALUE
+                ? random.nextInt((int) total)
+                : (long) (random.nextDouble() * total);
+        int index = weights.find(value);
+        weights.set(index, 0);
+        remaining--;
+        return words[index];
+    }
+
+    @Override
+    public int remaining() {
+        return remaining;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.util.List;
+import java.util.Random;
+import vocabularyup.model.xml.ArticleSnapshot;
+
+/**
+ * Available orders of words in test.
+ * @author dooman
+ */
+public enum WordOrder {
+    /** Uniform random order. */
+    RANDOM("Random") {
+        @Override
+        public WordSelectionStrategy create(List<ArticleSnapshot> words, Random random) {
+            return new ShuffledDeckStrategy(words, random);
+        }
+    },
+    /** Words with lower rating are asked earlier. */
+    WEIGHTED("Weak words first") {
+        @Override
+        public WordSelectionStrategy create(List<ArticleSnapshot> words, Random random) {
+            return new WeightedRandomStrategy(words, random);
+        }
+    },
+    /** Vocabularies are asked in turn. */
+    ROUND_ROBIN("Vocabularies in turn") {
+        @Override
+        public WordSelectionStrategy create(List<ArticleSnapshot> words, Random random) {
+            return new RoundRobinStrategy(words, random);
+        }
+    };
+
+    private final String title;
+
+    private WordOrder(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Create strategy for words of one test.
+     * @param words prepared words.
+     * @param random random generator used by strategy.
+     * @return new strategy.
+     */
+    public abstract WordSelectionStrategy create(List<ArticleSnapshot> words, Random random);
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import vocabularyup.model.xml.ArticleSnapshot;
+
+/**
+ * Order in which prepared words are asked in test.<br/>
+ * Each word is returned once. Implementations use random generator given
+ * on creation, so order is reproducible with the same seed.
+ * @author dooman
+ */
+public interface WordSelectionStrategy {
+    /**
+     * @return {@code true} if there are words that weren't returned yet.
+     */
+    boolean hasNext();
+
+    /**
+     * Return the next word and remove it from strategy.
+     * @return the next word.
+     * @throws java.util.NoSuchElementException if there aren't words.
+     */
+    ArticleSnapshot next();
+
+    /**
+     * @return number of words that weren't returned yet.
+     */
+    int remaining();
+}
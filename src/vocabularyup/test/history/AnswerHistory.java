@@ -0,0 +1,236 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test.history;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+import vocabularyup.AppEnvironment;
+import vocabularyup.util.io.VarInt;
+
+/**
+ * Append-only log of answers of one vocabulary, it's stored in {@code <vocabulary>.history}.<br/>
+ * Answers of one test are appended as block:
+ * <pre>
+ * block  := MAGIC base-time count record*
+ * record := article-id time-delta (response-millis &lt;&lt; 1 | correct)
+ * </pre>
+ * All numbers are varints, time of record is a signed delta from the previous
+ * record (from base time for the first one), so usual record takes 4-6 bytes.
+ * History is read by streaming to {@link AnswerVisitor}, e.g.
+ * {@link ArticleAccuracy}, {@link AnswerStreaks}, {@link DailyAnswerCounts}.
+ * Block interrupted by crash is ignored while reading and cut off before the next append.<br/>
+ * Instances of the same file share lock, so blocks appended by
+ * concurrent tests aren't mixed.
+ * @author dooman
+ */
+public class AnswerHistory {
+    private static final Logger log = Logger.getLogger(AnswerHistory.class.getName());
+
+    public static final String HISTORY_FILE_EXTENSION = ".history";
+    private static final int MAGIC = 0xA5;
+    /** Maximum number of answers in block, bigger block means corrupted file. */
+    private static final int MAX_BLOCK_SIZE = 1 << 20;
+    private static final AnswerVisitor SKIP = new AnswerVisitor() {
+        @Override
+        public void visit(int articleId, long time, boolean correct, int responseMillis) {
+        }
+    };
+
+    /** Locks of history files by absolute path. */
+    private static final ConcurrentMap<String, Object> fileLocks = new ConcurrentHashMap<String, Object>();
+
+    private final File file;
+    private final Object fileLock;
+
+    public AnswerHistory(File file) {
+        this.file = file;
+        Object lock = new Object();
+        Object existing = fileLocks.putIfAbsent(file.getAbsolutePath(), lock);
+        this.fileLock = existing != null ? existing : lock;
+    }
+
+    /**
+     * Return history of vocabulary.
+     * @param vocabularyName name of vocabulary.
+     * @return history, its file may not exist yet.
+     */
+    public static AnswerHistory forVocabulary(String vocabularyName) {
+        return new AnswerHistory(new File(AppEnvironment.APP_HOME_DIR, vocabularyName + HISTORY_FILE_EXTENSION));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Append answers as one block and sync file to disk.
+     * Incomplete block at the end of file is cut off, otherwise the new block
+     * would be read as its continuation.
+     * @param records answers, usually of one test.
+     * @throws IOException error writing file or file is corrupted.
+     */
+    public void append(List<AnswerRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream block = new ByteArrayOutputStream(16 + records.size() * 6);
+        long previous = records.get(0).getTime();
+        block.write(MAGIC);
+        VarInt.writeUnsigned(block, previous);
+        VarInt.writeUnsigned(block, records.size());
+        for (AnswerRecord r : records) {
+            VarInt.writeUnsigned(block, r.getArticleId());
+            VarInt.writeSigned(block, r.getTime() - previous);
+            VarInt.writeUnsigned(block, ((long) r.getResponseMillis() << 1) | (r.isCorrect() ? 1 : 0));
+            previous = r.getTime();
+        }
+
+        synchronized (fileLock) {
+            long end = file.exists() ? scan(SKIP) : 0;
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            try {
+                long length = out.length();
+                if (end < length) {
+                    log.warning("Incomplete block at the end of " + file + " is cut off, [" + (length - end) + "] bytes");
+                    out.setLength(end);
+                }
+                out.seek(end);
+                out.write(block.toByteArray());
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+        }
+        log.fine("Append [" + records.size() + "] answers, [" + block.size() + "] bytes to " + file);
+    }
+
+    /**
+     * Read all answers.
+     * @param visitor receives answers in order of writing.
+     * @throws IOException error reading file or file is corrupted.
+     */
+    public void read(AnswerVisitor visitor) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        scan(visitor);
+    }
+
+    /**
+     * Read all complete blocks.
+     * @return length of file without incomplete block at the end.
+     */
+    private long scan(AnswerVisitor visitor) throws IOException {
+        CountingInputStream in = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            long end = 0;
+            int magic;
+            while ((magic = in.read()) >= 0) {
+                if (magic != MAGIC) {
+                    throw new IOException("Corrupted history " + file);
+                }
+                try {
+                    readBlock(in, visitor);
+                } catch (EOFException e) {
+                    log.warning("Incomplete block at the end of " + file + " is ignored");
+                    break;
+                }
+                end = in.getCount();
+            }
+            return end;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read whole block before visiting, so incomplete block isn't visited at all.
+     */
+    private void readBlock(InputStream in, AnswerVisitor visitor) throws IOException {
+        long time = VarInt.readUnsigned(in);
+        long count = VarInt.readUnsigned(in);
+        if (count > MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupted history " + file + ", block size: " + count);
+        }
+        int size = (int) count;
+        int[] ids = new int[size];
+        long[] times = new long[size];
+        long[] results = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = VarInt.readUnsignedInt(in);
+            time += VarInt.readSigned(in);
+            times[i] = time;
+            results[i] = VarInt.readUnsigned(in);
+        }
+        for (int i = 0; i < size; i++) {
+            visitor.visit(ids[i], times[i], (results[i] & 1) != 0, (int) Math.min(Integer.MAX_VALUE, results[i] >>> 1));
+        }
+    }
+
+    /**
+     * Counts bytes read to find the end of the last complete block.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test.history;
+
+/**
+ * One graded answer in test.
+ * @author dooman
+ */
+public final class AnswerRecord {
+    private final int articleId;
+    private final long time;
+    private final boolean correct;
+    private final int responseMillis;
+
+    /**
+     * Create record.
+     * @param articleId id of article in vocabulary.
+     * @param time time of answer in milliseconds.
+     * @param correct {@code true} if answer is right.
+     * @param responseMillis time between showing word and answer.
+     */
+    public AnswerRecord(int articleId, long time, boolean correct, int responseMillis) {
+        this.articleId = articleId;
+        this.time = time;
+        this.correct = correct;
+        this.responseMillis = Math.max(0, responseMillis);
+    }
+
+    public int getArticleId() {
+        return articleId;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public boolean isCorrect() {
+        return correct;
+    }
+
+    public int getResponseMillis() {
+        return responseMillis;
+    }
+}
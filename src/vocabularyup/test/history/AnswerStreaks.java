@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test.history;
+
+import java.util.Arrays;
+
+/**
+ * Series of right answers in a row for each article:
+ * current series and the longest one.
+ * @author dooman
+ */
+public class AnswerStreaks implements AnswerVisitor {
+    private int[] current = new int[16];
+    private int[] best = new int[16];
+
+    @Override
+    public void visit(int articleId, long time, boolean correct, int responseMillis) {
+        if (articleId >= current.length) {
+            int length = Math.max(articleId + 1, current.length * 2);
+            current = Arrays.copyOf(current, length);
+            best = Arrays.copyOf(best, length);
+        }
+        if (correct) {
+            current[articleId]++;
+            best[articleId] = Math.max(best[articleId], current[articleId]);
+        } else {
+            current[articleId] = 0;
+        }
+    }
+
+    /**
+     * @return number of the last answers in a row that were right.
+     */
+    public int getCurrent(int articleId) {
+        return articleId < current.length ? current[articleId] : 0;
+    }
+
+    /**
+     * @return the longest series of right answers.
+     */
+    public int getBest(int articleId) {
+        return articleId < best.length ? best[articleId] : 0;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test.history;
+
+/**
+ * Receives answers while history is read, records aren't kept in memory.
+ * @author dooman
+ */
+public interface AnswerVisitor {
+    /**
+     * Called for each answer in order of writing.
+     * @param articleId id of article in vocabulary.
+     * @param time time of answer in milliseconds.
+     * @param correct {@code true} if answer was right.
+     * @param responseMillis time between showing word and answer.
+     */
+    void visit(int articleId, long time, boolean correct, int responseMillis);
+}
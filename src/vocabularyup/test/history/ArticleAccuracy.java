@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test.history;
+
+import java.util.Arrays;
+
+/**
+ * Number of answers and right answers for each article.
+ * Memory depends on number of articles, not on size of history.
+ * @author dooman
+ */
+public class ArticleAccuracy implements AnswerVisitor {
+    private int[] answers = new int[16];
+    private int[] correct = new int[16];
+
+    @Override
+    public void visit(int articleId, long time, boolean right, int responseMillis) {
+        if (articleId >= answers.length) {
+            int length = Math.max(articleId + 1, answers.length * 2);
+            answers = Arrays.copyOf(answers, length);
+            correct = Arrays.copyOf(correct, length);
+        }
+        answers[articleId]++;
+        if (right) {
+            correct[articleId]++;
+        }
+    }
+
+    public int getAnswers(int articleId) {
+        return articleId < answers.length ? answers[articleId] : 0;
+    }
+
+    public int getCorrect(int articleId) {
+        return articleId < correct.length ? correct[articleId] : 0;
+    }
+
+    /**
+     * Return part of right answers.
+     * @param articleId id of article.
+     * @return value in {@code [0, 1]} or {@code NaN} if article wasn't asked.
+     */
+    public double getAccuracy(int articleId) {
+        int total = getAnswers(articleId);
+        return total == 0 ? Double.NaN : (double) getCorrect(articleId) / total;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test.history;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Number of answers and right answers for each day.
+ * Days are counted in the given time zone.
+ * @author dooman
+ */
+public class DailyAnswerCounts implements AnswerVisitor {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private final TimeZone timeZone;
+    /** Start of day -> {answers, right answers}. */
+    private final TreeMap<Long, int[]> days = new TreeMap<Long, int[]>();
+
+    public DailyAnswerCounts() {
+        this(TimeZone.getDefault());
+    }
+
+    public DailyAnswerCounts(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    @Override
+    public void visit(int articleId, long time, boolean correct, int responseMillis) {
+        long local = time + timeZone.getOffset(time);
+        long day = local - (((local % DAY) + DAY) % DAY) - timeZone.getOffset(time);
+        int[] counts = days.get(day);
+        if (counts == null) {
+            counts = new int[2];
+            days.put(day, counts);
+        }
+        counts[0]++;
+        if (correct) {
+            counts[1]++;
+        }
+    }
+
+    /**
+     * Return number of answers by day.
+     * @return unmodifiable map: start of day in milliseconds -> number of answers.
+     */
+    public SortedMap<Long, Integer> getAnswers() {
+        return counts(0);
+    }
+
+    /**
+     * Return number of right answers by day.
+     * @return unmodifiable map: start of day in milliseconds -> number of right answers.
+     */
+    public SortedMap<Long, Integer> getCorrect() {
+        return counts(1);
+    }
+
+    private SortedMap<Long, Integer> counts(int index) {
+        TreeMap<Long, Integer> result = new TreeMap<Long, Integer>();
+        for (Map.Entry<Long, int[]> e : days.entrySet()) {
+            result.put(e.getKey(), e.getValue()[index]);
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.ui;
+
+import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.ArticleSnapshot;
+
+/**
+ * Cache of rendered articles for {@link ArticleView}.<br/>
+ * Documents are built directly with styled attributes, without html parsing.
+ * Document is keyed by article and valid while state of article is equal
+ * to the rendered one, so any change of article makes new document. Least recently used documents
+ * are removed when cache is full. Used only in event dispatch thread.
+ * @author dooman
+ */
+class ArticleDocumentCache {
+    private static final Logger log = Logger.getLogger(ArticleDocumentCache.class.getName());
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final String BULLET = "• ";
+
+    private static final AttributeSet TITLE;
+    private static final AttributeSet ITEM;
+    private static final AttributeSet RATING;
+    private static final AttributeSet RATING_PARAGRAPH;
+    static {
+        SimpleAttributeSet title = new SimpleAttributeSet();
+        StyleConstants.setBold(title, true);
+        StyleConstants.setUnderline(title, true);
+        StyleConstants.setFontSize(title, 24);
+        TITLE = title;
+
+        SimpleAttributeSet item = new SimpleAttributeSet();
+        StyleConstants.setBold(item, true);
+        ITEM = item;
+
+        SimpleAttributeSet rating = new SimpleAttributeSet();
+        StyleConstants.setBold(rating, true);
+        StyleConstants.setFontSize(rating, 18);
+        RATING = rating;
+
+        SimpleAttributeSet ratingParagraph = new SimpleAttributeSet();
+        StyleConstants.setAlignment(ratingParagraph, StyleConstants.ALIGN_RIGHT);
+        StyleConstants.setSpaceAbove(ratingParagraph, 10);
+        RATING_PARAGRAPH = ratingParagraph;
+    }
+
+    private static class CachedDocument {
+        final ArticleSnapshot state;
+        final StyledDocument document;
+
+        CachedDocument(ArticleSnapshot state, StyledDocument document) {
+            this.state = state;
+            this.document = document;
+        }
+    }
+
+    private final Map<Article, CachedDocument> documents;
+
+    ArticleDocumentCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ArticleDocumentCache(final int capacity) {
+        documents = new LinkedHashMap<Article, CachedDocument>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Article, CachedDocument> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Return document for current state of article, build it if it isn't in cache.
+     * @param article article to render.
+     * @return rendered article.
+     */
+    StyledDocument getDocument(Article article) {
+        ArticleSnapshot state = article.snapshot();
+        CachedDocument entry = documents.get(article);
+        if (entry == null || !entry.state.equals(state)) {
+            entry = new CachedDocument(state, build(state));
+            documents.put(article, entry);
+        }
+        return entry.document;
+    }
+
+    /**
+     * Build document for article in advance, if it isn't in cache.
+     * @param article article which probably will be shown soon.
+     */
+    void prefetch(Article article) {
+        getDocument(article);
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    /**
+     * Build document shown when there isn't selected article.
+     * @return document with message.
+     */
+    static StyledDocument emptyDocument() {
+        DefaultStyledDocument document = new DefaultStyledDocument();
+        append(document, "No selected articles", null);
+        return document;
+    }
+
+    /**
+     * Render source, translates, examples and rating of article to new document.
+     * @param article state of article.
+     * @return new document.
+     */
+    static StyledDocument build(ArticleSnapshot article) {
+        DefaultStyledDocument document = new DefaultStyledDocument();
+        append(document, article.getSource() + "\n", TITLE);
+        appendItems(document, article.getTranslates());
+        appendItems(document, article.getExamples());
+
+        int paragraphStart = document.getLength();
+        SimpleAttributeSet rating = new SimpleAttributeSet(RATING);
+        StyleConstants.setBackground(rating, article.getRatingValue() < 0 ? Color.RED : new Color(0xF0FFFF));
+        append(document, "Rating: " + article.getRating(), rating);
+        document.setParagraphAttributes(paragraphStart, document.getLength() - paragraphStart, RATING_PARAGRAPH, false);
+        return document;
+    }
+
+    private static void appendItems(StyledDocument document, List<String> items) {
+        for (String item : items) {
+            append(document, BULLET, null);
+            append(document, item + "\n", ITEM);
+        }
+        append(document, "\n", null);
+    }
+
+    private static void append(StyledDocument document, String text, AttributeSet attributes) {
+        try {
+            document.insertString(document.getLength(), text, attributes);
+        } catch (BadLocationException e) {
+            //insert at the end is always valid
+            log.log(Level.SEVERE, "Can't render article", e);
+        }
+    }
+}
@@ -17,68 +17,59 @@
 
 package vocabularyup.ui;
 
+import java.util.List;
 import java.util.logging.Logger;
 import javax.swing.JTextPane;
-import javax.swing.text.html.HTMLEditorKit;
+import javax.swing.SwingUtilities;
+import vocabularyup.VocabularyApp;
 import vocabularyup.model.xml.Article;
 
 /**
- * Text pane that show current article.
+ * Text pane that show current article.<br/>
+ * Rendered articles are cached, articles next to the selected one in current
+ * search result are rendered in advance, so browsing the list with arrows
+ * doesn't wait for rendering.
  * @author dooman
  */
 public class ArticleView extends JTextPane {
     private static final Logger log = Logger.getLogger(ArticleView.class.getName());
+    /** Number of articles before and after the selected one that are rendered in advance. */
+    private static final int PREFETCH_DISTANCE = 2;
+
+    private final ArticleDocumentCache cache = new ArticleDocumentCache();
 
     public ArticleView() {
-        setEditorKit(new HTMLEditorKit());
         setEditable(false);
+        setArticle(null);
     }
 
-    public void setArticle(Article article) {
+    public void setArticle(final Article article) {
         log.fine("Set article to view [" + (article == null ? "null" : article.getSource()) + "]");
         if (article != null) {
-            StringBuilder html = new StringBuilder();
-            html.append("<html>");
-            html.append("<head></head>");
-            html.append("<body>");
-            html.append("<h1><u>");
-            html.append(article.getSource());
-            html.append("</u></h1>");
-
-            html.append("<ul>");
-            for (String translate : article.getTranslates()) {
-                html.append("<li><b>");
-                html.append(translate);
-                html.append("</b></li>");
-            }
-            html.append("</ul>");
-
-            html.append("<ul>");
-            for (String example : article.getExamples()) {
-                html.append("<li><b>");
-                html.append(example);
-                html.append("</b></li>");
-            }
-            html.append("</ul>");
-            String color = Integer.valueOf(article.getRating()) < 0 ? "#FF0000" : "#F0FFFF";
-            html.append("<h2 style=\"text-align:right;background-color:").append(color).append(";\">");
-            html.append("Rating: ").append(article.getRating());
-            html.append("</h2>");
-            html.append("</body>");
-            html.append("</html>");
-
-            setText(html.toString());
+            setStyledDocument(cache.getDocument(article));
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    prefetchNeighbours(article);
+                }
+            });
         } else {
-            StringBuilder html = new StringBuilder();
-            html.append("<html>");
-            html.append("<head></head>");
-            html.append("<body>");
-            html.append("No selected articles");
-            html.append("</body>");
-            html.append("</html>");
-            setText(html.toString());
+            setStyledDocument(ArticleDocumentCache.emptyDocument());
         }
+        setCaretPosition(0);
+    }
 
-        log.finest("Set text to:\n" + getText());
+    private void prefetchNeighbours(Article article) {
+        VocabularyApp app = VocabularyApp.getInstance();
+        List<Article> articles = app.getCurrentArticles();
+        int index = app.indexOfCurrentArticle(article);
+        if (index < 0) {
+            return;
+        }
+        int from = Math.max(0, index - PREFETCH_DISTANCE);
+        int to = Math.min(articles.size() - 1, index + PREFETCH_DISTANCE);
+        for (int i = from; i <= to; i++) {
+            cache.prefetch(articles.get(i));
+        }
     }
 }
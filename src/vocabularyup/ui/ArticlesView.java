@@ -17,49 +17,76 @@
 
 package vocabularyup.ui;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import javax.swing.JTable;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import vocabularyup.VocabularyApp;
 import vocabularyup.VocabularyAppAdapter;
 import vocabularyup.VocabularyAppEvent;
 import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.Vocabulary;
 
 /**
- * Contains list of articles(result of search)
+ * Contains list of articles(result of search).<br/>
+ * Model doesn't copy result, it reads rows from current search result of
+ * application. Sources of painted rows are cached by model until rows or
+ * vocabulary are changed, and rows are drawn by single renderer, so scrolling
+ * doesn't decode articles again.
  * @author dooman
  */
 public class ArticlesView extends JTable {
     private static final Logger log = Logger.getLogger(ArticlesView.class.getName());
 
-    public static class ArticleView {
-        private Article article;
-
-        public ArticleView(Article article) {
-            this.article = article;
-        }
-
-        public Article getArticle() {
-            return article;
-        }
+    /** Rows which sources are cached, it's more than visible rows. */
+    private static final int MAX_CACHED_ROWS = 256;
 
+    /**
+     * Flyweight renderer for articles, the same component paints all rows.
+     */
+    private static class ArticleCellRenderer extends DefaultTableCellRenderer {
         @Override
-        public String toString() {
-            return article.getSource();
+        protected void setValue(Object value) {
+            setText(value == null ? "" : (String) value);
         }
     }
 
     private class ArticlesViewModel extends AbstractTableModel {
-        private List<ArticleView> searchResults = new ArrayList<ArticleView>();
+        private List<Article> searchResults = Collections.emptyList();
+        private Vocabulary vocabulary;
+        /** Version of vocabulary which sources are cached. */
+        private long cachedVersion = -1;
+        private final Map<Integer, String> sources = new LinkedHashMap<Integer, String>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > MAX_CACHED_ROWS;
+            }
+        };
 
         public ArticlesViewModel() {
             VocabularyApp.getInstance().addListener(new VocabularyAppAdapter(){
                 @Override
                 public void currentArticlesChanges(VocabularyAppEvent event) {
-                    VocabularyApp.getInstance().setSelectedArticle(null);
-                    setSearchResults(event.getArticles());
+                    //result is already changed, only notify table about changed rows
+                    switch (event.getType()) {
+                        case CURRENT_ARTICLES_INSERTED:
+                            fireTableRowsInserted(event.getFirstIndex(), event.getLastIndex());
+                            break;
+                        case CURRENT_ARTICLES_UPDATED:
+                            fireTableRowsUpdated(event.getFirstIndex(), event.getLastIndex());
+                            break;
+                        case CURRENT_ARTICLES_REMOVED:
+                            fireTableRowsDeleted(event.getFirstIndex(), event.getLastIndex());
+                            break;
+                        default:
+                            VocabularyApp.getInstance().setSelectedArticle(null);
+                            setSearchResults(VocabularyApp.getInstance().getCurrentArticles());
+                    }
                 }
             });
         }
@@ -74,36 +101,62 @@ public class ArticlesView extends JTable {
             return searchResults.size();
         }
 
+        /**
+         * Return source of article in row.
+         */
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
+            long version = vocabulary == null ? -1 : vocabulary.snapshot().getVersion();
+            if (version != cachedVersion) {
+                sources.clear();
+                cachedVersion = version;
+            }
+            String source = sources.get(rowIndex);
+            if (source == null) {
+                source = searchResults.get(rowIndex).getSource();
+                sources.put(rowIndex, source);
+            }
+            return source;
+        }
+
+        public Article getArticle(int rowIndex) {
             return searchResults.get(rowIndex);
         }
 
+        /**
+         * Rows are changed, cached sources are dropped.
+         */
+        @Override
+        public void fireTableChanged(TableModelEvent e) {
+            sources.clear();
+            super.fireTableChanged(e);
+        }
+
         public void setSearchResults(List<Article> newSearchResults) {
-            searchResults.clear();
-            for (Article a : newSearchResults) {
-                addSearchResult(a);
-            }
+            searchResults = newSearchResults;
+            vocabulary = VocabularyApp.getInstance().getCurrentVocabulary();
             fireTableDataChanged();
             if (newSearchResults.size() > 0) {
                 log.fine("Set select in articles view to [0]");
                 changeSelection(0, 0, false, false);
             }
         }
-
-        public void addSearchResult(Article searchResult) {
-            searchResults.add(new ArticleView(searchResult));
-        }
-
-        public void clearResult() {
-            searchResults.clear();
-        }
     }
 
     private ArticlesViewModel model = new ArticlesViewModel();
 
     public ArticlesView() {
         setModel(model);
+        setDefaultRenderer(Object.class, new ArticleCellRenderer());
         getTableHeader().setVisible(false);
     }
+
+    /**
+     * Return article in row.
+     * @param row index of row.
+     * @return article.
+     */
+    public Article getArticle(int row) {
+        return model.getArticle(row);
+    }
 }
@@ -99,7 +99,7 @@ public class EditArticleDialog extends JDialog {
     private JTextField translateEdit = new JTextField();
     private JTextArea examplesEdit = new JTextArea();
     private JComboBox vocabulariesEdit = 
-            new JComboBox(new Vector(VocabularyApp.getInstance().getVocabularies()));
+            new JComboBox(new Vector<String>(VocabularyApp.getInstance().getVocabularyNames()));
     private JButton okButton = new JButton("Ok");
     private JButton cancelButton = new JButton("Cancel");
     //UI
@@ -174,13 +174,14 @@ public class EditArticleDialog extends JDialog {
     }
 
     protected void init() {
-        vocabulariesEdit.setSelectedItem(VocabularyApp.getInstance().getCurrentVocabulary());
+        Vocabulary current = VocabularyApp.getInstance().getCurrentVocabulary();
+        vocabulariesEdit.setSelectedItem(current == null ? null : current.getName());
         if (article == null) {
             vocabulariesEdit.addItemListener(new ItemListener() {
                 @Override
                 public void itemStateChanged(ItemEvent e) {
                     try {
-                        VocabularyApp.getInstance().setCurrentVocabulary((Vocabulary) e.getItem());
+                        VocabularyApp.getInstance().setCurrentVocabulary((String) e.getItem());
                     } catch (VocabularyNotFoundException ex) {
                         Logger.getLogger(EditArticleDialog.class.getName()).log(Level.SEVERE, null, ex);
                     }
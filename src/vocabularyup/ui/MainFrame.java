@@ -17,27 +17,35 @@
 
 package vocabularyup.ui;
 
+import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JOptionPane;
 import javax.swing.JSplitPane;
 import javax.swing.KeyStroke;
+import javax.swing.border.EmptyBorder;
 import vocabularyup.VocabularyApp;
+import vocabularyup.VocabularyAppAdapter;
+import vocabularyup.VocabularyAppEvent;
+import vocabularyup.exception.TestSessionNotFoundException;
 import vocabularyup.exception.VocabularyAlreadyExistException;
 import vocabularyup.exception.VocabularyModelException;
 import vocabularyup.model.xml.Article;
-import vocabularyup.test.VocabularyTest;
+import vocabularyup.test.TestSession;
+import vocabularyup.test.TestSessionEngine;
 import vocabularyup.test.VocabularyTestResult;
 import vocabularyup.ui.test.CreateTestPanel;
 import vocabularyup.ui.test.TestController;
@@ -117,7 +125,8 @@ public class MainFrame extends JFrame {
         @Override
         public void actionPerformed(ActionEvent e) {
             TestDialog dialog = new TestDialog(new TestController() {
-                private VocabularyTest test;
+                private final TestSessionEngine engine = VocabularyApp.getInstance().getTestEngine();
+                private TestSession session;
                 private List<VocabularyTestResult> result;
                 private int timeForWord;
                 private int wordCount;
@@ -129,16 +138,21 @@ public class MainFrame extends JFrame {
                         CreateTestPanel panel = (CreateTestPanel) current;
                         this.timeForWord = panel.getTimeForWord();
                         this.wordCount = panel.getWordCount();
-                        test = new VocabularyTest(panel.getVocabulary(), wordCount);
-                        test.start();
+                        session = engine.start(panel.getVocabularies(), wordCount, panel.getSelection(), panel.getOrder());
                     } else {
                         TestWordPanel wordPanel = (TestWordPanel) current;
-                        test.setAnswer(wordPanel.getAnswer());
+                        session.answer(wordPanel.getAnswer());
                     }
-                    if (test.hasMoreWords()) {
-                        return new TestWordPanel(test.getWord());
+                    String word = session.nextWord();
+                    if (word != null) {
+                        return new TestWordPanel(word);
                     } else {
-                        result = test.end();
+                        try {
+                            result = engine.end(session.getId());
+                        } catch (TestSessionNotFoundException ex) {
+                            log.log(Level.WARNING, "Test session expired", ex);
+                            result = Collections.<VocabularyTestResult>emptyList();
+                        }
                         return null;
                     }
                 }
@@ -174,12 +188,15 @@ public class MainFrame extends JFrame {
     private final ChangeWordAction changeWordAction = new ChangeWordAction();
     private final TestAction testAction = new TestAction();
 
+    private JLabel statusLabel = new JLabel(" ");
+
     public MainFrame() {
         setTitle("Extend Your Vocabulary!");
         setPreferredSize(new Dimension(600, 400));
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         createMenu();
         createMainView();
+        createStatusBar();
     }
 
     private void createMenu() {
@@ -218,7 +235,26 @@ public class MainFrame extends JFrame {
        split.setLeftComponent(p);
        split.setRightComponent(new ArticlePanel());
        split.setResizeWeight(0.1);
-       add(split);
+       add(split, BorderLayout.CENTER);
+    }
+
+    /**
+     * Create status bar that shows progress of vocabularies loading.
+     */
+    private void createStatusBar() {
+        statusLabel.setBorder(new EmptyBorder(2, 5, 2, 5));
+        add(statusLabel, BorderLayout.SOUTH);
+        VocabularyApp.getInstance().addListener(new VocabularyAppAdapter() {
+            @Override
+            public void loadingProgress(VocabularyAppEvent event) {
+                if (event.getLoaded() < event.getTotal()) {
+                    statusLabel.setText("Loading vocabularies: " + event.getLoaded() + "/" + event.getTotal()
+                            + (event.getVocabulary() == null ? "" : " [" + event.getVocabulary().getName() + "]"));
+                } else {
+                    statusLabel.setText("Loaded " + event.getTotal() + " vocabularies");
+                }
+            }
+        });
     }
 
     /**
@@ -17,6 +17,7 @@
 
 package vocabularyup.ui;
 
+import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -24,12 +25,14 @@ import javax.swing.BoxLayout;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
+import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import vocabularyup.VocabularyApp;
 import vocabularyup.exception.VocabularyNotFoundException;
-import vocabularyup.ui.ArticlesView.ArticleView;
 
 /**
  * Panel for navigation. Contains two lists: vocabularies and articles.
@@ -39,6 +42,7 @@ public class NavigationPanel extends JPanel {
     private static final Logger log = Logger.getLogger(NavigationPanel.class.getName());
 
     //ui
+    private JTextField vocabularyFilter = new JTextField();
     private VocabulariesView vocabulariesView = new VocabulariesView();
     private ArticlesView articlesView = new ArticlesView();
     
@@ -51,12 +55,31 @@ public class NavigationPanel extends JPanel {
        setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
 
-       JScrollPane leftComonent = new JScrollPane(vocabulariesView);
+       JPanel leftComonent = new JPanel(new BorderLayout());
+       leftComonent.add(vocabularyFilter, BorderLayout.NORTH);
+       leftComonent.add(new JScrollPane(vocabulariesView), BorderLayout.CENTER);
        Dimension leftComponentSize = leftComonent.getPreferredSize();
        leftComponentSize.width = 200;
        leftComonent.setPreferredSize(leftComponentSize);
        split.setLeftComponent(leftComonent);
 
+       vocabularyFilter.setToolTipText("Filter vocabularies");
+       vocabularyFilter.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                vocabulariesView.setFilter(vocabularyFilter.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                vocabulariesView.setFilter(vocabularyFilter.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+       });
+
        vocabulariesView.getSelectionModel().addListSelectionListener(
        new ListSelectionListener() {
             @Override
@@ -66,7 +89,7 @@ public class NavigationPanel extends JPanel {
                 }
                 ListSelectionModel model = (ListSelectionModel) e.getSource();
                 if (!model.isSelectionEmpty()) {
-                    String currentVocabularyName = (String) vocabulariesView.getValueAt(model.getMinSelectionIndex(), 0);
+                    String currentVocabularyName = vocabulariesView.getVocabularyName(model.getMinSelectionIndex());
                     try {
                         log.fine("Change vocabulary selection [" + model.getMinSelectionIndex() + "]");
                         VocabularyApp.getInstance().setCurrentVocabulary(currentVocabularyName);
@@ -93,8 +116,7 @@ public class NavigationPanel extends JPanel {
                 ListSelectionModel model = (ListSelectionModel) e.getSource();
                 if (!model.isSelectionEmpty()) {
                     log.fine("Set current article [" + model.getMinSelectionIndex() + "]");
-                    ArticleView articleView = (ArticleView) articlesView.getValueAt(model.getMinSelectionIndex(), 0);
-                    VocabularyApp.getInstance().setSelectedArticle(articleView.getArticle());
+                    VocabularyApp.getInstance().setSelectedArticle(articlesView.getArticle(model.getMinSelectionIndex()));
                 }
             }
         });
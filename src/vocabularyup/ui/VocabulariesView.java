@@ -17,21 +17,82 @@
 
 package vocabularyup.ui;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import javax.swing.JTable;
 import javax.swing.table.AbstractTableModel;
 import vocabularyup.VocabularyApp;
 import vocabularyup.VocabularyAppAdapter;
 import vocabularyup.VocabularyAppEvent;
+import vocabularyup.model.xml.Vocabulary;
 
 /**
- *
+ * List of vocabularies sorted by name with filter.
  * @author 111
  */
 public class VocabulariesView extends JTable {
+    /**
+     * Model keeps sorted list of vocabularies and changes it only when
+     * vocabularies are added or changed, so painting doesn't touch application.
+     * Vocabularies that are still loading are shown too, rows of ones that failed to load are removed.
+     */
     public static class VocabulariesModel extends AbstractTableModel {
+        private static final String LOADING_SUFFIX = " (loading...)";
+
+        /** Row keeps only name, so vocabulary may be dropped from memory. */
+        private static class Entry {
+            private final String name;
+            private final String key;
+            private final String title;
+
+            public Entry(String name, boolean loading) {
+                this.name = name;
+                this.key = name.toLowerCase(Locale.ENGLISH);
+                this.title = loading ? name + LOADING_SUFFIX : name;
+            }
+        }
+
+        private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry e1, Entry e2) {
+                int result = e1.key.compareTo(e2.key);
+                return result != 0 ? result : e1.name.compareTo(e2.name);
+            }
+        };
+
+        private List<Entry> all = new ArrayList<Entry>();
+        private List<Entry> visible = new ArrayList<Entry>();
+        private String filter = "";
+
+        public VocabulariesModel() {
+            all = readEntries();
+            visible.addAll(all);
+        }
+
+        private static List<Entry> readEntries() {
+            List<Entry> entries = new ArrayList<Entry>();
+            for (String name : VocabularyApp.getInstance().getVocabularyNames()) {
+                entries.add(new Entry(name, false));
+            }
+            Collections.sort(entries, ENTRY_COMPARATOR);
+            List<Entry> pendingEntries = new ArrayList<Entry>();
+            for (String name : VocabularyApp.getInstance().getLoadingVocabularies()) {
+                Entry pending = new Entry(name, true);
+                if (Collections.binarySearch(entries, pending, ENTRY_COMPARATOR) < 0) {
+                    pendingEntries.add(pending);
+                }
+            }
+            entries.addAll(pendingEntries);
+            Collections.sort(entries, ENTRY_COMPARATOR);
+            return entries;
+        }
+
         @Override
         public int getRowCount() {
-            return VocabularyApp.getInstance().getVocabularies().size();
+            return visible.size();
         }
 
         @Override
@@ -41,7 +102,104 @@ public class VocabulariesView extends JTable {
 
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
-            return VocabularyApp.getInstance().getVocabularies().get(rowIndex).getName();
+            return visible.get(rowIndex).title;
+        }
+
+        /**
+         * Return name of vocabulary in row.
+         * @param rowIndex index of row.
+         * @return name of vocabulary.
+         */
+        public String getVocabularyName(int rowIndex) {
+            return visible.get(rowIndex).name;
+        }
+
+        /**
+         * Insert vocabulary to its place in sorted list or replace loading entry.
+         * @param vocabulary new vocabulary.
+         */
+        public void addVocabulary(Vocabulary vocabulary) {
+            Entry entry = new Entry(vocabulary.getName(), false);
+            int allIndex = Collections.binarySearch(all, entry, ENTRY_COMPARATOR);
+            if (allIndex >= 0) {
+                updateEntry(allIndex, entry);
+                return;
+            }
+            all.add(-(allIndex + 1), entry);
+            if (matches(entry)) {
+                int index = -(Collections.binarySearch(visible, entry, ENTRY_COMPARATOR) + 1);
+                visible.add(index, entry);
+                fireTableRowsInserted(index, index);
+            }
+        }
+
+        /**
+         * Update rows of changed vocabularies, selection is kept. List is rebuilt
+         * only if name of vocabulary isn't in list, e.g. it was renamed.
+         * @param changed changed vocabularies.
+         */
+        public void changeVocabularies(List<Vocabulary> changed) {
+            for (Vocabulary v : changed) {
+                if (Collections.binarySearch(all, new Entry(v.getName(), false), ENTRY_COMPARATOR) < 0) {
+                    reload();
+                    return;
+                }
+            }
+            for (Vocabulary v : changed) {
+                Entry entry = new Entry(v.getName(), false);
+                updateEntry(Collections.binarySearch(all, entry, ENTRY_COMPARATOR), entry);
+            }
+        }
+
+        private void updateEntry(int allIndex, Entry entry) {
+            all.set(allIndex, entry);
+            int index = Collections.binarySearch(visible, entry, ENTRY_COMPARATOR);
+            if (index >= 0) {
+                visible.set(index, entry);
+                fireTableRowsUpdated(index, index);
+            }
+        }
+
+        /**
+         * Rebuild list, it's needed when vocabularies are added, renamed or removed.
+         */
+        public void reload() {
+            all = readEntries();
+            visible = filter(all, filter);
+            fireTableDataChanged();
+        }
+
+        /**
+         * Show only vocabularies that contain {@code newFilter} in name(case insensitive).
+         * When filter is refined, only visible vocabularies are checked.
+         * @param newFilter filter, empty string shows all vocabularies.
+         */
+        public void setFilter(String newFilter) {
+            String key = newFilter.toLowerCase(Locale.ENGLISH);
+            if (key.equals(filter)) {
+                return;
+            }
+            List<Entry> source = key.contains(filter) ? visible : all;
+            filter = key;
+            visible = filter(source, key);
+            fireTableDataChanged();
+        }
+
+        private boolean matches(Entry entry) {
+            return entry.key.contains(filter);
+        }
+
+        private static List<Entry> filter(List<Entry> entries, String key) {
+            if (key.isEmpty()) {
+                return new ArrayList<Entry>(entries);
+            }
+            List<Entry> result = new ArrayList<Entry>();
+            for (Entry e : entries) {
+                if (e.key.contains(key)) {
+                    result.add(e);
+                }
+            }
+            return result;
         }
     }
 
@@ -53,8 +211,38 @@ public class VocabulariesView extends JTable {
         VocabularyApp.getInstance().addListener(new VocabularyAppAdapter(){
             @Override
             public void addedVocabulary(VocabularyAppEvent event) {
-                model.fireTableDataChanged();
+                model.addVocabulary(event.getVocabulary());
+            }
+
+            @Override
+            public void changedVocabularies(VocabularyAppEvent event) {
+                model.changeVocabularies(event.getVocabularies());
+            }
+
+            @Override
+            public void loadingProgress(VocabularyAppEvent event) {
+                //vocabulary that can't be loaded isn't pending anymore, reload drops its row
+                if (event.getVocabulary() == null) {
+                    model.reload();
+                }
             }
         });
     }
+
+    /**
+     * Return name of vocabulary in row.
+     * @param row index of row.
+     * @return name of vocabulary.
+     */
+    public String getVocabularyName(int row) {
+        return model.getVocabularyName(row);
+    }
+
+    /**
+     * Filter vocabularies by name.
+     * @param filter part of vocabulary name.
+     */
+    public void setFilter(String filter) {
+        model.setFilter(filter);
+    }
 }
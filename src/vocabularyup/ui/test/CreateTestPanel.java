@@ -17,6 +17,10 @@
 
 package vocabularyup.ui.test;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -24,7 +28,10 @@ import javax.swing.JSpinner;
 import javax.swing.SpinnerModel;
 import javax.swing.SpinnerNumberModel;
 import vocabularyup.VocabularyApp;
+import vocabularyup.exception.VocabularyNotFoundException;
 import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.test.VocabularyTest;
+import vocabularyup.test.WordOrder;
 import vocabularyup.util.ui.GridBagHelper;
 
 /**
@@ -32,12 +39,23 @@ import vocabularyup.util.ui.GridBagHelper;
  * @author dooman
  */
 public class CreateTestPanel extends JPanel {
+    private static final Logger log = Logger.getLogger(CreateTestPanel.class.getName());
+
+    /** Item of vocabularies list for test with all vocabularies. */
+    private static final String ALL_VOCABULARIES = "All vocabularies";
+
     private JComboBox vocabulary;
+    private JComboBox selection;
+    private JComboBox order;
     private JSpinner wordCount;
     private JSpinner timeForWord;
 
     public CreateTestPanel() {
-        vocabulary = new JComboBox(VocabularyApp.getInstance().getVocabularies().toArray());
+        //names are listed, so vocabularies may be dropped from memory while dialog is open
+        vocabulary = new JComboBox(VocabularyApp.getInstance().getVocabularyNames().toArray());
+        vocabulary.addItem(ALL_VOCABULARIES);
+        selection = new JComboBox(VocabularyTest.Selection.values());
+        order = new JComboBox(WordOrder.values());
         SpinnerModel wordCountSpinnerModel = new SpinnerNumberModel(10, 1, 99, 1);
         wordCount = new JSpinner(wordCountSpinnerModel);
         SpinnerModel timeSpinnerModel = new SpinnerNumberModel(15, 10, 90, 1);
@@ -46,11 +64,37 @@ public class CreateTestPanel extends JPanel {
     }
 
     /**
-     * Return selected vocabulary.
-     * @return selected vocabulary.
+     * Return selected vocabularies.
+     * @return selected vocabulary or all loaded vocabularies, empty list if
+     *   selected vocabulary can't be loaded.
+     */
+    public List<Vocabulary> getVocabularies() {
+        Object selected = vocabulary.getSelectedItem();
+        if (selected == ALL_VOCABULARIES) {
+            return VocabularyApp.getInstance().getVocabularies();
+        }
+        try {
+            return Collections.singletonList(VocabularyApp.getInstance().getVocabulary((String) selected));
+        } catch (VocabularyNotFoundException e) {
+            log.log(Level.SEVERE, e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Return how words for test should be chosen.
+     * @return selected way.
      */
-    public Vocabulary getVocabulary() {
-        return (Vocabulary) vocabulary.getSelectedItem();
+    public VocabularyTest.Selection getSelection() {
+        return (VocabularyTest.Selection) selection.getSelectedItem();
+    }
+
+    /**
+     * Return order of words in test.
+     * @return selected order.
+     */
+    public WordOrder getOrder() {
+        return (WordOrder) order.getSelectedItem();
     }
 
     /**
@@ -74,6 +118,12 @@ public class CreateTestPanel extends JPanel {
         grid.addLabelComponent(new JLabel("Vocabulary"));
         grid.addFieldComponent(vocabulary);
 
+        grid.addLabelComponent(new JLabel("Words"));
+        grid.addFieldComponent(selection);
+
+        grid.addLabelComponent(new JLabel("Order"));
+        grid.addFieldComponent(order);
+
         grid.addLabelComponent(new JLabel("Number of words"));
         grid.addFieldComponent(wordCount);
 
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.ui.test;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.Timer;
+
+/**
+ * Countdown for one word in test.<br/>
+ * One instance is used for the whole test session, it's based on swing timer,
+ * so all timers share one thread and callbacks are called in event dispatch thread.
+ * Restarting countdown for the next word doesn't create threads or listeners.
+ * @author dooman
+ */
+public class TestCountdown {
+    /**
+     * Receives countdown notifications in event dispatch thread.
+     */
+    public interface Listener {
+        /**
+         * Called when countdown starts and after each second.
+         * @param secondsLeft number of seconds left.
+         */
+        void tick(int secondsLeft);
+
+        /**
+         * Called when time is over.
+         */
+        void expired();
+    }
+
+    private static final int SECOND = 1000;
+
+    private final Listener listener;
+    private final Timer timer;
+    private int secondsLeft;
+
+    public TestCountdown(Listener listener) {
+        this.listener = listener;
+        this.timer = new Timer(SECOND, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                onTimer();
+            }
+        });
+        this.timer.setRepeats(true);
+    }
+
+    /**
+     * Start new countdown, previous countdown is cancelled.
+     * @param seconds number of seconds for countdown.
+     */
+    public void start(int seconds) {
+        timer.stop();
+        secondsLeft = seconds;
+        listener.tick(secondsLeft);
+        timer.restart();
+    }
+
+    /**
+     * Cancel countdown, {@link Listener#expired()} won't be called.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    public boolean isRunning() {
+        return timer.isRunning();
+    }
+
+    /**
+     * Return number of listeners of underlying timer, it's always one.
+     * @return number of timer's listeners.
+     */
+    int getTimerListenerCount() {
+        return timer.getActionListeners().length;
+    }
+
+    private void onTimer() {
+        secondsLeft--;
+        if (secondsLeft > 0) {
+            listener.tick(secondsLeft);
+        } else {
+            timer.stop();
+            listener.expired();
+        }
+    }
+
+    /**
+     * Format seconds as {@code mm:ss}.
+     * @param seconds number of seconds.
+     * @return formatted time.
+     */
+    public static String format(int seconds) {
+        int minutes = seconds / 60;
+        int rest = seconds % 60;
+        return (minutes < 10 ? "0" : "") + minutes + ":" + (rest < 10 ? "0" : "") + rest;
+    }
+}
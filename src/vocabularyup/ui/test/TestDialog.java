@@ -20,7 +20,6 @@ package vocabularyup.ui.test;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -30,7 +29,6 @@ import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
-import javax.swing.SwingWorker;
 
 /**
  * The main dialog for test module.
@@ -38,28 +36,6 @@ import javax.swing.SwingWorker;
  */
 public class TestDialog extends JDialog {
 
-    private class TimerTask extends SwingWorker implements ActionListener {
-        private volatile boolean buttonClicked = false;
-
-        @Override
-        protected Object doInBackground() throws Exception {
-            for (int i = controller.getTimeForWord(); i > 0 && !buttonClicked; i--) { //countdown
-                timeLabel.setText("00:" + (i < 10 ? "0" : "") + i);
-                Thread.sleep(1000);
-            }
-
-            if (!buttonClicked) {
-                setNextWord();
-            }
-            return null;
-        }
-
-        @Override
-        public void actionPerformed(ActionEvent e) {
-            buttonClicked = true;
-        }
-    }
-
     private class NextAction extends AbstractAction {
         
         public NextAction() {
@@ -91,6 +67,8 @@ public class TestDialog extends JDialog {
     private int currentStep;
     private JButton nextButton;
     private JLabel timeLabel;
+    /** One countdown for all words in session. */
+    private TestCountdown countdown;
 
     public TestDialog(TestController controller) {
         this.controller = controller;
@@ -98,6 +76,17 @@ public class TestDialog extends JDialog {
         this.mainPanel = new JPanel();
         this.timeLabel = new JLabel();
         nextButton = new JButton(new NextAction());
+        countdown = new TestCountdown(new TestCountdown.Listener() {
+            @Override
+            public void tick(int secondsLeft) {
+                timeLabel.setText(TestCountdown.format(secondsLeft));
+            }
+
+            @Override
+            public void expired() {
+                setNextWord();
+            }
+        });
         initUI();
 
         setModal(true);
@@ -126,7 +115,14 @@ public class TestDialog extends JDialog {
         add(mainPanel);
     }
 
-    synchronized private void setNextWord() {
+    @Override
+    public void dispose() {
+        countdown.stop();
+        super.dispose();
+    }
+
+    private void setNextWord() {
+        countdown.stop();
         Component currentComponent = TestDialog.this.mainPanel.getComponent(1);
         mainPanel.remove(currentComponent);
         Component wordComponent = controller.getNext(++currentStep, currentComponent);
@@ -134,9 +130,7 @@ public class TestDialog extends JDialog {
             mainPanel.add(wordComponent, 1);
             mainPanel.validate();
             wordComponent.requestFocus();
-            TimerTask task = new TimerTask();
-            nextButton.addActionListener(task);
-            task.execute();
+            countdown.start(controller.getTimeForWord());
         } else {
             setVisible(false);
             dispose();
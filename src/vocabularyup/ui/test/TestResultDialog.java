@@ -100,7 +100,6 @@ public class TestResultDialog extends JDialog {
 
         @Override
         public void actionPerformed(ActionEvent e) {
-            //TODO: write result to vocabulary!
             TestResultDialog.this.setVisible(false);
             TestResultDialog.this.dispose();
         }
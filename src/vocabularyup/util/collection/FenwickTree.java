@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.util.collection;
+
+/**
+ * Fenwick (binary indexed) tree of non negative int weights.<br/>
+ * Changing weight, prefix sum and search of index by cumulative weight
+ * cost O(log n), it's used for weighted random choice.
+ * @author dooman
+ */
+public final class FenwickTree {
+    private final int[] tree;
+    private final int[] weights;
+    private long total;
+
+    /**
+     * Create tree with initial weights.
+     * @param weights weights of elements, array isn't changed.
+     * @throws IllegalArgumentException if any weight is negative.
+     */
+    public FenwickTree(int[] weights) {
+        this.weights = weights.clone();
+        this.tree = new int[weights.length + 1];
+        for (int i = 0; i < weights.length; i++) {
+            checkWeight(weights[i]);
+            total += weights[i];
+            //O(n) construction: push partial sum to the parent
+            tree[i + 1] += weights[i];
+            int parent = (i + 1) + ((i + 1) & -(i + 1));
+            if (parent <= weights.length) {
+                tree[parent] += tree[i + 1];
+            }
+        }
+    }
+
+    public int size() {
+        return weights.length;
+    }
+
+    /**
+     * @return sum of all weights.
+     */
+    public long total() {
+        return total;
+    }
+
+    public int get(int index) {
+        return weights[index];
+    }
+
+    /**
+     * Change weight of element.
+     * @param index index of element.
+     * @param weight new weight.
+     * @throws IllegalArgumentException if weight is negative.
+     */
+    public void set(int index, int weight) {
+        checkWeight(weight);
+        int delta = weight - weights[index];
+        weights[index] = weight;
+        total += delta;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Return sum of weights of elements {@code [0, index)}.
+     * @param index number of elements.
+     * @return prefix sum.
+     */
+    public long prefixSum(int index) {
+        long sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Find element which range of cumulative weights contains {@code value},
+     * i.e. the smallest index that {@code prefixSum(index + 1) > value}.
+     * @param value value in range {@code [0, total())}.
+     * @return index of element, its weight is always positive.
+     * @throws IllegalArgumentException if value is out of range.
+     */
+    public int find(long value) {
+        if (value < 0 || value >= total) {
+            throw new IllegalArgumentException("Value must be in [0, " + total + "): " + value);
+        }
+        int position = 0;
+        for (int step = Integer.highestOneBit(Math.max(1, weights.length)); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] <= value) {
+                position = next;
+                value -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    private static void checkWeight(int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight can't be negative: " + weight);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids ordered by long key, ids with equal keys are
+ * ordered by id.<br/>
+ * Heap remembers position of each id, so key of any id is changed or removed
+ * in O(log n) and the {@code k} smallest ids are listed in O(k log k) without
+ * changing the heap. Ids are indexes, e.g. ids of articles, everything is kept
+ * in primitive arrays: about 16 bytes per id instead of a tree node per element.
+ * @author dooman
+ */
+public final class IndexedHeap {
+    private int[] heap = new int[16];
+    private long[] keys = new long[16];
+    /** Position of id in heap plus one, {@code 0} if heap hasn't id. */
+    private int[] positions = new int[16];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < positions.length && positions[id] != 0;
+    }
+
+    /**
+     * Return key of id.
+     * @param id id from heap.
+     * @return key of id.
+     * @throws IllegalArgumentException if heap hasn't {@code id}.
+     */
+    public long getKey(int id) {
+        return keys[position(id)];
+    }
+
+    /**
+     * Add id or change its key.
+     * @param id non negative id.
+     * @param key new key of id.
+     */
+    public void set(int id, long key) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        if (id >= positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(id + 1, positions.length * 2));
+        }
+        int pos = positions[id] - 1;
+        if (pos < 0) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            pos = size++;
+            place(pos, id, key);
+            siftUp(pos);
+        } else {
+            keys[pos] = key;
+            siftDown(siftUp(pos));
+        }
+    }
+
+    /**
+     * Remove id from heap.
+     * @param id id to remove.
+     * @return {@code true} if heap contained {@code id}.
+     */
+    public boolean remove(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        int pos = positions[id] - 1;
+        positions[id] = 0;
+        size--;
+        if (pos != size) {
+            place(pos, heap[size], keys[size]);
+            siftDown(siftUp(pos));
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(positions, 0);
+        size = 0;
+    }
+
+    /**
+     * Grow arrays, so ids less than {@code capacity} are added without copying.
+     * @param capacity expected number of ids.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > heap.length) {
+            heap = Arrays.copyOf(heap, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+        if (capacity > positions.length) {
+            positions = Arrays.copyOf(positions, capacity);
+        }
+    }
+
+    /**
+     * Return ids with the smallest keys, heap isn't changed.
+     * Candidates are taken from heap in best-first order, so only
+     * O(count) nodes are visited.
+     * @param count maximum number of ids.
+     * @return ids in order of keys.
+     */
+    public int[] first(int count) {
+        int[] result = new int[Math.min(count, size)];
+        if (result.length == 0) {
+            return result;
+        }
+        //small heap of positions in this heap, children are added when parent is taken
+        int[] frontier = new int[2 * result.length + 1];
+        int frontierSize = 0;
+        frontier[frontierSize++] = 0;
+        for (int n = 0; n < result.length; n++) {
+            int pos = frontier[0];
+            frontier[0] = frontier[--frontierSize];
+            frontierDown(frontier, frontierSize, 0);
+            result[n] = heap[pos];
+            for (int child = 2 * pos + 1; child <= 2 * pos + 2 && child < size; child++) {
+                frontier[frontierSize] = child;
+                frontierUp(frontier, frontierSize++);
+            }
+        }
+        return result;
+    }
+
+    private int position(int id) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException("No id in heap: " + id);
+        }
+        return positions[id] - 1;
+    }
+
+    private void place(int pos, int id, long key) {
+        heap[pos] = id;
+        keys[pos] = key;
+        positions[id] = pos + 1;
+    }
+
+    private boolean less(int pos1, int pos2) {
+        if (keys[pos1] != keys[pos2]) {
+            return keys[pos1] < keys[pos2];
+        }
+        return heap[pos1] < heap[pos2];
+    }
+
+    private int siftUp(int pos) {
+        int id = heap[pos];
+        long key = keys[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (keys[parent] < key || (keys[parent] == key && heap[parent] < id)) {
+                break;
+            }
+            place(pos, heap[parent], keys[parent]);
+            pos = parent;
+        }
+        place(pos, id, key);
+        return pos;
+    }
+
+    private void siftDown(int pos) {
+        int id = heap[pos];
+        long key = keys[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(child + 1, child)) {
+                child++;
+            }
+            if (key < keys[child] || (key == keys[child] && id < heap[child])) {
+                break;
+            }
+            place(pos, heap[child], keys[child]);
+            pos = child;
+        }
+        place(pos, id, key);
+    }
+
+    private void frontierUp(int[] frontier, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(frontier[i], frontier[parent])) {
+                break;
+            }
+            swap(frontier, i, parent);
+            i = parent;
+        }
+    }
+
+    private void frontierDown(int[] frontier, int frontierSize, int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= frontierSize) {
+                break;
+            }
+            if (child + 1 < frontierSize && less(frontier[child + 1], frontier[child])) {
+                child++;
+            }
+            if (!less(frontier[child], frontier[i])) {
+                break;
+            }
+            swap(frontier, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.util.collection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merge of several sorted sequences.<br/>
+ * Heads of sequences are kept in priority queue, so taking {@code k}
+ * elements from {@code m} sequences costs O(m + k log m) and sequences
+ * are read only as far as needed.
+ * @author dooman
+ */
+public final class KWayMerge {
+
+    private static final class Head<T> {
+        final T value;
+        final Iterator<? extends T> rest;
+
+        Head(T value, Iterator<? extends T> rest) {
+            this.value = value;
+            this.rest = rest;
+        }
+    }
+
+    private KWayMerge() {
+    }
+
+    /**
+     * Take first elements of merged sequences.
+     * @param <T> type of elements.
+     * @param sources sequences, each is sorted by {@code comparator}.
+     * @param comparator order of elements.
+     * @param limit maximum number of elements in result.
+     * @return the first {@code limit} elements in order of {@code comparator}.
+     */
+    public static <T> List<T> merge(List<? extends Iterable<? extends T>> sources,
+            final Comparator<? super T> comparator, int limit) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<Head<T>>(Math.max(1, sources.size()),
+                new Comparator<Head<T>>() {
+                    @Override
+                    public int compare(Head<T> h1, Head<T> h2) {
+                        return comparator.compare(h1.value, h2.value);
+                    }
+                });
+        for (Iterable<? extends T> source : sources) {
+            Iterator<? extends T> it = source.iterator();
+            if (it.hasNext()) {
+                heads.add(new Head<T>(it.next(), it));
+            }
+        }
+        List<T> result = new ArrayList<T>();
+        while (result.size() < limit && !heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            result.add(head.value);
+            if (head.rest.hasNext()) {
+                heads.add(new Head<T>(head.rest.next(), head.rest));
+            }
+        }
+        return result;
+    }
+}
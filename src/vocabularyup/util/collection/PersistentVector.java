@@ -0,0 +1,285 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.util.collection;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable vector with structural sharing.<br/>
+ * Elements are stored in a trie with 32 children per node, so {@code get()},
+ * {@code set()}, {@code append()} and {@code pop()} cost O(log32 n). Modifications return new
+ * vector and copy only the path from root to the changed leaf, the rest of
+ * nodes is shared with old version.
+ *
+ * @param <T> type of elements.
+ * @author dooman
+ */
+public final class PersistentVector<T> implements Iterable<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<Object>(0, 0, new Object[0]);
+
+    private final int size;
+    /** Number of bits used by levels under root, 0 if root is a leaf. */
+    private final int shift;
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    /**
+     * Return empty vector.
+     * @param <T> type of elements.
+     * @return shared empty instance.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    /**
+     * Return vector of {@code size} equal elements. Full nodes of each level
+     * are shared, so the vector costs O(log n) memory until elements are set.
+     * @param <T> type of elements.
+     * @param size number of elements.
+     * @param value value of all elements.
+     * @return new vector.
+     */
+    public static <T> PersistentVector<T> filled(int size, T value) {
+        if (size == 0) {
+            return empty();
+        }
+        int shift = 0;
+        while (size > 1 << (shift + BITS)) {
+            shift += BITS;
+        }
+        Object[][] fullNodes = new Object[shift / BITS + 1][];
+        fullNodes[0] = new Object[WIDTH];
+        Arrays.fill(fullNodes[0], value);
+        for (int level = 1; level < fullNodes.length; level++) {
+            fullNodes[level] = new Object[WIDTH];
+            Arrays.fill(fullNodes[level], fullNodes[level - 1]);
+        }
+        return new PersistentVector<T>(size, shift, filledNode(fullNodes, shift, size));
+    }
+
+    private static Object[] filledNode(Object[][] fullNodes, int level, int count) {
+        if (level == 0) {
+            return count == WIDTH ? fullNodes[0] : Arrays.copyOf(fullNodes[0], count);
+        }
+        int childCapacity = 1 << level;
+        if (count == childCapacity << BITS) {
+            return fullNodes[level / BITS];
+        }
+        int children = (count + childCapacity - 1) / childCapacity;
+        Object[] node = new Object[children];
+        Arrays.fill(node, 0, children - 1, fullNodes[level / BITS - 1]);
+        node[children - 1] = filledNode(fullNodes, level - BITS, count - (children - 1) * childCapacity);
+        return node;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return element by index.
+     * @param index index of element.
+     * @return element.
+     * @throws IndexOutOfBoundsException if {@code index} is out of range.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) leafFor(index)[index & MASK];
+    }
+
+    /**
+     * Replace element.
+     * @param index index of element.
+     * @param value new value.
+     * @return new vector, this vector isn't changed.
+     * @throws IndexOutOfBoundsException if {@code index} is out of range.
+     */
+    public PersistentVector<T> set(int index, T value) {
+        checkIndex(index);
+        return new PersistentVector<T>(size, shift, doSet(root, shift, index, value));
+    }
+
+    /**
+     * Add element to the end of vector.
+     * @param value new element.
+     * @return new vector, this vector isn't changed.
+     */
+    public PersistentVector<T> append(T value) {
+        if (size == 1 << (shift + BITS)) {
+            //root is full, tree grows by one level
+            Object[] newRoot = new Object[] {root, newPath(shift, value)};
+            return new PersistentVector<T>(size + 1, shift + BITS, newRoot);
+        }
+        return new PersistentVector<T>(size + 1, shift, doAppend(root, shift, size, value));
+    }
+
+    /**
+     * Remove the last element.
+     * @return new vector, this vector isn't changed.
+     * @throws IllegalStateException if vector is empty.
+     */
+    public PersistentVector<T> pop() {
+        if (size == 0) {
+            throw new IllegalStateException("Vector is empty");
+        }
+        if (size == 1) {
+            return empty();
+        }
+        Object[] newRoot = doPop(root, shift, size - 1);
+        if (shift > 0 && newRoot.length == 1) {
+            //the rest of elements fits to one child, tree shrinks by one level
+            return new PersistentVector<T>(size - 1, shift - BITS, (Object[]) newRoot[0]);
+        }
+        return new PersistentVector<T>(size - 1, shift, newRoot);
+    }
+
+    /**
+     * Return read-only list view of the vector.
+     * @return unmodifiable list backed by this vector.
+     */
+    public List<T> asList() {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                return PersistentVector.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<T> iterator() {
+                return PersistentVector.this.iterator();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index = 0;
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                if ((index & MASK) == 0) {
+                    leaf = leafFor(index);
+                }
+                return (T) leaf[index++ & MASK];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Vector is immutable");
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    private Object[] leafFor(int index) {
+        checkIndex(index);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private static Object[] doSet(Object[] node, int level, int index, Object value) {
+        Object[] copy = node.clone();
+        int i = (index >>> level) & MASK;
+        if (level == 0) {
+            copy[i] = value;
+        } else {
+            copy[i] = doSet((Object[]) node[i], level - BITS, index, value);
+        }
+        return copy;
+    }
+
+    private static Object[] doAppend(Object[] node, int level, int index, Object value) {
+        int i = (index >>> level) & MASK;
+        Object[] copy;
+        if (level == 0) {
+            copy = Arrays.copyOf(node, i + 1);
+            copy[i] = value;
+        } else if (i < node.length) {
+            copy = node.clone();
+            copy[i] = doAppend((Object[]) node[i], level - BITS, index, value);
+        } else {
+            copy = Arrays.copyOf(node, i + 1);
+            copy[i] = newPath(level - BITS, value);
+        }
+        return copy;
+    }
+
+    private static Object[] doPop(Object[] node, int level, int index) {
+        int i = (index >>> level) & MASK;
+        if (level == 0) {
+            return Arrays.copyOf(node, i);
+        }
+        Object[] child = doPop((Object[]) node[i], level - BITS, index);
+        if (child.length == 0) {
+            return Arrays.copyOf(node, i);
+        }
+        Object[] copy = node.clone();
+        copy[i] = child;
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object value) {
+        if (level == 0) {
+            return new Object[] {value};
+        }
+        return new Object[] {newPath(level - BITS, value)};
+    }
+}
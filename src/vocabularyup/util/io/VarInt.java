@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.util.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Variable length encoding of numbers: 7 bits in each byte, the high bit
+ * means that more bytes follow. Small numbers take one byte.
+ * Signed numbers are zigzag encoded, so small negative numbers are short too.
+ * @author dooman
+ */
+public final class VarInt {
+
+    private VarInt() {
+    }
+
+    /**
+     * Write non negative number.
+     * @param out destination.
+     * @param value number, must be {@code >= 0}.
+     * @throws IOException error writing stream.
+     */
+    public static void writeUnsigned(OutputStream out, long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value can't be negative: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Write signed number in zigzag encoding.
+     * @param out destination.
+     * @param value number.
+     * @throws IOException error writing stream.
+     */
+    public static void writeSigned(OutputStream out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Read number written by {@link #writeUnsigned(OutputStream, long)}.
+     * @param in source.
+     * @return number.
+     * @throws EOFException if stream ends before the number.
+     * @throws IOException error reading stream or malformed number.
+     */
+    public static long readUnsigned(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of stream");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+
+    /**
+     * Read number written by {@link #writeSigned(OutputStream, long)}.
+     * @param in source.
+     * @return number.
+     * @throws IOException error reading stream or malformed number.
+     */
+    public static long readSigned(InputStream in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Read unsigned number that must fit to int.
+     * @param in source.
+     * @return number.
+     * @throws IOException error reading stream or number is too big.
+     */
+    public static int readUnsignedInt(InputStream in) throws IOException {
+        long value = readUnsigned(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Number is too big: " + value);
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.util.text;
+
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalization of translates and user's answers before comparing.<br/>
+ * Text is converted to NFKC form and lower case, punctuation is removed and
+ * whitespaces are collapsed to one space, so "To  be!" and "to be" have the same key.
+ * @author dooman
+ */
+public final class AnswerNormalizer {
+
+    private AnswerNormalizer() {
+    }
+
+    /**
+     * Return normalized key of text.
+     * @param text translate or answer, may be {@code null}.
+     * @return normalized text, empty string for {@code null}.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String nfkc = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(nfkc.length());
+        boolean space = false;
+        for (int i = 0; i < nfkc.length(); i++) {
+            char c = nfkc.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = key.length() > 0;
+            } else if (!isPunctuation(c)) {
+                if (space) {
+                    key.append(' ');
+                    space = false;
+                }
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Return normalized keys of all translates. Keys are pooled, key of
+     * already normalized translate is the translate itself.
+     * @param translates translates of article.
+     * @return unmodifiable set of not empty keys.
+     */
+    public static Set<String> keys(List<String> translates) {
+        Set<String> keys = new HashSet<String>(translates.size() * 2);
+        for (String t : translates) {
+            String key = normalize(t);
+            if (!key.isEmpty()) {
+                keys.add(StringPool.getInstance().intern(key));
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    private static boolean isPunctuation(char c) {
+        switch (Character.getType(c)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.util.text;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Canonicalizing table of short strings, e.g. translates that repeat in many
+ * articles. {@link #intern(String)} returns the same instance for equal strings,
+ * so duplicates loaded from files may be collected.<br/>
+ * Strings are referenced weakly, pool doesn't keep strings that aren't used
+ * by vocabularies. Each entry costs one small node, so long strings that
+ * rarely repeat aren't pooled.<br/>
+ * Pool counts estimated size of replaced duplicates, see {@link #getSavedBytes()}.
+ * All methods are thread-safe.
+ * @author dooman
+ */
+public final class StringPool {
+    /** Longer strings aren't pooled. */
+    public static final int MAX_LENGTH = 64;
+
+    /** Estimated size of node: object header, hash, referent, queue, next, own fields. */
+    private static final int NODE_BYTES = 48;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final StringPool INSTANCE = new StringPool();
+
+    private static final class Node extends WeakReference<String> {
+        final int hash;
+        Node next;
+
+        Node(String value, int hash, Node next, ReferenceQueue<String> queue) {
+            super(value, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    private final ReferenceQueue<String> queue = new ReferenceQueue<String>();
+    private Node[] table = new Node[INITIAL_CAPACITY];
+    private int size;
+
+    private long lookups;
+    private long duplicates;
+    private long savedBytes;
+
+    StringPool() {
+    }
+
+    /**
+     * Pool shared by all vocabularies.
+     * @return shared pool.
+     */
+    public static StringPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Return canonical instance of string.
+     * @param value string, may be {@code null}.
+     * @return pooled string equal to {@code value}, or {@code value} itself if it's
+     *   the first such string, too long or {@code null}.
+     */
+    public synchronized String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        expungeCollected();
+        lookups++;
+        int hash = spread(value.hashCode());
+        int index = hash & (table.length - 1);
+        for (Node node = table[index]; node != null; node = node.next) {
+            String pooled = node.get();
+            if (node.hash == hash && value.equals(pooled)) {
+                if (pooled != value) {
+                    duplicates++;
+                    savedBytes += estimateSize(value);
+                }
+                return pooled;
+            }
+        }
+        table[index] = new Node(value, hash, table[index], queue);
+        if (++size > table.length - (table.length >> 2)) {
+            resize();
+        }
+        return value;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void resize() {
+        Node[] newTable = new Node[table.length * 2];
+        for (Node head : table) {
+            Node node = head;
+            while (node != null) {
+                Node next = node.next;
+                int index = node.hash & (newTable.length - 1);
+                node.next = newTable[index];
+                newTable[index] = node;
+                node = next;
+            }
+        }
+        table = newTable;
+    }
+
+    /**
+     * Remove nodes which strings are collected.
+     */
+    private void expungeCollected() {
+        Object collected;
+        while ((collected = queue.poll()) != null) {
+            Node removed = (Node) collected;
+            int index = removed.hash & (table.length - 1);
+            Node prev = null;
+            for (Node node = table[index]; node != null; prev = node, node = node.next) {
+                if (node == removed) {
+                    if (prev == null) {
+                        table[index] = node.next;
+                    } else {
+                        prev.next = node.next;
+                    }
+                    size--;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimate heap used by string: object with hash and array of 1-byte
+     * (Latin-1) or 2-byte chars, both aligned to 8 bytes.
+     * @param value string.
+     * @return size in bytes.
+     */
+    static long estimateSize(String value) {
+        int charBytes = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                charBytes = 2;
+                break;
+            }
+        }
+        return 24 + align(16 + value.length() * charBytes);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * @return number of strings in pool, including collected but not removed yet.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return number of strings passed to pool.
+     */
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return number of strings replaced by pooled instances.
+     */
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return estimated size of strings replaced by pooled instances since start.
+     */
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * @return estimated size of pool itself.
+     */
+    public synchronized long getOverheadBytes() {
+        return (long) size * NODE_BYTES + (long) table.length * 8;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "string pool: [" + size + "] strings, [" + duplicates + "/" + lookups + "] duplicates, saved ["
+                + savedBytes / 1024 + "] KB, pool [" + getOverheadBytes() / 1024 + "] KB";
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Test;
+import vocabularyup.exception.VocabularyModelException;
+import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.Vocabulary;
+
+/**
+ *
+ * @author dooman
+ */
+public class VocabularyCacheTest extends TestCase {
+    private static final String[] NAMES = {"cacheTestA", "cacheTestB", "cacheTestC"};
+
+    /** Budget is less than any vocabulary, only the last used vocabulary stays in memory. */
+    private static final long SMALL_BUDGET = 1;
+
+    private static final VocabularyCache.PinPolicy NOTHING_PINNED = new VocabularyCache.PinPolicy() {
+        @Override
+        public boolean isPinned(Vocabulary vocabulary) {
+            return false;
+        }
+    };
+
+    private static Vocabulary create(String name) throws Exception {
+        Vocabulary vocabulary = Vocabulary.newVocabulary(name);
+        vocabulary.addArticle("go", Arrays.asList("идти"), Collections.<String>emptyList());
+        vocabulary.save();
+        return vocabulary;
+    }
+
+    @After
+    @Override
+    protected void tearDown() throws Exception {
+        for (String name : NAMES) {
+            AppEnvironment.getVocabularyFile(name).delete();
+            Vocabulary.journalFile(name).delete();
+            Vocabulary.addedArticlesFile(name).delete();
+        }
+    }
+
+    @Test
+    public void testEvictAndReload() throws Exception {
+        VocabularyCache cache = new VocabularyCache(SMALL_BUDGET, NOTHING_PINNED);
+        Vocabulary a = create(NAMES[0]);
+        Assert.assertFalse(a.isDirty());
+        cache.add(a);
+        cache.add(create(NAMES[1]));
+        Assert.assertFalse("Vocabulary is added twice", cache.add(a));
+
+        Assert.assertNull("Least recently used vocabulary isn't dropped", cache.getLoaded(NAMES[0]));
+        Assert.assertNotNull(cache.getLoaded(NAMES[1]));
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertEquals(0, cache.getFlushes());
+
+        Vocabulary reloaded = cache.get(NAMES[0]);
+        Assert.assertNotSame(a, reloaded);
+        Assert.assertNotNull(reloaded.getArticle("go"));
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertNull(cache.getLoaded(NAMES[1]));
+        Assert.assertSame(reloaded, cache.get(NAMES[0]));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getResidentCount());
+        Assert.assertEquals(Arrays.asList(NAMES[1], NAMES[0]), cache.getNames());
+
+        //dropped instance doesn't overwrite file of reloaded vocabulary
+        reloaded.addArticle("come", Arrays.asList("приходить"), Collections.<String>emptyList());
+        reloaded.save();
+        try {
+            a.addArticle("went", Arrays.asList("пошел"), Collections.<String>emptyList());
+            Assert.fail("Dropped vocabulary is changed");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+        try {
+            a.save();
+            Assert.fail("Dropped vocabulary is saved");
+        } catch (VocabularyModelException e) {
+            //expected
+        }
+        Assert.assertNotNull(Vocabulary.loadVocabulary(AppEnvironment.getVocabularyFile(NAMES[0])).getArticle("come"));
+    }
+
+    @Test
+    public void testFlushBeforeEvict() throws Exception {
+        VocabularyCache cache = new VocabularyCache(SMALL_BUDGET, NOTHING_PINNED);
+        Vocabulary a = create(NAMES[0]);
+        cache.add(a);
+        a.addArticle("come", Arrays.asList("приходить"), Collections.<String>emptyList());
+        Article go = a.getArticle("go");
+        a.getRatingCounters().add(go.getId(), 3);
+        Assert.assertTrue(a.isDirty());
+
+        cache.add(create(NAMES[1]));
+        Assert.assertNull(cache.getLoaded(NAMES[0]));
+        Assert.assertEquals(1, cache.getFlushes());
+        Assert.assertFalse(a.isDirty());
+
+        Vocabulary reloaded = cache.get(NAMES[0]);
+        Assert.assertNotNull(reloaded.getArticle("come"));
+        Assert.assertEquals(3, reloaded.getArticle("go").getRatingValue());
+        Assert.assertFalse("Ratings journal isn't merged", Vocabulary.journalFile(NAMES[0]).exists());
+    }
+
+    @Test
+    public void testPinnedVocabularyStays() throws Exception {
+        final Vocabulary a = create(NAMES[0]);
+        VocabularyCache cache = new VocabularyCache(SMALL_BUDGET, new VocabularyCache.PinPolicy() {
+            @Override
+            public boolean isPinned(Vocabulary vocabulary) {
+                return vocabulary == a;
+            }
+        });
+        cache.add(a);
+        cache.add(create(NAMES[1]));
+        cache.add(create(NAMES[2]));
+        Assert.assertSame(a, cache.getLoaded(NAMES[0]));
+        Assert.assertNull(cache.getLoaded(NAMES[1]));
+        Assert.assertNotNull(cache.getLoaded(NAMES[2]));
+        Assert.assertEquals(2, cache.getResidentCount());
+        Assert.assertTrue(cache.getResidentSize() > cache.getBudget());
+    }
+}
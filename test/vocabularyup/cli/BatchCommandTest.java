@@ -0,0 +1,205 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Test;
+import vocabularyup.AppEnvironment;
+import vocabularyup.ipc.InstanceListener;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.model.xml.VocabularyTransaction;
+
+/**
+ *
+ * @author dooman
+ */
+public class BatchCommandTest extends TestCase {
+    private static final String NAME = "test-cli";
+
+    private final File input = new File(AppEnvironment.APP_HOME_DIR, NAME + "-input.txt");
+    private final File output = new File(AppEnvironment.APP_HOME_DIR, NAME + "-output.txt");
+
+    @After
+    @Override
+    protected void tearDown() throws Exception {
+        AppEnvironment.getVocabularyFile(NAME, false).delete();
+        AppEnvironment.getVocabularyFile(NAME, true).delete();
+        Vocabulary.journalFile(NAME).delete();
+        input.delete();
+        output.delete();
+    }
+
+    @Test
+    public void testImportExportSearch() throws Exception {
+        write(input, "# comment\ngo\tидти; ходить\tlet's go\ngood\tхороший\ngo\tdouble\n");
+        String result = run(BatchCommand.IMPORT, NAME, input.getPath());
+        Assert.assertEquals("Imported [2] articles to [" + NAME + "], skipped [1]\n", result);
+
+        run(BatchCommand.EXPORT, NAME, output.getPath());
+        Assert.assertEquals("go\tидти; ходить\tlet's go\ngood\tхороший\t\n", read(output));
+
+        Assert.assertEquals("go\tидти; ходить\ngood\tхороший\n", run(BatchCommand.SEARCH, NAME, "go"));
+        Assert.assertEquals("go\tидти; ходить\n... [1] more\n", run(BatchCommand.SEARCH, NAME, "go", "1"));
+
+        String stats = run(BatchCommand.STATS, NAME);
+        Assert.assertTrue(stats, stats.contains(NAME + "\t2\t2\t2\t0.00\t0\t-"));
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        write(input, "go\tидти\n");
+        run(BatchCommand.IMPORT, NAME, input.getPath());
+        Vocabulary vocabulary = Vocabulary.loadVocabulary(AppEnvironment.getVocabularyFile(NAME));
+        VocabularyTransaction tx = new VocabularyTransaction();
+        tx.changeRating(vocabulary.getArticle("go"), 3);
+        tx.commit();
+        Assert.assertTrue(Vocabulary.journalFile(NAME).exists());
+
+        String result = run(BatchCommand.COMPACT, NAME);
+        Assert.assertTrue(result, result.startsWith("Merged ["));
+        Assert.assertFalse(Vocabulary.journalFile(NAME).exists());
+        Vocabulary compacted = Vocabulary.loadVocabulary(AppEnvironment.getVocabularyFile(NAME));
+        Assert.assertEquals(3, compacted.getArticle("go").getRatingValue());
+    }
+
+    @Test
+    public void testPack() throws Exception {
+        write(input, "go\tидти; ходить\tlet's go\ngood\tхороший\n");
+        run(BatchCommand.IMPORT, NAME, input.getPath());
+        String result = run(BatchCommand.PACK, NAME);
+        Assert.assertTrue(result, result.startsWith("Converted [" + NAME + "]"));
+        Assert.assertEquals(AppEnvironment.getVocabularyFile(NAME, true), AppEnvironment.getVocabularyFile(NAME));
+        Assert.assertEquals("", run(BatchCommand.PACK, NAME));
+
+        Assert.assertEquals("go\tидти; ходить\ngood\tхороший\n", run(BatchCommand.SEARCH, NAME, "go"));
+        run(BatchCommand.EXPORT, NAME, output.getPath());
+        Assert.assertEquals("go\tидти; ходить\tlet's go\ngood\tхороший\t\n", read(output));
+
+        run(BatchCommand.UNPACK, NAME);
+        Assert.assertFalse(AppEnvironment.getVocabularyFile(NAME, true).exists());
+        Assert.assertEquals("go\tидти; ходить\ngood\tхороший\n", run(BatchCommand.SEARCH, NAME, "go"));
+    }
+
+    /**
+     * Running application would overwrite rewritten files by its next save.
+     */
+    @Test
+    public void testRefuseBesideRunningInstance() throws Exception {
+        write(input, "go\tидти\n");
+        run(BatchCommand.IMPORT, NAME, input.getPath());
+        InstanceListener listener = InstanceListener.start(new InstanceListener.Handler() {
+            @Override
+            public void handle(String command, List<String> args) {
+            }
+        });
+        try {
+            Assert.assertEquals(1, Launcher.run(BatchCommand.IMPORT, Arrays.asList(NAME, input.getPath())));
+            for (BatchCommand command : Arrays.asList(BatchCommand.COMPACT, BatchCommand.PACK, BatchCommand.UNPACK)) {
+                try {
+                    command.run(Collections.singletonList(NAME), System.out);
+                    Assert.fail(command.getName() + " beside running instance");
+                } catch (IllegalStateException e) {
+                    //expected
+                }
+            }
+            Assert.assertFalse(AppEnvironment.getVocabularyFile(NAME, true).exists());
+            //reading commands work
+            Assert.assertEquals("go\tидти\n", run(BatchCommand.SEARCH, NAME, "go"));
+        } finally {
+            listener.close();
+        }
+        Assert.assertTrue(run(BatchCommand.PACK, NAME).startsWith("Converted [" + NAME + "]"));
+    }
+
+    @Test
+    public void testEmptyHomeDirectory() throws Exception {
+        File home = new File(AppEnvironment.APP_HOME_DIR);
+        File saved = new File(home.getPath() + ".saved");
+        Assert.assertTrue(!home.exists() || home.renameTo(saved));
+        File articles = File.createTempFile(NAME, ".txt");
+        try {
+            write(articles, "go\tидти\n");
+            Assert.assertEquals(0, Launcher.run(BatchCommand.IMPORT, Arrays.asList(NAME, articles.getPath())));
+            Assert.assertTrue(AppEnvironment.getVocabularyFile(NAME).exists());
+        } finally {
+            articles.delete();
+            File[] files = home.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            home.delete();
+            if (saved.exists()) {
+                Assert.assertTrue(saved.renameTo(home));
+            }
+        }
+    }
+
+    @Test
+    public void testWrongArguments() throws Exception {
+        try {
+            BatchCommand.SEARCH.run(Collections.singletonList(NAME), System.out);
+            Assert.fail("Search without prefix");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        Assert.assertEquals(BatchCommand.COMPACT, BatchCommand.forName("compact"));
+        Assert.assertNull(BatchCommand.forName("--addArticle"));
+    }
+
+    private static String run(BatchCommand command, String... args) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, BatchCommand.ENCODING);
+        Assert.assertEquals(0, command.run(Arrays.asList(args), out));
+        out.flush();
+        return bytes.toString(BatchCommand.ENCODING).replace("\r\n", "\n");
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), BatchCommand.ENCODING);
+        writer.write(content);
+        writer.close();
+    }
+
+    private static String read(File file) throws Exception {
+        InputStream in = new FileInputStream(file);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        in.close();
+        return bytes.toString(BatchCommand.ENCODING);
+    }
+}
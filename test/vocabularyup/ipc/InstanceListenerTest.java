@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.ipc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+import vocabularyup.AppEnvironment;
+
+/**
+ *
+ * @author dooman
+ */
+public class InstanceListenerTest extends TestCase {
+
+    @Test
+    public void testForwardCommands() throws Exception {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        InstanceListener listener = InstanceListener.start(new InstanceListener.Handler() {
+            @Override
+            public void handle(String command, List<String> args) throws Exception {
+                if (command.equals("FAIL")) {
+                    throw new IllegalArgumentException("Vocabulary [x] isn't found");
+                }
+                received.add(command);
+                received.addAll(args);
+            }
+        });
+        File portFile = new File(AppEnvironment.APP_HOME_DIR, InstanceListener.PORT_FILE_NAME);
+        try {
+            Assert.assertTrue(portFile.exists());
+            //ping isn't passed to handler
+            Assert.assertTrue(InstanceClient.isRunning());
+            Assert.assertTrue(InstanceClient.send(InstanceListener.ADD_ARTICLE_COMMAND,
+                    Arrays.asList("words", "go", "идти\nходить", "")));
+            Assert.assertEquals(Arrays.asList(InstanceListener.ADD_ARTICLE_COMMAND, "words", "go", "идти\nходить", ""),
+                    received);
+
+            try {
+                InstanceClient.send("FAIL", Collections.<String>emptyList());
+                Assert.fail("Error isn't sent to client");
+            } catch (IOException e) {
+                Assert.assertEquals("Vocabulary [x] isn't found", e.getMessage());
+            }
+        } finally {
+            listener.close();
+        }
+        Assert.assertFalse(portFile.exists());
+        Assert.assertFalse(InstanceClient.send(InstanceListener.ACTIVATE_COMMAND, Collections.<String>emptyList()));
+        Assert.assertFalse(InstanceClient.isRunning());
+    }
+
+    @Test
+    public void testStalePortFile() throws Exception {
+        InstanceListener listener = InstanceListener.start(new InstanceListener.Handler() {
+            @Override
+            public void handle(String command, List<String> args) {
+            }
+        });
+        File portFile = new File(AppEnvironment.APP_HOME_DIR, InstanceListener.PORT_FILE_NAME);
+        File copy = new File(portFile.getPath() + ".copy");
+        Assert.assertTrue(portFile.renameTo(copy));
+        listener.close();
+        //port file of crashed instance is left
+        Assert.assertTrue(copy.renameTo(portFile));
+        try {
+            Assert.assertFalse(InstanceClient.send(InstanceListener.ACTIVATE_COMMAND, Collections.<String>emptyList()));
+        } finally {
+            portFile.delete();
+        }
+    }
+}
@@ -18,6 +18,8 @@
 package vocabularyup.model.xml;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.LogManager;
@@ -27,7 +29,9 @@ import junit.framework.TestCase;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import vocabularyup.AppEnvironment;
 import vocabularyup.VocabularyApp;
+import vocabularyup.exception.ArticleAlreadyExistException;
 
 /**
  * 
@@ -69,6 +73,9 @@ public class XMLVocabularyTest extends TestCase {
         log.fine("Delete test vocabulary");
         File vocFile = new File(VocabularyApp.APP_HOME_DIR + "/test.xml");
         vocFile.delete();
+        new File(VocabularyApp.APP_HOME_DIR + "/test" + RatingJournal.JOURNAL_FILE_EXTENSION).delete();
+        Vocabulary.addedArticlesFile("test").delete();
+        AppEnvironment.getVocabularyFile("test", true).delete();
     }
 
 
@@ -138,6 +145,526 @@ public class XMLVocabularyTest extends TestCase {
 
     }
 
+    @Test
+    public void testFindAndRenameArticles() {
+        try {
+            log.fine("==============BEGIN testFindAndRenameArticles()==============");
+            testVocabulary.addArticle("good", Arrays.asList("хороший"), null);
+            testVocabulary.addArticle("forest", Arrays.asList("лес"), null);
+
+            List<Article> found = testVocabulary.findArticles("go");
+            Assert.assertEquals(2, found.size());
+            Assert.assertEquals("go", found.get(0).getSource());
+            Assert.assertEquals("good", found.get(1).getSource());
+            Assert.assertEquals(3, testVocabulary.findArticles("").size());
+
+            Article forest = testVocabulary.getArticle("forest");
+            testVocabulary.renameArticle(forest, "gone");
+            Assert.assertNull(testVocabulary.getArticle("forest"));
+            Assert.assertEquals(forest, testVocabulary.getArticle("gone"));
+            Assert.assertEquals(3, testVocabulary.findArticles("go").size());
+            found = testVocabulary.findArticles("go", 2);
+            Assert.assertEquals(2, found.size());
+            Assert.assertEquals("gone", found.get(1).getSource());
+            Assert.assertEquals("go", testVocabulary.findArticles("", 1).get(0).getSource());
+            found.remove(0);
+            found.add(found.get(0));
+            Assert.assertEquals(Arrays.asList(forest, forest), found);
+
+            try {
+                testVocabulary.renameArticle(forest, "good");
+                Assert.fail("Rename to existing source must fail");
+            } catch (ArticleAlreadyExistException e) {
+                Assert.assertEquals("gone", forest.getSource());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSnapshots() {
+        try {
+            log.fine("==============BEGIN testSnapshots()==============");
+            VocabularySnapshot before = testVocabulary.snapshot();
+            Article article = testVocabulary.getArticles().get(0);
+            article.setRating("5");
+            testVocabulary.addArticle("good", Arrays.asList("хороший"), null);
+
+            VocabularySnapshot after = testVocabulary.snapshot();
+            Assert.assertEquals(1, before.size());
+            Assert.assertEquals("0", before.getArticle(0).getRating());
+            Assert.assertEquals(2, after.size());
+            Assert.assertEquals("5", after.getArticle(article.getId()).getRating());
+            Assert.assertTrue(after.getVersion() > before.getVersion());
+
+            testVocabulary.save();
+            File vocFile = new File(VocabularyApp.APP_HOME_DIR + "/test.xml");
+            Vocabulary loaded = Vocabulary.loadVocabulary(vocFile);
+            Assert.assertEquals("5", loaded.getArticle(expectedSource).getRating());
+            checkStringLists(Arrays.asList("хороший"), loaded.getArticle("good").getTranslates());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTransactionRollback() {
+        try {
+            log.fine("==============BEGIN testTransactionRollback()==============");
+            Article article = testVocabulary.getArticle(expectedSource);
+            VocabularyTransaction tx = new VocabularyTransaction();
+            tx.changeRating(article, 3);
+            tx.changeArticle(article, "went", Arrays.asList("пошел"), expectedExamples);
+            tx.addArticle(testVocabulary, "good", Arrays.asList("хороший"), null);
+            Assert.assertEquals(2, testVocabulary.getArticles().size());
+            tx.rollback();
+
+            Assert.assertEquals(1, testVocabulary.getArticles().size());
+            Assert.assertEquals(article, testVocabulary.getArticle(expectedSource));
+            Assert.assertNull(testVocabulary.getArticle("went"));
+            Assert.assertNull(testVocabulary.getArticle("good"));
+            Assert.assertEquals("0", article.getRating());
+            checkStringLists(expectedTranslates, article.getTranslates());
+            Assert.assertEquals(1, testVocabulary.snapshot().size());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRollbackKeepsChangesOfOtherThreads() {
+        try {
+            log.fine("==============BEGIN testRollbackKeepsChangesOfOtherThreads()==============");
+            final Article article = testVocabulary.getArticle(expectedSource);
+            final Article good = testVocabulary.addArticle("good", Arrays.asList("хороший"), null);
+            VocabularyTransaction tx = new VocabularyTransaction();
+            tx.changeRating(article, 3);
+            tx.changeArticle(good, "well", Arrays.asList("хорошо"), null);
+            tx.addArticle(testVocabulary, "bad", Arrays.asList("плохой"), null);
+            Thread other = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        testVocabulary.getRatingCounters().add(article.getId(), 2);
+                        article.setTranslates(Arrays.asList("ехать"));
+                        testVocabulary.addArticle("fly", Arrays.asList("летать"), null);
+                    } catch (ArticleAlreadyExistException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+            other.start();
+            other.join();
+            tx.rollback();
+
+            Assert.assertEquals("2", article.getRating());
+            checkStringLists(Arrays.asList("ехать"), article.getTranslates());
+            Assert.assertEquals("good", good.getSource());
+            checkStringLists(Arrays.asList("хороший"), good.getTranslates());
+            Assert.assertNull(testVocabulary.getArticle("well"));
+            //article added by other thread keeps its id, so article of transaction isn't removed
+            Assert.assertEquals(4, testVocabulary.snapshot().size());
+            Assert.assertEquals("fly", testVocabulary.snapshot().getArticle(3).getSource());
+            Assert.assertNotNull(testVocabulary.getArticle("fly"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReviewQueue() {
+        try {
+            log.fine("==============BEGIN testReviewQueue()==============");
+            Article go = testVocabulary.getArticle(expectedSource);
+            Article good = testVocabulary.addArticle("good", Arrays.asList("хороший"), null);
+            testVocabulary.addArticle("empty", Arrays.<String>asList(), null);
+            testVocabulary.save();
+            List<ArticleSnapshot> queue = testVocabulary.getArticlesForReview(10);
+            Assert.assertEquals(2, queue.size());
+            Assert.assertEquals(expectedSource, queue.get(0).getSource());
+
+            long now = System.currentTimeMillis();
+            VocabularyTransaction tx = new VocabularyTransaction();
+            ReviewSchedule first = tx.review(go, 4, now);
+            Assert.assertEquals(1, first.getInterval());
+            Assert.assertEquals(now + ReviewSchedule.DAY, first.getDue());
+            ReviewSchedule second = tx.review(go, 4, now);
+            Assert.assertEquals(6, second.getInterval());
+            Assert.assertEquals(ReviewSchedule.DEFAULT_EASE, second.getEase());
+            tx.commit();
+
+            queue = testVocabulary.getArticlesForReview(1);
+            Assert.assertEquals(1, queue.size());
+            Assert.assertEquals(good, testVocabulary.getArticle(queue.get(0).getId()));
+
+            ReviewSchedule failed = second.next(1, now);
+            Assert.assertEquals(0, failed.getRepetitions());
+            Assert.assertEquals(1, failed.getInterval());
+            Assert.assertTrue(failed.getEase() < ReviewSchedule.DEFAULT_EASE);
+
+            Vocabulary loaded = Vocabulary.loadVocabulary(new File(VocabularyApp.APP_HOME_DIR + "/test.xml"));
+            Assert.assertEquals(second, loaded.getArticle(expectedSource).getSchedule());
+            Assert.assertEquals(ReviewSchedule.NEW, loaded.getArticle("good").getSchedule());
+            Assert.assertEquals("good", loaded.getArticlesForReview(1).get(0).getSource());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testWeakestArticles() {
+        try {
+            log.fine("==============BEGIN testWeakestArticles()==============");
+            Article go = testVocabulary.getArticle(expectedSource);
+            Article good = testVocabulary.addArticle("good", Arrays.asList("хороший"), null);
+            Article bad = testVocabulary.addArticle("bad", Arrays.asList("плохой"), null);
+            testVocabulary.addArticle("empty", Arrays.<String>asList(), null);
+            VocabularyTransaction tx = new VocabularyTransaction();
+            tx.changeRating(go, 2);
+            tx.changeRating(good, -1);
+            tx.rollback();
+            bad.setRating("-3");
+            go.setRating("1");
+
+            List<ArticleSnapshot> weakest = testVocabulary.getWeakestArticles(10);
+            Assert.assertEquals(3, weakest.size());
+            Assert.assertEquals("bad", weakest.get(0).getSource());
+            Assert.assertEquals(-3, weakest.get(0).getRatingValue());
+            Assert.assertEquals("good", weakest.get(1).getSource());
+            Assert.assertEquals(expectedSource, weakest.get(2).getSource());
+
+            bad.setTranslates(Arrays.<String>asList());
+            Assert.assertFalse(bad.isTestable());
+            weakest = testVocabulary.getWeakestArticles(1);
+            Assert.assertEquals("good", weakest.get(0).getSource());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRatingsJournal() {
+        try {
+            log.fine("==============BEGIN testRatingsJournal()==============");
+            File vocFile = new File(VocabularyApp.APP_HOME_DIR + "/test.xml");
+            File journal = new File(VocabularyApp.APP_HOME_DIR + "/test" + RatingJournal.JOURNAL_FILE_EXTENSION);
+            long xmlLength = vocFile.length();
+            Article article = testVocabulary.getArticle(expectedSource);
+
+            VocabularyTransaction tx = new VocabularyTransaction();
+            tx.changeRating(article, -2);
+            ReviewSchedule schedule = tx.review(article, 1, 1000L);
+            tx.commit();
+            tx = new VocabularyTransaction();
+            tx.changeRating(article, 5);
+            tx.commit();
+
+            Assert.assertEquals(xmlLength, vocFile.length());
+            Assert.assertTrue(journal.exists());
+            Assert.assertTrue("Journal size: " + journal.length(), journal.length() < 40);
+
+            Vocabulary loaded = Vocabulary.loadVocabulary(vocFile);
+            Article loadedArticle = loaded.getArticle(expectedSource);
+            Assert.assertEquals(3, loadedArticle.getRatingValue());
+            Assert.assertEquals(schedule, loadedArticle.getSchedule());
+
+            loaded.save();
+            Assert.assertFalse(journal.exists());
+            loadedArticle = Vocabulary.loadVocabulary(vocFile).getArticle(expectedSource);
+            Assert.assertEquals(3, loadedArticle.getRatingValue());
+            Assert.assertEquals(schedule, loadedArticle.getSchedule());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRatingCounters() {
+        try {
+            log.fine("==============BEGIN testRatingCounters()==============");
+            final Article article = testVocabulary.getArticle(expectedSource);
+            final RatingCounters counters = testVocabulary.getRatingCounters();
+            int before = article.getRatingValue();
+
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; t++) {
+                final int delta = t % 2 == 0 ? 1 : -1;
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 10000; i++) {
+                            counters.add(article.getId(), delta * (i % 3 == 0 ? 2 : 1));
+                            counters.recordAnswer(article.getId(), delta > 0);
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            //counters aren't written to article until flush
+            Assert.assertEquals(before, article.getRatingValue());
+            Assert.assertEquals(before, counters.getRating(article.getId()));
+            Assert.assertEquals(40000, counters.getRightAnswers(article.getId()));
+            Assert.assertEquals(40000, counters.getWrongAnswers(article.getId()));
+
+            counters.add(article.getId(), 7);
+            List<Article> flushed = testVocabulary.flushRatings();
+            Assert.assertEquals(1, flushed.size());
+            Assert.assertEquals(article, flushed.get(0));
+            Assert.assertEquals(before + 7, article.getRatingValue());
+            Assert.assertEquals(before + 7, testVocabulary.snapshot().getArticle(article.getId()).getRatingValue());
+            Assert.assertTrue(testVocabulary.flushRatings().isEmpty());
+
+            article.setRating("42");
+            Assert.assertEquals(42, counters.getRating(article.getId()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAddedArticlesJournal() {
+        try {
+            log.fine("==============BEGIN testAddedArticlesJournal()==============");
+            File vocFile = new File(VocabularyApp.APP_HOME_DIR + "/test.xml");
+            File journal = Vocabulary.addedArticlesFile("test");
+            long xmlLength = vocFile.length();
+
+            Article added = testVocabulary.addArticle("come", Arrays.asList("приходить"), null);
+            testVocabulary.saveAddedArticles(Arrays.asList(added));
+            Vocabulary.appendArticle("test", "see", Arrays.asList("видеть", "смотреть"), Arrays.asList("see you"));
+            Vocabulary.appendArticle("test", "go", Arrays.asList("duplicate"), null);
+            VocabularyTransaction tx = new VocabularyTransaction();
+            tx.changeRating(added, 2);
+            tx.commit();
+
+            Assert.assertEquals(xmlLength, vocFile.length());
+            Assert.assertTrue(journal.exists());
+
+            Vocabulary loaded = Vocabulary.loadVocabulary(vocFile);
+            Assert.assertEquals(3, loaded.getArticles().size());
+            Assert.assertEquals(2, loaded.getArticle("come").getRatingValue());
+            checkStringLists(Arrays.asList("видеть", "смотреть"), loaded.getArticle("see").getTranslates());
+            checkStringLists(Arrays.asList("see you"), loaded.getArticle("see").getExamples());
+            checkStringLists(expectedTranslates, loaded.getArticle("go").getTranslates());
+
+            loaded.save();
+            Assert.assertEquals(0, journal.length());
+            Assert.assertEquals(3, Vocabulary.loadVocabulary(vocFile).getArticles().size());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testArticlesAppendedWhileLoaded() {
+        try {
+            log.fine("==============BEGIN testArticlesAppendedWhileLoaded()==============");
+            File vocFile = new File(VocabularyApp.APP_HOME_DIR + "/test.xml");
+            File journal = Vocabulary.addedArticlesFile("test");
+
+            //other process appends article, then loaded vocabulary is saved
+            Vocabulary.appendArticle("test", "swim", Arrays.asList("плавать"), null);
+            testVocabulary.addArticle("run", Arrays.asList("бежать"), null);
+            testVocabulary.save();
+            Assert.assertNotNull(testVocabulary.getArticle("swim"));
+            Assert.assertTrue(journal.length() > 0);
+            Vocabulary loaded = Vocabulary.loadVocabulary(vocFile);
+            Assert.assertEquals(3, loaded.getArticles().size());
+            Assert.assertNotNull(loaded.getArticle("swim"));
+            Assert.assertNotNull(loaded.getArticle("run"));
+            loaded.save();
+            Assert.assertEquals(0, journal.length());
+
+            //other process appends article before loaded vocabulary appends its own
+            Vocabulary.appendArticle("test", "fly", Arrays.asList("летать"), null);
+            Article walk = loaded.addArticle("walk", Arrays.asList("ходить"), null);
+            loaded.saveAddedArticles(Arrays.asList(walk));
+            Assert.assertNotNull(loaded.getArticle("fly"));
+            Assert.assertEquals(0, journal.length());
+            Vocabulary reloaded = Vocabulary.loadVocabulary(vocFile);
+            Assert.assertEquals(5, reloaded.getArticles().size());
+            Assert.assertEquals(walk.getId(), reloaded.getArticle("walk").getId());
+            Assert.assertNotNull(reloaded.getArticle("fly"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIncompleteJournalBlock() {
+        try {
+            log.fine("==============BEGIN testIncompleteJournalBlock()==============");
+            File vocFile = new File(VocabularyApp.APP_HOME_DIR + "/test.xml");
+            File ratings = new File(VocabularyApp.APP_HOME_DIR + "/test" + RatingJournal.JOURNAL_FILE_EXTENSION);
+            File added = Vocabulary.addedArticlesFile("test");
+            Article article = testVocabulary.getArticle(expectedSource);
+
+            //blocks are interrupted by crash
+            VocabularyTransaction tx = new VocabularyTransaction();
+            tx.changeRating(article, 2);
+            tx.commit();
+            truncate(ratings, 2);
+            Vocabulary.appendArticle("test", "see", Arrays.asList("видеть"), null);
+            truncate(added, 3);
+
+            tx = new VocabularyTransaction();
+            tx.changeRating(article, 1);
+            tx.commit();
+            Vocabulary.appendArticle("test", "fly", Arrays.asList("летать"), null);
+
+            Vocabulary loaded = Vocabulary.loadVocabulary(vocFile);
+            Assert.assertEquals(3, loaded.getArticle(expectedSource).getRatingValue());
+            Assert.assertNull(loaded.getArticle("see"));
+            checkStringLists(Arrays.asList("летать"), loaded.getArticle("fly").getTranslates());
+            Assert.assertEquals(2, loaded.getArticles().size());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    private static void truncate(File file, int bytes) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - bytes);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void testColumnarStore() {
+        try {
+            log.fine("==============BEGIN testColumnarStore()==============");
+            for (int i = 0; i < 100; i++) {
+                testVocabulary.addArticle("word" + i, Arrays.asList("слово", "w" + i), Arrays.asList("example"));
+            }
+            Article changed = testVocabulary.getArticle("word7");
+            changed.setExamples(Arrays.asList("new example", ""));
+            changed.setRating("-2");
+            VocabularySnapshot beforeSave = testVocabulary.snapshot();
+            Assert.assertTrue(beforeSave.getChangeCount() > 0);
+
+            //saved articles are packed to columns, equal strings are stored once
+            testVocabulary.save();
+            VocabularySnapshot packed = testVocabulary.snapshot();
+            Assert.assertEquals(0, packed.getChangeCount());
+            Assert.assertEquals(beforeSave.getVersion(), packed.getVersion());
+            //"слово" of 100 articles and "example" of 99 articles
+            Assert.assertEquals(99 + 98, packed.getStore().getDuplicates());
+            //UTF-8 bytes with length prefix: "слово" takes 11 bytes, "example" 8 bytes
+            Assert.assertEquals(99 * 11 + 98 * 8, packed.getStore().getSharedBytes());
+            Assert.assertFalse(testVocabulary.isDirty());
+            for (int id = 0; id < beforeSave.size(); id++) {
+                Assert.assertEquals(beforeSave.getArticle(id), packed.getArticle(id));
+            }
+
+            //views read the latest snapshot
+            checkStringLists(Arrays.asList("new example", ""), changed.getExamples());
+            Assert.assertEquals("-2", changed.getRating());
+            Assert.assertEquals(changed, testVocabulary.findArticles("word7").get(0));
+            Assert.assertEquals(11, testVocabulary.findArticles("word1").size());
+            testVocabulary.renameArticle(changed, "a word");
+            Assert.assertEquals(changed, testVocabulary.findArticles("").get(0));
+            Assert.assertEquals(-2, testVocabulary.getWeakestArticles(1).get(0).getRatingValue());
+
+            Vocabulary loaded = Vocabulary.loadVocabulary(new File(VocabularyApp.APP_HOME_DIR + "/test.xml"));
+            Assert.assertEquals(101, loaded.getArticles().size());
+            Assert.assertEquals(-2, loaded.getArticle("word7").getRatingValue());
+            checkStringLists(Arrays.asList("слово", "w99"), loaded.getArticle("word99").getTranslates());
+            Assert.assertTrue(loaded.estimateHeapSize() > 0);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPackedVocabulary() {
+        try {
+            log.fine("==============BEGIN testPackedVocabulary()==============");
+            for (int i = 0; i < 100; i++) {
+                testVocabulary.addArticle("word" + i, Arrays.asList("слово", "w" + i), Arrays.asList("example"));
+            }
+            testVocabulary.getArticle("word7").setRating("-2");
+            testVocabulary.setPacked(true);
+            File packedFile = AppEnvironment.getVocabularyFile("test", true);
+            Assert.assertTrue(packedFile.exists());
+            Assert.assertFalse(new File(VocabularyApp.APP_HOME_DIR + "/test.xml").exists());
+            Assert.assertEquals(packedFile, AppEnvironment.getVocabularyFile("test"));
+            Assert.assertEquals(0, testVocabulary.snapshot().getChangeCount());
+
+            //articles are read from mapped file
+            Vocabulary packed = Vocabulary.loadVocabulary(packedFile);
+            Assert.assertTrue(packed.isPacked());
+            Assert.assertEquals("test", packed.getName());
+            Assert.assertEquals(101, packed.getArticles().size());
+            Assert.assertTrue(packed.estimateHeapSize() < 1000);
+            Assert.assertEquals(testVocabulary.getSharedStrings(), packed.getSharedStrings());
+            Assert.assertEquals(testVocabulary.getSharedBytes(), packed.getSharedBytes());
+            Assert.assertTrue(packed.getSharedBytes() > 0);
+            Assert.assertEquals(-2, packed.getArticle("word7").getRatingValue());
+            checkStringLists(Arrays.asList("слово", "w99"), packed.getArticle("word99").getTranslates());
+            checkStringLists(expectedExamples, packed.getArticle("go").getExamples());
+            Assert.assertEquals(11, packed.findArticles("word1").size());
+            Assert.assertNull(packed.getArticle("word100"));
+            Assert.assertEquals("word7", packed.getWeakestArticles(1).get(0).getSource());
+
+            //changes are kept in journals until vocabulary is saved
+            Article added = packed.addArticle("come", Arrays.asList("приходить"), null);
+            packed.saveAddedArticles(Arrays.asList(added));
+            VocabularyTransaction tx = new VocabularyTransaction();
+            tx.changeRating(packed.getArticle("word3"), -5);
+            tx.commit();
+            long packedLength = packedFile.length();
+            Vocabulary reloaded = Vocabulary.loadVocabulary(packedFile);
+            Assert.assertEquals(packedLength, packedFile.length());
+            Assert.assertEquals(102, reloaded.getArticles().size());
+            Assert.assertEquals(-5, reloaded.getArticle("word3").getRatingValue());
+            Assert.assertEquals("word3", reloaded.getWeakestArticles(1).get(0).getSource());
+            reloaded.renameArticle(reloaded.getArticle("word5"), "a word");
+            Assert.assertEquals("a word", reloaded.findArticles("").get(0).getSource());
+            Assert.assertEquals(11, reloaded.findArticles("word1").size());
+            reloaded.save();
+            Assert.assertEquals(0, Vocabulary.addedArticlesFile("test").length());
+            Assert.assertEquals(0, reloaded.snapshot().getChangeCount());
+            Assert.assertEquals("a word", reloaded.findArticles("a").get(0).getSource());
+            //old mapping is replaced by mapping of new file
+            Assert.assertTrue(reloaded.snapshot().getStore() instanceof PackedArticleStore);
+            Assert.assertFalse(new File(packedFile.getPath() + ".tmp").exists());
+
+            reloaded.setPacked(false);
+            Assert.assertFalse(packedFile.exists());
+            //articles are moved to heap before mapped file is deleted
+            Assert.assertTrue(reloaded.snapshot().getStore() instanceof ArticleColumns);
+            Assert.assertEquals("a word", reloaded.findArticles("a").get(0).getSource());
+            Assert.assertEquals(-5, reloaded.getArticle("word3").getRatingValue());
+            Vocabulary unpacked = Vocabulary.loadVocabulary(AppEnvironment.getVocabularyFile("test"));
+            Assert.assertFalse(unpacked.isPacked());
+            Assert.assertEquals(102, unpacked.getArticles().size());
+            Assert.assertNull(unpacked.getArticle("word5"));
+            Assert.assertEquals(-5, unpacked.getArticle("word3").getRatingValue());
+            checkStringLists(Arrays.asList("приходить"), unpacked.getArticle("come").getTranslates());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Assert.fail(e.getMessage());
+        }
+    }
 
     private void checkStringLists(List<String> expectedList, List<String> list) {
         Assert.assertEquals(expectedList.size(), list.size());
@@ -0,0 +1,217 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import vocabularyup.VocabularyApp;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.test.history.AnswerHistory;
+
+/**
+ *
+ * @author dooman
+ */
+public class VocabularyServerTest extends TestCase {
+    private static final String NAME = "test-server";
+
+    private VocabularyServer server;
+    private String vocabularyName;
+    private Vocabulary vocabulary;
+
+    @Before
+    @Override
+    protected void setUp() throws Exception {
+        //application is singleton, each test uses its own vocabulary
+        vocabularyName = NAME + "-" + getName();
+        VocabularyApp app = VocabularyApp.getInstance();
+        app.createVocabulary(vocabularyName);
+        vocabulary = app.getVocabulary(vocabularyName);
+        server = new VocabularyServer(app, 0, 4);
+        server.start();
+    }
+
+    @After
+    @Override
+    protected void tearDown() throws Exception {
+        server.stop(0);
+        new File(VocabularyApp.APP_HOME_DIR + "/" + vocabularyName + ".xml").delete();
+        new File(VocabularyApp.APP_HOME_DIR + "/" + vocabularyName + ".ratings").delete();
+        new File(VocabularyApp.APP_HOME_DIR + "/" + vocabularyName + AnswerHistory.HISTORY_FILE_EXTENSION).delete();
+    }
+
+    @Test
+    public void testArticles() throws Exception {
+        String v = "vocabulary=" + vocabularyName;
+        Assert.assertEquals(201, request("POST", "/articles", v + "&source=go&translate=" + enc("идти") + "&example=let's+go").code);
+        Assert.assertEquals(201, request("POST", "/articles", v + "&source=good&translate=" + enc("хороший")).code);
+        Assert.assertEquals(409, request("POST", "/articles", v + "&source=go&translate=x").code);
+        Assert.assertEquals(2, vocabulary.snapshot().size());
+
+        Response r = request("GET", "/articles?" + v + "&source=go", null);
+        Assert.assertEquals(200, r.code);
+        Assert.assertTrue(r.body, r.body.contains("\"translates\":[\"идти\"]"));
+        Assert.assertTrue(r.body, r.body.contains("\"examples\":[\"let's go\"]"));
+
+        r = request("PUT", "/articles", v + "&source=good&newSource=gone&translate=" + enc("ушедший"));
+        Assert.assertEquals(200, r.code);
+        Assert.assertNotNull(vocabulary.getArticle("gone"));
+        Assert.assertEquals(404, request("GET", "/articles?" + v + "&source=good", null).code);
+        Assert.assertEquals(405, request("DELETE", "/articles?" + v + "&source=gone", null).code);
+
+        r = request("GET", "/search?" + v + "&prefix=go", null);
+        Assert.assertEquals(200, r.code);
+        Assert.assertTrue(r.body, r.body.startsWith("[{\"id\":0,\"source\":\"go\""));
+        Assert.assertTrue(r.body, r.body.contains("\"source\":\"gone\""));
+        r = request("GET", "/search?" + v + "&prefix=go&limit=1", null);
+        Assert.assertFalse(r.body, r.body.contains("gone"));
+
+        Assert.assertEquals(404, request("GET", "/search?vocabulary=unknown-vocabulary", null).code);
+        Assert.assertEquals(400, request("GET", "/search?" + v + "&limit=x", null).code);
+    }
+
+    @Test
+    public void testTestSession() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            vocabulary.addArticle("word" + i, Arrays.asList("t"), null);
+        }
+        vocabulary.save();
+
+        Response r = request("POST", "/tests/start", "vocabulary=" + vocabularyName + "&count=3&selection=weakest");
+        Assert.assertEquals(r.body, 200, r.code);
+        String id = field(r.body, "id");
+        int words = 0;
+        while (!"null".equals(field(r.body, "word"))) {
+            words++;
+            r = request("POST", "/tests/answer", "id=" + id + "&answer=t");
+            Assert.assertEquals(r.body, 200, r.code);
+        }
+        Assert.assertEquals(3, words);
+
+        r = request("POST", "/tests/end", "id=" + id);
+        Assert.assertEquals(200, r.code);
+        Assert.assertEquals(3, r.body.split("\"right\":true").length - 1);
+        Assert.assertEquals(404, request("POST", "/tests/end", "id=" + id).code);
+    }
+
+    @Test
+    public void testOverload() throws Exception {
+        server.stop(0);
+        server = new VocabularyServer(VocabularyApp.getInstance(), 0, 1, 1);
+        server.start();
+        final String path = "/search?vocabulary=" + vocabularyName;
+        final List<Integer> codes = Collections.synchronizedList(new ArrayList<Integer>());
+        Thread[] clients = new Thread[4];
+        //worker and queue wait for vocabulary, the rest of requests is rejected
+        vocabulary.getLock().writeLock().lock();
+        try {
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            codes.add(request("GET", path, null).code);
+                        } catch (Exception e) {
+                            codes.add(-1);
+                        }
+                    }
+                };
+                clients[i].start();
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!codes.contains(503) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            vocabulary.getLock().writeLock().unlock();
+        }
+        for (Thread t : clients) {
+            t.join();
+        }
+        Assert.assertTrue(codes.toString(), codes.contains(503));
+        Assert.assertTrue(codes.toString(), codes.contains(200));
+        Assert.assertFalse(codes.toString(), codes.contains(-1));
+    }
+
+    @Test
+    public void testLoadTestClient() throws Exception {
+        vocabulary.addArticle("word", Arrays.asList("t"), null);
+        LoadTestClient client = new LoadTestClient(new URL("http://127.0.0.1:" + server.getPort()
+                + "/search?vocabulary=" + vocabularyName + "&prefix=w"));
+        LoadTestClient.Report report = client.run(4, 50);
+        Assert.assertEquals(200, report.getRequests());
+        Assert.assertEquals(0, report.getErrors());
+        Assert.assertTrue(report.getThroughput() > 0);
+        Assert.assertTrue(report.getPercentile(99) >= report.getPercentile(50));
+    }
+
+    private static String enc(String s) throws Exception {
+        return URLEncoder.encode(s, "UTF-8");
+    }
+
+    private static String field(String json, String name) {
+        Matcher m = Pattern.compile("\"" + name + "\":(\"([^\"]*)\"|[^,}]+)").matcher(json);
+        Assert.assertTrue(json, m.find());
+        return m.group(2) != null ? m.group(2) : m.group(1);
+    }
+
+    private static final class Response {
+        int code;
+        String body;
+    }
+
+    private Response request(String method, String path, String form) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            OutputStream out = connection.getOutputStream();
+            out.write(form.getBytes("UTF-8"));
+            out.close();
+        }
+        Response response = new Response();
+        response.code = connection.getResponseCode();
+        InputStream in = response.code < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while (in != null && (read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        response.body = body.toString("UTF-8");
+        return response;
+    }
+}
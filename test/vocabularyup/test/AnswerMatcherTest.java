@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.util.Arrays;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+import vocabularyup.model.xml.ArticleSnapshot;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.util.text.AnswerNormalizer;
+
+/**
+ *
+ * @author dooman
+ */
+public class AnswerMatcherTest extends TestCase {
+
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals("to be", AnswerNormalizer.normalize("  To   Be! "));
+        Assert.assertEquals("идти", AnswerNormalizer.normalize("«Идти»."));
+        Assert.assertEquals("abc 1", AnswerNormalizer.normalize("ＡＢＣ 1"));
+        Assert.assertEquals("", AnswerNormalizer.normalize(null));
+        Assert.assertEquals("", AnswerNormalizer.normalize("?!"));
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+        Vocabulary voc = Vocabulary.newVocabulary("matcher");
+        voc.addArticle("go", Arrays.asList("идти", "to walk"), null);
+        ArticleSnapshot article = voc.snapshot().getArticle(0);
+
+        Assert.assertTrue(AnswerMatcher.EXACT.matches(article, "Идти"));
+        Assert.assertTrue(AnswerMatcher.EXACT.matches(article, "to  walk."));
+        Assert.assertFalse(AnswerMatcher.EXACT.matches(article, "итди"));
+        Assert.assertFalse(AnswerMatcher.EXACT.matches(article, ""));
+        Assert.assertFalse(AnswerMatcher.EXACT.matches(article, null));
+
+        AnswerMatcher typos = new AnswerMatcher(1);
+        Assert.assertTrue(typos.matches(article, "идт"));
+        Assert.assertTrue(typos.matches(article, "to wallk"));
+        Assert.assertFalse(typos.matches(article, "итди"));
+        Assert.assertFalse(typos.matches(article, "to run"));
+
+        Assert.assertTrue(new VocabularyTestResult(article, "ИДТИ!").isResult());
+    }
+
+    @Test
+    public void testBoundedDistance() {
+        Assert.assertTrue(AnswerMatcher.withinDistance("kitten", "sitting", 3));
+        Assert.assertFalse(AnswerMatcher.withinDistance("kitten", "sitting", 2));
+        Assert.assertTrue(AnswerMatcher.withinDistance("", "ab", 2));
+        Assert.assertFalse(AnswerMatcher.withinDistance("abcdef", "ab", 3));
+        Assert.assertTrue(AnswerMatcher.withinDistance("flaw", "lawn", 2));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Test;
+import vocabularyup.VocabularyApp;
+import vocabularyup.exception.TestSessionNotFoundException;
+import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.test.history.AnswerHistory;
+
+/**
+ *
+ * @author dooman
+ */
+public class TestSessionEngineTest extends TestCase {
+    private static final String NAME = "test-sessions";
+    private static final int ARTICLES = 1200;
+    private static final int THREADS = 16;
+    private static final int SESSIONS_PER_THREAD = 125;
+    private static final int WORDS = 5;
+
+    @After
+    @Override
+    protected void tearDown() throws Exception {
+        new File(VocabularyApp.APP_HOME_DIR + "/" + NAME + ".xml").delete();
+        new File(VocabularyApp.APP_HOME_DIR + "/" + NAME + ".ratings").delete();
+        new File(VocabularyApp.APP_HOME_DIR + "/" + NAME + AnswerHistory.HISTORY_FILE_EXTENSION).delete();
+    }
+
+    /**
+     * Thousands of sessions on one vocabulary from many threads,
+     * sum of ratings must be equal to (right answers - wrong answers).
+     */
+    @Test
+    public void testConcurrentSessions() throws Exception {
+        final Vocabulary vocabulary = createVocabulary();
+        final TestSessionEngine engine = new TestSessionEngine();
+        final List<Vocabulary> vocabularies = Collections.singletonList(vocabulary);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int t = 0; t < THREADS; t++) {
+            final Random random = new Random(t);
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int balance = 0;
+                    for (int s = 0; s < SESSIONS_PER_THREAD; s++) {
+                        TestSession session = engine.start(vocabularies, WORDS,
+                                VocabularyTest.Selection.DUE, WordOrder.RANDOM);
+                        String word;
+                        while ((word = session.nextWord()) != null) {
+                            boolean right = random.nextBoolean();
+                            session.answer(right ? "t" : "wrong");
+                            balance += right ? 1 : -1;
+                        }
+                        Assert.assertEquals(WORDS, engine.end(session.getId()).size());
+                    }
+                    return balance;
+                }
+            }));
+        }
+        int expected = 0;
+        for (Future<Integer> f : futures) {
+            expected += f.get();
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(0, engine.size());
+        Assert.assertEquals(expected, sumRatings(vocabulary));
+
+        //the last journal record of each article has the latest rating
+        Vocabulary saved = Vocabulary.loadVocabulary(new File(VocabularyApp.APP_HOME_DIR + "/" + NAME + ".xml"));
+        Assert.assertEquals(expected, sumRatings(saved));
+    }
+
+    @Test
+    public void testSessionSizeIsBounded() throws Exception {
+        Vocabulary vocabulary = createVocabulary();
+        TestSessionEngine engine = new TestSessionEngine();
+        TestSession session = engine.start(Collections.singletonList(vocabulary), ARTICLES,
+                VocabularyTest.Selection.WEAKEST, WordOrder.RANDOM);
+        int words = 0;
+        while (session.nextWord() != null) {
+            session.answer("t");
+            words++;
+        }
+        Assert.assertEquals(TestSessionEngine.MAX_WORDS, words);
+        engine.end(session.getId());
+
+        try {
+            engine.end(session.getId());
+            Assert.fail("Session is ended twice");
+        } catch (TestSessionNotFoundException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testIdleSessionsExpire() throws Exception {
+        Vocabulary vocabulary = createVocabulary();
+        TestSessionEngine engine = new TestSessionEngine(1);
+        TestSession session = engine.start(Collections.singletonList(vocabulary), WORDS,
+                VocabularyTest.Selection.DUE, WordOrder.RANDOM);
+        Thread.sleep(10);
+        Assert.assertEquals(1, engine.expireIdle());
+        Assert.assertEquals(0, engine.size());
+        try {
+            engine.nextWord(session.getId());
+            Assert.fail("Expired session is found");
+        } catch (TestSessionNotFoundException e) {
+            //expected
+        }
+    }
+
+    /**
+     * Repeated answer (e.g. client's retry) after the last word must not grade the word again.
+     */
+    @Test
+    public void testWordIsAnsweredOnce() throws Exception {
+        Vocabulary vocabulary = createVocabulary();
+        TestSessionEngine engine = new TestSessionEngine();
+        TestSession session = engine.start(Collections.singletonList(vocabulary), 1,
+                VocabularyTest.Selection.DUE, WordOrder.RANDOM);
+        Assert.assertNotNull(session.nextWord());
+        session.answer("t");
+        Assert.assertNull(session.nextWord());
+        try {
+            session.answer("wrong");
+            Assert.fail("Word is answered twice");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+        List<VocabularyTestResult> results = engine.end(session.getId());
+        Assert.assertEquals(1, results.size());
+        Assert.assertTrue(results.get(0).isResult());
+        Assert.assertEquals(1, sumRatings(vocabulary));
+    }
+
+    @Test
+    public void testAnswerWithoutWord() throws Exception {
+        Vocabulary vocabulary = Vocabulary.newVocabulary(NAME);
+        vocabulary.save();
+        TestSessionEngine engine = new TestSessionEngine();
+        TestSession session = engine.start(Collections.singletonList(vocabulary), WORDS,
+                VocabularyTest.Selection.DUE, WordOrder.RANDOM);
+        try {
+            session.answer("t");
+            Assert.fail("Answer is accepted without word");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+        Assert.assertNull(session.nextWord());
+        Assert.assertTrue(engine.end(session.getId()).isEmpty());
+    }
+
+    private static Vocabulary createVocabulary() throws Exception {
+        Vocabulary vocabulary = Vocabulary.newVocabulary(NAME);
+        for (int i = 0; i < ARTICLES; i++) {
+            vocabulary.addArticle(NAME + i, Arrays.asList("t"), null);
+        }
+        vocabulary.save();
+        return vocabulary;
+    }
+
+    private static int sumRatings(Vocabulary vocabulary) {
+        int sum = 0;
+        for (Article article : vocabulary.getArticles()) {
+            sum += article.getRatingValue();
+        }
+        return sum;
+    }
+}
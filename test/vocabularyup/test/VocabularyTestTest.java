@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Test;
+import vocabularyup.VocabularyApp;
+import vocabularyup.model.xml.Vocabulary;
+import vocabularyup.test.history.AnswerHistory;
+
+/**
+ *
+ * @author dooman
+ */
+public class VocabularyTestTest extends TestCase {
+    private static final String[] NAMES = {"test-first", "test-second", "test-third"};
+
+    @After
+    @Override
+    protected void tearDown() throws Exception {
+        for (String name : NAMES) {
+            new File(VocabularyApp.APP_HOME_DIR + "/" + name + ".xml").delete();
+            new File(VocabularyApp.APP_HOME_DIR + "/" + name + ".ratings").delete();
+            new File(VocabularyApp.APP_HOME_DIR + "/" + name + AnswerHistory.HISTORY_FILE_EXTENSION).delete();
+        }
+    }
+
+    /**
+     * Words with the lowest ratings are taken from all vocabularies,
+     * results are written back to each vocabulary.
+     */
+    @Test
+    public void testWeakestWordsOfAllVocabularies() throws Exception {
+        Vocabulary first = createVocabulary(NAMES[0], 0, 30);
+        Vocabulary second = createVocabulary(NAMES[1], 1, 30);
+        Vocabulary third = createVocabulary(NAMES[2], 2, 30);
+
+        VocabularyTest test = new VocabularyTest(Arrays.asList(first, second, third), 10,
+                VocabularyTest.Selection.WEAKEST, WordOrder.RANDOM, new Random(5));
+        test.start();
+        Set<String> asked = new HashSet<String>();
+        while (test.hasMoreWords()) {
+            String word = test.getWord();
+            asked.add(word);
+            test.setAnswer(word.startsWith(NAMES[0]) ? "t" : "wrong");
+        }
+        List<VocabularyTestResult> results = test.end();
+
+        //ratings are i * 3 + offset, ten lowest are 0..9
+        Assert.assertEquals(10, asked.size());
+        for (int rating = 0; rating < 10; rating++) {
+            Assert.assertTrue(asked.toString(), asked.contains(NAMES[rating % 3] + (rating / 3)));
+        }
+        Assert.assertEquals(10, results.size());
+        Assert.assertEquals(1, first.getArticle(NAMES[0] + "0").getRatingValue());
+        Assert.assertEquals(0, second.getArticle(NAMES[1] + "0").getRatingValue());
+
+        Vocabulary saved = Vocabulary.loadVocabulary(new File(VocabularyApp.APP_HOME_DIR + "/" + NAMES[1] + ".xml"));
+        Assert.assertEquals(0, saved.getArticle(NAMES[1] + "0").getRatingValue());
+        Assert.assertEquals(1, saved.getArticle(NAMES[1] + "0").getSchedule().getInterval());
+    }
+
+    private static Vocabulary createVocabulary(String name, int offset, int count) throws Exception {
+        Vocabulary vocabulary = Vocabulary.newVocabulary(name);
+        for (int i = 0; i < count; i++) {
+            vocabulary.addArticle(name + i, Arrays.asList("t"), null).setRating(String.valueOf(i * 3 + offset));
+        }
+        return vocabulary;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.ArticleSnapshot;
+import vocabularyup.model.xml.Vocabulary;
+
+/**
+ *
+ * @author dooman
+ */
+public class WordSelectionStrategyTest extends TestCase {
+    private static final Logger log = Logger.getLogger(WordSelectionStrategyTest.class.getName());
+
+    @Test
+    public void testEachWordOnceAndReproducible() throws Exception {
+        List<ArticleSnapshot> words = createWords("voc", 500);
+        for (WordOrder order : WordOrder.values()) {
+            List<ArticleSnapshot> first = drawAll(order.create(words, new Random(42)));
+            List<ArticleSnapshot> second = drawAll(order.create(words, new Random(42)));
+            Assert.assertEquals(order.name(), words.size(), first.size());
+            Assert.assertEquals(order.name(), words.size(), new HashSet<ArticleSnapshot>(first).size());
+            Assert.assertEquals(order.name(), first, second);
+        }
+    }
+
+    @Test
+    public void testWeightedPrefersWeakWords() throws Exception {
+        Vocabulary voc = Vocabulary.newVocabulary("weighted");
+        for (int i = 0; i < 100; i++) {
+            Article a = voc.addArticle("w" + i, Arrays.asList("t" + i), null);
+            a.setRating(i < 50 ? "-20" : "10");
+        }
+        List<ArticleSnapshot> words = voc.snapshot().getArticles();
+        int weakFirst = 0;
+        Random random = new Random(1);
+        for (int run = 0; run < 200; run++) {
+            ArticleSnapshot word = new WeightedRandomStrategy(words, random).next();
+            if (word.getRatingValue() < 0) {
+                weakFirst++;
+            }
+        }
+        //weights are 30 and 1, so weak word is the first in ~97% of runs
+        Assert.assertTrue("Weak words first: " + weakFirst, weakFirst > 180);
+    }
+
+    @Test
+    public void testRoundRobinAlternatesVocabularies() throws Exception {
+        List<ArticleSnapshot> words = new ArrayList<ArticleSnapshot>();
+        words.addAll(createWords("first", 3));
+        words.addAll(createWords("second", 5));
+        WordSelectionStrategy strategy = new RoundRobinStrategy(words, new Random(3));
+        List<ArticleSnapshot> drawn = drawAll(strategy);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(i % 2 == 0 ? "first" : "second", drawn.get(i).getVocabulary().getName());
+        }
+        Assert.assertEquals("second", drawn.get(6).getVocabulary().getName());
+        Assert.assertEquals("second", drawn.get(7).getVocabulary().getName());
+    }
+
+    /**
+     * Compare strategies with the old way: new Random per word and removing from LinkedList.
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        List<ArticleSnapshot> words = createWords("bench", 20000);
+        for (WordOrder order : WordOrder.values()) {
+            long start = System.nanoTime();
+            for (int run = 0; run < 5; run++) {
+                drawAll(order.create(words, new Random(run)));
+            }
+            log.info(order.name() + ": " + (System.nanoTime() - start) / (5L * words.size()) + " ns/word");
+        }
+
+        long start = System.nanoTime();
+        List<ArticleSnapshot> list = new LinkedList<ArticleSnapshot>(words);
+        while (!list.isEmpty()) {
+            list.remove(new Random(System.nanoTime()).nextInt(list.size()));
+        }
+        log.info("LinkedList: " + (System.nanoTime() - start) / words.size() + " ns/word");
+    }
+
+    private static List<ArticleSnapshot> drawAll(WordSelectionStrategy strategy) {
+        List<ArticleSnapshot> result = new ArrayList<ArticleSnapshot>();
+        while (strategy.hasNext()) {
+            result.add(strategy.next());
+        }
+        Assert.assertEquals(0, strategy.remaining());
+        return result;
+    }
+
+    private static List<ArticleSnapshot> createWords(String name, int count) throws Exception {
+        Vocabulary voc = Vocabulary.newVocabulary(name);
+        for (int i = 0; i < count; i++) {
+            voc.addArticle(name + i, Arrays.asList("t" + i), null);
+        }
+        return voc.snapshot().getArticles();
+    }
+}
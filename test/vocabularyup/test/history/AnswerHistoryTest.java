@@ -0,0 +1,175 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.test.history;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author dooman
+ */
+public class AnswerHistoryTest extends TestCase {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private File file;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        file = File.createTempFile("answers", AnswerHistory.HISTORY_FILE_EXTENSION);
+        file.delete();
+    }
+
+    @After
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testAppendAndAggregate() throws Exception {
+        AnswerHistory history = new AnswerHistory(file);
+        long day = 10000 * DAY;
+        history.append(Arrays.asList(
+                new AnswerRecord(0, day + 1000, true, 1500),
+                new AnswerRecord(1, day + 5000, false, 7000),
+                new AnswerRecord(0, day + 4000, true, 900)));
+        history.append(Arrays.asList(
+                new AnswerRecord(0, day + DAY, false, 2000),
+                new AnswerRecord(300, day + DAY + 10, true, 0)));
+        Assert.assertTrue("File size: " + file.length(), file.length() < 40);
+
+        final List<AnswerRecord> all = new ArrayList<AnswerRecord>();
+        history.read(new AnswerVisitor() {
+            @Override
+            public void visit(int articleId, long time, boolean correct, int responseMillis) {
+                all.add(new AnswerRecord(articleId, time, correct, responseMillis));
+            }
+        });
+        Assert.assertEquals(5, all.size());
+        Assert.assertEquals(day + 4000, all.get(2).getTime());
+        Assert.assertEquals(7000, all.get(1).getResponseMillis());
+        Assert.assertFalse(all.get(1).isCorrect());
+        Assert.assertEquals(300, all.get(4).getArticleId());
+
+        ArticleAccuracy accuracy = new ArticleAccuracy();
+        history.read(accuracy);
+        Assert.assertEquals(3, accuracy.getAnswers(0));
+        Assert.assertEquals(2, accuracy.getCorrect(0));
+        Assert.assertEquals(0.0, accuracy.getAccuracy(1), 0.0001);
+        Assert.assertTrue(Double.isNaN(accuracy.getAccuracy(2)));
+
+        AnswerStreaks streaks = new AnswerStreaks();
+        history.read(streaks);
+        Assert.assertEquals(0, streaks.getCurrent(0));
+        Assert.assertEquals(2, streaks.getBest(0));
+        Assert.assertEquals(1, streaks.getCurrent(300));
+
+        DailyAnswerCounts daily = new DailyAnswerCounts(TimeZone.getTimeZone("UTC"));
+        history.read(daily);
+        SortedMap<Long, Integer> answers = daily.getAnswers();
+        Assert.assertEquals(Integer.valueOf(3), answers.get(day));
+        Assert.assertEquals(Integer.valueOf(2), answers.get(day + DAY));
+        Assert.assertEquals(Integer.valueOf(1), daily.getCorrect().get(day + DAY));
+    }
+
+    @Test
+    public void testConcurrentInstances() throws Exception {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            //each test gets its own instance of history
+                            new AnswerHistory(file).append(Arrays.asList(
+                                    new AnswerRecord(id, 1000 + i, true, 10), new AnswerRecord(id, 2000 + i, false, 10)));
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        ArticleAccuracy accuracy = new ArticleAccuracy();
+        new AnswerHistory(file).read(accuracy);
+        for (int t = 0; t < threads.length; t++) {
+            Assert.assertEquals(100, accuracy.getAnswers(t));
+            Assert.assertEquals(50, accuracy.getCorrect(t));
+        }
+    }
+
+    @Test
+    public void testIncompleteBlockIsIgnored() throws Exception {
+        AnswerHistory history = new AnswerHistory(file);
+        history.append(Arrays.asList(new AnswerRecord(1, 1000, true, 10)));
+        long length = file.length();
+        history.append(Arrays.asList(new AnswerRecord(2, 2000, true, 10), new AnswerRecord(3, 3000, true, 10)));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(file.length() - 2);
+        } finally {
+            raf.close();
+        }
+
+        ArticleAccuracy accuracy = new ArticleAccuracy();
+        history.read(accuracy);
+        Assert.assertEquals(1, accuracy.getAnswers(1));
+        Assert.assertEquals(0, accuracy.getAnswers(2));
+        Assert.assertTrue(file.length() > length);
+
+        //incomplete block is cut off, so new blocks are readable
+        history.append(Arrays.asList(new AnswerRecord(4, 4000, true, 10)));
+        history.append(Arrays.asList(new AnswerRecord(5, 5000, false, 10)));
+        accuracy = new ArticleAccuracy();
+        history.read(accuracy);
+        Assert.assertEquals(1, accuracy.getAnswers(1));
+        Assert.assertEquals(0, accuracy.getAnswers(2));
+        Assert.assertEquals(1, accuracy.getAnswers(4));
+        Assert.assertEquals(1, accuracy.getAnswers(5));
+
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+        try {
+            history.read(accuracy);
+            Assert.fail("Corrupted file must be detected");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+}
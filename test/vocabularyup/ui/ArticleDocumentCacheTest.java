@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.ui;
+
+import java.util.Arrays;
+import java.util.Collections;
+import javax.swing.text.StyledDocument;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+import vocabularyup.model.xml.Article;
+import vocabularyup.model.xml.Vocabulary;
+
+/**
+ *
+ * @author dooman
+ */
+public class ArticleDocumentCacheTest extends TestCase {
+
+    @Test
+    public void testDocumentIsRebuiltOnlyAfterChange() throws Exception {
+        Vocabulary voc = Vocabulary.newVocabulary("cache-test");
+        Article article = voc.addArticle("go", Arrays.asList("идти", "ходить"), Collections.singletonList("go home"));
+        ArticleDocumentCache cache = new ArticleDocumentCache();
+
+        StyledDocument first = cache.getDocument(article);
+        String text = first.getText(0, first.getLength());
+        Assert.assertTrue(text, text.startsWith("go\n"));
+        Assert.assertTrue(text, text.contains("идти") && text.contains("go home") && text.contains("Rating: 0"));
+        Assert.assertSame(first, cache.getDocument(article));
+
+        article.setRating("-1");
+        StyledDocument changed = cache.getDocument(article);
+        Assert.assertNotSame(first, changed);
+        Assert.assertTrue(changed.getText(0, changed.getLength()).contains("Rating: -1"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDocumentsAreRemoved() throws Exception {
+        Vocabulary voc = Vocabulary.newVocabulary("cache-test");
+        ArticleDocumentCache cache = new ArticleDocumentCache(2);
+        Article a = voc.addArticle("a", Collections.singletonList("a"), Collections.<String>emptyList());
+        Article b = voc.addArticle("b", Collections.singletonList("b"), Collections.<String>emptyList());
+        Article c = voc.addArticle("c", Collections.singletonList("c"), Collections.<String>emptyList());
+
+        StyledDocument docA = cache.getDocument(a);
+        cache.prefetch(b);
+        Assert.assertSame(docA, cache.getDocument(a));
+        cache.prefetch(c);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertSame(docA, cache.getDocument(a));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.ui.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+/**
+ *
+ * @author dooman
+ */
+public class TestCountdownTest extends TestCase {
+
+    /**
+     * Long session: countdown is restarted for each word,
+     * number of threads and listeners must not grow.
+     */
+    @Test
+    public void testLongSessionResourcesAreBounded() throws Exception {
+        final AtomicInteger ticks = new AtomicInteger();
+        final TestCountdown countdown = new TestCountdown(new TestCountdown.Listener() {
+            @Override
+            public void tick(int secondsLeft) {
+                ticks.incrementAndGet();
+            }
+
+            @Override
+            public void expired() {
+            }
+        });
+
+        final int words = 10000;
+        //the first start may create swing timer thread
+        startAndAnswer(countdown, 1);
+        int threadsBefore = Thread.activeCount();
+
+        startAndAnswer(countdown, words);
+
+        Assert.assertEquals(words + 1, ticks.get());
+        Assert.assertEquals(1, countdown.getTimerListenerCount());
+        Assert.assertFalse(countdown.isRunning());
+        Assert.assertTrue("Threads: " + Thread.activeCount() + ", before: " + threadsBefore,
+                Thread.activeCount() <= threadsBefore + 1);
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        final CountDownLatch expired = new CountDownLatch(1);
+        final AtomicInteger lastTick = new AtomicInteger(-1);
+        final TestCountdown countdown = new TestCountdown(new TestCountdown.Listener() {
+            @Override
+            public void tick(int secondsLeft) {
+                lastTick.set(secondsLeft);
+            }
+
+            @Override
+            public void expired() {
+                expired.countDown();
+            }
+        });
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                countdown.start(2);
+            }
+        });
+        Assert.assertTrue("Countdown isn't expired", expired.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, lastTick.get());
+        Assert.assertFalse(countdown.isRunning());
+    }
+
+    @Test
+    public void testFormat() {
+        Assert.assertEquals("00:09", TestCountdown.format(9));
+        Assert.assertEquals("01:30", TestCountdown.format(90));
+    }
+
+    private void startAndAnswer(final TestCountdown countdown, final int words) throws Exception {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < words; i++) {
+                    countdown.start(15);
+                    countdown.stop();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.util.collection;
+
+import java.util.Random;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+/**
+ *
+ * @author dooman
+ */
+public class FenwickTreeTest extends TestCase {
+
+    @Test
+    public void testSumsAndFind() {
+        Random random = new Random(7);
+        int[] weights = new int[1000];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextInt(5);
+        }
+        FenwickTree tree = new FenwickTree(weights);
+        for (int step = 0; step < 2000; step++) {
+            int index = random.nextInt(weights.length);
+            weights[index] = random.nextInt(5);
+            tree.set(index, weights[index]);
+        }
+
+        long sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            Assert.assertEquals(sum, tree.prefixSum(i));
+            for (int w = 0; w < weights[i]; w++) {
+                Assert.assertEquals(i, tree.find(sum + w));
+            }
+            sum += weights[i];
+        }
+        Assert.assertEquals(sum, tree.total());
+    }
+
+    @Test
+    public void testFindSkipsZeroWeights() {
+        FenwickTree tree = new FenwickTree(new int[] {0, 3, 0, 0, 2});
+        Assert.assertEquals(1, tree.find(0));
+        Assert.assertEquals(1, tree.find(2));
+        Assert.assertEquals(4, tree.find(3));
+        tree.set(1, 0);
+        Assert.assertEquals(4, tree.find(0));
+        try {
+            tree.find(2);
+            Assert.fail("Value is out of range");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+}
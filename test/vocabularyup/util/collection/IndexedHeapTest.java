@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package vocabularyup.util.collection;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+/**
+ *
+ * @author dooman
+ */
+public class IndexedHeapTest extends TestCase {
+
+    @Test
+    public void testRandomChanges() {
+        Random random = new Random(11);
+        IndexedHeap heap = new IndexedHeap();
+        Map<Integer, Long> keys = new HashMap<Integer, Long>();
+        for (int step = 0; step < 20000; step++) {
+            int id = random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                Assert.assertEquals(keys.remove(id) != null, heap.remove(id));
+            } else {
+                long key = random.nextInt(50);
+                heap.set(id, key);
+                keys.put(id, key);
+            }
+            Assert.assertEquals(keys.size(), heap.size());
+        }
+
+        TreeSet<long[]> expected = new TreeSet<long[]>(new Comparator<long[]>() {
+            @Override
+            public int compare(long[] e1, long[] e2) {
+                if (e1[0] != e2[0]) {
+                    return e1[0] < e2[0] ? -1 : 1;
+                }
+                return e1[1] < e2[1] ? -1 : (e1[1] == e2[1] ? 0 : 1);
+            }
+        });
+        for (Map.Entry<Integer, Long> e : keys.entrySet()) {
+            expected.add(new long[] {e.getValue(), e.getKey()});
+            Assert.assertEquals(e.getValue().longValue(), heap.getKey(e.getKey()));
+        }
+        int[] first = heap.first(100);
+        Assert.assertEquals(100, first.length);
+        Iterator<long[]> it = expected.iterator();
+        for (int id : first) {
+            Assert.assertEquals(it.next()[1], id);
+        }
+        Assert.assertEquals(keys.size(), heap.first(Integer.MAX_VALUE).length);
+    }
+
+    @Test
+    public void testFirstDoesNotChangeHeap() {
+        IndexedHeap heap = new IndexedHeap();
+        heap.set(5, 3);
+        heap.set(1, 3);
+        heap.set(9, 1);
+        Assert.assertEquals(3, heap.first(5).length);
+        int[] first = heap.first(2);
+        Assert.assertEquals(9, first[0]);
+        Assert.assertEquals(1, first[1]);
+        Assert.assertEquals(3, heap.size());
+        Assert.assertFalse(heap.contains(2));
+        Assert.assertFalse(heap.remove(2));
+
+        heap.clear();
+        Assert.assertTrue(heap.isEmpty());
+        Assert.assertEquals(0, heap.first(3).length);
+    }
+}
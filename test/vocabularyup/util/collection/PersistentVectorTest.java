@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.util.collection;
+
+import java.util.Iterator;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+/**
+ *
+ * @author dooman
+ */
+public class PersistentVectorTest extends TestCase {
+
+    @Test
+    public void testAppendAndGet() {
+        PersistentVector<Integer> v = PersistentVector.empty();
+        int count = 40000;
+        for (int i = 0; i < count; i++) {
+            v = v.append(i);
+        }
+        Assert.assertEquals(count, v.size());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(Integer.valueOf(i), v.get(i));
+        }
+        Iterator<Integer> it = v.iterator();
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(Integer.valueOf(i), it.next());
+        }
+        Assert.assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testSetKeepsOldVersion() {
+        PersistentVector<String> v1 = PersistentVector.empty();
+        for (int i = 0; i < 1100; i++) {
+            v1 = v1.append("v" + i);
+        }
+        PersistentVector<String> v2 = v1.set(1057, "changed").append("last");
+
+        Assert.assertEquals("v1057", v1.get(1057));
+        Assert.assertEquals(1100, v1.size());
+        Assert.assertEquals("changed", v2.get(1057));
+        Assert.assertEquals("last", v2.get(1100));
+        Assert.assertEquals("v1056", v2.get(1056));
+    }
+
+    @Test
+    public void testPop() {
+        PersistentVector<Integer> v = PersistentVector.empty();
+        int count = 1100;
+        for (int i = 0; i < count; i++) {
+            v = v.append(i);
+        }
+        PersistentVector<Integer> popped = v;
+        for (int i = count - 1; i >= 0; i--) {
+            popped = popped.pop();
+            Assert.assertEquals(i, popped.size());
+            if (i > 0) {
+                Assert.assertEquals(Integer.valueOf(i - 1), popped.get(i - 1));
+            }
+            //vector grows again after pop
+            Assert.assertEquals(Integer.valueOf(-1), popped.append(-1).get(i));
+        }
+        Assert.assertEquals(count, v.size());
+        Assert.assertEquals(Integer.valueOf(count - 1), v.get(count - 1));
+        try {
+            popped.pop();
+            Assert.fail("Empty vector is popped");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testOutOfRange() {
+        PersistentVector<String> v = PersistentVector.<String>empty().append("a");
+        try {
+            v.get(1);
+            Assert.fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            //expected
+        }
+    }
+}
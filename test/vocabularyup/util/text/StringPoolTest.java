@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2009 Pokidov Dmitry.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+
+package vocabularyup.util.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+/**
+ *
+ * @author dooman
+ */
+public class StringPoolTest extends TestCase {
+
+    @Test
+    public void testIntern() {
+        StringPool pool = new StringPool();
+        String first = new String("идти");
+        String second = new String("идти");
+        Assert.assertSame(first, pool.intern(first));
+        Assert.assertSame(first, pool.intern(second));
+        Assert.assertSame(first, pool.intern(first));
+        Assert.assertNull(pool.intern(null));
+
+        StringBuilder longText = new StringBuilder();
+        while (longText.length() <= StringPool.MAX_LENGTH) {
+            longText.append("to be or not to be ");
+        }
+        String longString = longText.toString();
+        Assert.assertSame(longString, pool.intern(longString));
+        Assert.assertNotSame(longString, pool.intern(new String(longString)));
+
+        Assert.assertEquals(1, pool.size());
+        Assert.assertEquals(3, pool.getLookups());
+        Assert.assertEquals(1, pool.getDuplicates());
+        //string object and array of 4 2-byte chars
+        Assert.assertEquals(24 + 24, pool.getSavedBytes());
+        //string object and array of 12 1-byte chars
+        Assert.assertEquals(24 + 32, StringPool.estimateSize("to be or not"));
+    }
+
+    @Test
+    public void testManyStrings() {
+        StringPool pool = new StringPool();
+        List<String> kept = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            kept.add(pool.intern("word" + i));
+        }
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertSame(kept.get(i), pool.intern("word" + i));
+        }
+        Assert.assertEquals(10000, pool.size());
+        Assert.assertEquals(10000, pool.getDuplicates());
+    }
+
+    @Test
+    public void testCollectedStringsAreRemoved() throws Exception {
+        StringPool pool = new StringPool();
+        for (int i = 0; i < 10000; i++) {
+            pool.intern("collected" + i);
+        }
+        for (int i = 0; i < 10 && pool.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            pool.intern("trigger");
+        }
+        Assert.assertTrue("Pool keeps not used strings: " + pool.size(), pool.size() < 10000);
+    }
+}